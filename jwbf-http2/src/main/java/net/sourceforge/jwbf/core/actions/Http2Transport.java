@@ -0,0 +1,237 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.CookieManager;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.CheckForNull;
+
+import net.sourceforge.jwbf.JWBF;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Sends requests with the {@link HttpClient} of Java 11, which multiplexes concurrent requests to
+ * a host over one HTTP/2 connection and falls back to HTTP/1.1, if the server does not support
+ * HTTP/2. Plain <code>http</code> URLs are upgraded with <code>h2c</code>, <code>https</code> URLs
+ * negotiate the protocol with ALPN.
+ * <p>
+ * Responses are requested gzip compressed unless a request sets its own
+ * <code>Accept-Encoding</code>. Cookies, like the session of a login, are kept by the client.
+ * </p>
+ *
+ * <pre>
+ * HttpActionClient client = HttpActionClient.builder() //
+ *     .withUrl(&quot;https://en.wikipedia.org/w/&quot;) //
+ *     .withTransport(new Http2Transport()) //
+ *     .withExecutor(Executors.newFixedThreadPool(50)) //
+ *     .build();
+ * </pre>
+ */
+public class Http2Transport implements HttpTransport {
+
+  /**
+   * Set by the {@link HttpClient} itself.
+   */
+  private static final Set<String> RESTRICTED_HEADERS = ImmutableSet.of("connection",
+      "content-length", "expect", "host", "upgrade");
+
+  private static final String USER_AGENT = "JWBF " + JWBF.getVersion(Http2Transport.class);
+
+  private final HttpClient client;
+  private final String userAgent;
+
+  public Http2Transport() {
+    this(USER_AGENT);
+  }
+
+  /**
+   * @param userAgent
+   *          sent with each request, which sets none itself
+   */
+  public Http2Transport(String userAgent) {
+    this(HttpClient.newBuilder() //
+        .version(HttpClient.Version.HTTP_2) //
+        .followRedirects(HttpClient.Redirect.NORMAL) //
+        .cookieHandler(new CookieManager()) //
+        .build(), userAgent);
+  }
+
+  /**
+   * @param client
+   *          needs a {@link java.net.CookieHandler}, otherwise the session of a login is lost
+   * @param userAgent
+   *          sent with each request, which sets none itself
+   */
+  public Http2Transport(HttpClient client, String userAgent) {
+    this.client = Preconditions.checkNotNull(client);
+    this.userAgent = Preconditions.checkNotNull(userAgent);
+  }
+
+  @Override
+  public TransportResponse execute(TransportRequest request) throws IOException {
+    final CompletableFuture<HttpResponse<InputStream>> future = //
+    client.sendAsync(newHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+    request.onAbort(() -> future.cancel(true));
+    final HttpResponse<InputStream> response;
+    try {
+      response = future.get();
+    } catch (CancellationException e) {
+      throw aborted(request, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw aborted(request, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+    request.onAbort(() -> closeQuietly(response.body()));
+    return new Http2TransportResponse(response);
+  }
+
+  private HttpRequest newHttpRequest(TransportRequest request) throws IOException {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri());
+    Map<String, String> headers = request.getHeaders();
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ENGLISH))) {
+        builder.header(header.getKey(), header.getValue());
+      }
+    }
+    if (!containsIgnoreCase(headers, HttpHeaders.ACCEPT_ENCODING)) {
+      builder.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    }
+    if (!containsIgnoreCase(headers, HttpHeaders.USER_AGENT)) {
+      builder.header(HttpHeaders.USER_AGENT, userAgent);
+    }
+    String method = request.getMethod();
+    if (TransportRequest.GET.equals(method)) {
+      return builder.GET().build();
+    } else if (TransportRequest.POST.equals(method)) {
+      RequestBody body = request.getBody();
+      if (body == null) {
+        return builder.POST(HttpRequest.BodyPublishers.noBody()).build();
+      }
+      if (body.getContentType() != null) {
+        builder.header(HttpHeaders.CONTENT_TYPE, body.getContentType());
+      }
+      return builder.POST(HttpRequest.BodyPublishers.ofByteArray(toByteArray(body))).build();
+    }
+    throw new IllegalArgumentException("unsupported method " + method);
+  }
+
+  private static boolean containsIgnoreCase(Map<String, String> headers, String name) {
+    for (String key : headers.keySet()) {
+      if (key.equalsIgnoreCase(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] toByteArray(RequestBody body) throws IOException {
+    long length = body.getContentLength();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0
+        && length <= Integer.MAX_VALUE ? (int) length : 1024);
+    body.writeTo(out);
+    return out.toByteArray();
+  }
+
+  private static InterruptedIOException aborted(TransportRequest request, Exception cause) {
+    InterruptedIOException e = new InterruptedIOException("aborted " + request);
+    e.initCause(cause);
+    return e;
+  }
+
+  private static void closeQuietly(InputStream in) {
+    try {
+      in.close();
+    } catch (IOException e) {
+      // the request is aborted anyway
+    }
+  }
+
+  /**
+   * Does nothing; the connections of the {@link HttpClient} are closed, when it is collected.
+   */
+  @Override
+  public void close() {
+    // nothing to close
+  }
+
+  private static class Http2TransportResponse implements TransportResponse {
+
+    private final HttpResponse<InputStream> response;
+
+    Http2TransportResponse(HttpResponse<InputStream> response) {
+      this.response = response;
+    }
+
+    @Override
+    public int getStatusCode() {
+      return response.statusCode();
+    }
+
+    /**
+     * @return an empty string, HTTP/2 has no reason phrases
+     */
+    @Override
+    public String getReasonPhrase() {
+      return "";
+    }
+
+    @Override
+    @CheckForNull
+    public String getFirstHeader(String name) {
+      return response.headers().firstValue(name).orElse(null);
+    }
+
+    @Override
+    public List<String> getHeaders(String name) {
+      return response.headers().allValues(name);
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      String encoding = getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+      if (encoding == null) {
+        return response.body();
+      }
+      encoding = encoding.trim().toLowerCase(Locale.ENGLISH);
+      if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+        return new GZIPInputStream(response.body());
+      } else if (encoding.equals("deflate")) {
+        return new InflaterInputStream(response.body());
+      }
+      return response.body();
+    }
+
+    @Override
+    public void close() throws IOException {
+      response.body().close();
+    }
+
+    @Override
+    public String toString() {
+      return response.version() + " " + response.statusCode();
+    }
+  }
+
+}
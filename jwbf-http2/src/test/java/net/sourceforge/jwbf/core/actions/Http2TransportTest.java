@@ -0,0 +1,246 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+
+public class Http2TransportTest {
+
+  private Server server;
+  private String url;
+
+  /**
+   * Serves HTTP/1.1 and HTTP/2 without TLS, which a client gets by an upgrade to h2c.
+   */
+  @Before
+  public void before() throws Exception {
+    server = new Server();
+    HttpConfiguration config = new HttpConfiguration();
+    ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(config),
+        new HTTP2CServerConnectionFactory(config));
+    server.addConnector(connector);
+    server.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request request, HttpServletRequest servletRequest,
+          HttpServletResponse response) throws IOException, ServletException {
+        response.setContentType("text/plain; charset=utf-8");
+        String query = Strings.nullToEmpty(request.getQueryString());
+        String text;
+        if (target.equals("/slow")) {
+          sleep(2000);
+          text = "slow";
+        } else if (query.contains("action=login")) {
+          response.addHeader("Set-Cookie", "wikiSession=s1; Path=/");
+          text = "<?xml version=\"1.0\"?><api><login result=\"Success\" lguserid=\"1\""
+              + " lgusername=\"Bob\" /></api>";
+        } else if (query.contains("meta=siteinfo")) {
+          text = "<?xml version=\"1.0\"?><api><query><general sitename=\"Test\""
+              + " generator=\"MediaWiki 1.23.0\" /></query></api>";
+        } else if (target.equals("/headers")) {
+          text = request.getHeader("User-Agent") + " | " + request.getHeader("Cookie");
+        } else if (target.equals("/connection")) {
+          sleep(300);
+          text = String.valueOf(request.getRemotePort());
+        } else {
+          text = request.getMethod() + " " + target + " "
+              + CharStreams.toString(request.getReader());
+        }
+        OutputStream out = response.getOutputStream();
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+          response.setHeader("Content-Encoding", "gzip");
+          out = new GZIPOutputStream(out);
+        }
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+          writer.write(text);
+        }
+        request.setHandled(true);
+      }
+    });
+    server.start();
+    url = "http://localhost:" + connector.getLocalPort() + "/";
+  }
+
+  @After
+  public void after() throws Exception {
+    server.stop();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      TimeUnit.MILLISECONDS.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static String get(Http2Transport transport, String uri) throws IOException {
+    TransportRequest request = new TransportRequest(TransportRequest.GET, URI.create(uri));
+    try (TransportResponse response = transport.execute(request)) {
+      return response + " " + new String(response.getBody().readAllBytes(),
+          StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void testPerformAction() {
+    // GIVEN
+    HttpActionClient client = HttpActionClient.builder() //
+        .withUrl(url) //
+        .withTransport(new Http2Transport()) //
+        .build();
+
+    // WHEN
+    GetPage page = new GetPage("/api.php");
+    client.performAction(page);
+
+    // THEN
+    assertEquals("GET /api.php", page.getText().trim());
+  }
+
+  @Test
+  public void testExecute_post() throws IOException {
+    // GIVEN
+    Http2Transport testee = new Http2Transport();
+    TransportRequest request = new TransportRequest(TransportRequest.POST, URI.create(url + "p"));
+    request.setBody(new FormBody(ImmutableMap.of("text", "a b"), StandardCharsets.UTF_8));
+
+    // WHEN
+    String text;
+    try (TransportResponse response = testee.execute(request)) {
+      text = new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+
+      // THEN
+      assertEquals(200, response.getStatusCode());
+      assertEquals("gzip", response.getFirstHeader("content-encoding"));
+    }
+    assertEquals("POST /p text=a+b", text);
+  }
+
+  @Test
+  public void testExecute_http2() throws Exception {
+    // GIVEN
+    final Http2Transport testee = new Http2Transport();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      get(testee, url + "upgrade");
+      List<Future<String>> responses = Lists.newArrayList();
+      long start = System.nanoTime();
+
+      // WHEN
+      for (int i = 0; i < 4; i++) {
+        responses.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws IOException {
+            return get(testee, url + "connection");
+          }
+        }));
+      }
+
+      // THEN
+      Set<String> connections = Sets.newHashSet();
+      for (Future<String> response : responses) {
+        String text = response.get(5, TimeUnit.SECONDS);
+        assertTrue(text, text.startsWith("HTTP_2 200 "));
+        connections.add(text.substring("HTTP_2 200 ".length()));
+      }
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertEquals(connections.toString(), 1, connections.size());
+      assertTrue("" + millis, millis < 4 * 300);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testExecute_userAgent() throws IOException {
+    // GIVEN
+    Http2Transport testee = new Http2Transport("TestBot/1.0 (bot@example.org)");
+
+    // WHEN
+    String text = get(testee, url + "headers");
+
+    // THEN
+    assertTrue(text, text.endsWith(" TestBot/1.0 (bot@example.org) | null"));
+  }
+
+  @Test
+  public void testLogin_keepsSession() {
+    // GIVEN
+    HttpActionClient client = HttpActionClient.builder() //
+        .withUrl(url) //
+        .withTransport(new Http2Transport()) //
+        .build();
+    MediaWikiBot bot = new MediaWikiBot(client);
+
+    // WHEN
+    bot.login("Bob", "secret");
+    GetPage page = new GetPage("/headers");
+    client.performAction(page);
+
+    // THEN
+    assertTrue(page.getText(), page.getText().trim().endsWith(" | wikiSession=s1"));
+  }
+
+  @Test
+  public void testExecute_abort() throws IOException {
+    // GIVEN
+    Http2Transport testee = new Http2Transport();
+    final TransportRequest request = new TransportRequest(TransportRequest.GET,
+        URI.create(url + "slow"));
+    new Thread(() -> {
+      sleep(200);
+      request.abort();
+    }).start();
+    long start = System.nanoTime();
+
+    // WHEN
+    try {
+      testee.execute(request);
+      fail();
+    } catch (InterruptedIOException e) {
+      // THEN
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+package net.sourceforge.jwbf.core;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time and, with <code>-prof gc</code>, allocation per request of the request building path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestBuildingBenchmark {
+
+  @Param({ "Main_Page", "Category:Living people", "Übersicht über Straßen in München" })
+  public String title;
+
+  private RequestTemplate template;
+
+  @Setup
+  public void setup() {
+    template = newRequestBuilder().template();
+  }
+
+  private RequestBuilder newRequestBuilder() {
+    return new ApiRequestBuilder() //
+        .action("query") //
+        .formatXml() //
+        .param("list", "categorymembers") //
+        .param("cmlimit", 50) //
+        .param("cmnamespace", "0|14") //
+        .param("cmtitle", PercentEncoder.encode(title));
+  }
+
+  @Benchmark
+  public String encodeUrlEncoder() throws UnsupportedEncodingException {
+    return URLEncoder.encode(title, "UTF-8");
+  }
+
+  @Benchmark
+  public String encodePercentEncoder() {
+    return PercentEncoder.encode(title);
+  }
+
+  @Benchmark
+  public String buildRequest() {
+    return newRequestBuilder().build();
+  }
+
+  @Benchmark
+  public String buildContinuation() {
+    return newRequestBuilder() //
+        .param("cmcontinue", PercentEncoder.encode(title)) //
+        .build();
+  }
+
+  @Benchmark
+  public String buildContinuationFromTemplate() {
+    return template.build("cmcontinue", PercentEncoder.encode(title));
+  }
+
+}
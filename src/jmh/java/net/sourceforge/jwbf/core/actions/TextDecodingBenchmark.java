@@ -0,0 +1,79 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Decoding of a revision response of exactly one MiB; the score in operations per second is the
+ * throughput in MiB/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextDecodingBenchmark {
+
+  private static final int SIZE = 1024 * 1024;
+
+  private byte[] body;
+
+  @Setup
+  public void setup() {
+    StringBuilder text = new StringBuilder("<?xml version=\"1.0\"?><api><query><pages>"
+        + "<page pageid=\"1\" ns=\"0\" title=\"Straße\"><revisions>"
+        + "<rev revid=\"1\" xml:space=\"preserve\">\n");
+    String line = "== Übersicht ==\n* [[München]] – {{Vorlage|Wert=1}} "
+        + "some plain wiki text with a [http://example.org link].\n";
+    String end = "</rev></revisions></page></pages></query></api>\n";
+    while (text.length() * 2 < SIZE) {
+      text.append(line);
+    }
+    byte[] head = text.toString().getBytes(Charsets.UTF_8);
+    byte[] tail = end.getBytes(Charsets.UTF_8);
+    body = new byte[SIZE];
+    System.arraycopy(head, 0, body, 0, Math.min(head.length, SIZE - tail.length));
+    for (int i = head.length; i < SIZE - tail.length; i++) {
+      body[i] = ' ';
+    }
+    System.arraycopy(tail, 0, body, SIZE - tail.length, tail.length);
+  }
+
+  @Benchmark
+  public String readLines() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    Charset charSet = Charset.forName("UTF-8");
+    try (BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(
+        body), charSet))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        sb.append(line).append("\n");
+      }
+    }
+    return sb.toString();
+  }
+
+  @Benchmark
+  public String decode() throws IOException {
+    return TextDecoder.decode(new ByteArrayInputStream(body), "UTF-8");
+  }
+
+}
@@ -0,0 +1,93 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The former regular expressions of the list queries, which read titles and
+ * <code>query-continue</code> in two passes, compared with {@link ListResponseScanner}, for a
+ * <code>list=backlinks</code> response of 500 items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListParsingBenchmark {
+
+  private static final int ITEMS = 500;
+
+  private static final String TITLES_REGEX = //
+  "<bl pageid=\".*?\" ns=\".*?\" title=\"([^\"]*)\" (redirect=\"\" )?/>";
+  private static final String CONTINUE_REGEX = "<query-continue>.*?"
+      + "<backlinks *blcontinue=\"([^\"]*)\" */>" + ".*?</query-continue>";
+
+  private static final Pattern TITLES = Pattern.compile(TITLES_REGEX);
+  private static final Pattern CONTINUE = Pattern.compile(CONTINUE_REGEX, Pattern.DOTALL
+      | Pattern.MULTILINE);
+
+  private String backlinks;
+
+  @Setup
+  public void setup() {
+    StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><api><query><backlinks>");
+    for (int i = 0; i < ITEMS; i++) {
+      xml.append("<bl pageid=\"").append(i).append("\" ns=\"0\" title=\"Linking page ") //
+          .append(i).append("\" />");
+    }
+    backlinks = xml.append("</backlinks></query><query-continue>" //
+        + "<backlinks blcontinue=\"0|Linking_page_500\" /></query-continue></api>").toString();
+  }
+
+  @Benchmark
+  public List<String> regexCompiledPerCall() {
+    return regex(Pattern.compile(TITLES_REGEX), Pattern.compile(CONTINUE_REGEX, Pattern.DOTALL
+        | Pattern.MULTILINE));
+  }
+
+  @Benchmark
+  public List<String> regexPrecompiled() {
+    return regex(TITLES, CONTINUE);
+  }
+
+  private List<String> regex(Pattern titles, Pattern hasMore) {
+    List<String> result = Lists.newArrayList();
+    Matcher m = titles.matcher(backlinks);
+    while (m.find()) {
+      result.add(m.group(1));
+    }
+    Matcher c = hasMore.matcher(backlinks);
+    if (c.find()) {
+      result.add(c.group(1));
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<String> scanner() {
+    List<String> result = Lists.newArrayList();
+    ListResponseScanner scanner = new ListResponseScanner(backlinks, "bl");
+    while (scanner.nextItem()) {
+      result.add(scanner.getAttribute("title"));
+    }
+    result.add(scanner.getContinue("blcontinue"));
+    return result;
+  }
+
+}
@@ -0,0 +1,130 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+
+import org.jdom.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Building a JDOM tree compared with pulling elements from {@link ApiXmlReader}, for a list of
+ * 5000 recent changes and a revision of one MiB. Run with <code>-prof gc</code> to compare the
+ * allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XmlParsingBenchmark {
+
+  private static final int CHANGES = 5000;
+  private static final int REVISION_SIZE = 1024 * 1024;
+
+  private final Action action = new Action();
+
+  private String recentChanges;
+  private String revision;
+
+  @Setup
+  public void setup() {
+    StringBuilder changes = new StringBuilder("<?xml version=\"1.0\"?><api><query><recentchanges>");
+    for (int i = 0; i < CHANGES; i++) {
+      changes.append("<rc type=\"edit\" ns=\"0\" title=\"Page ").append(i) //
+          .append("\" rcid=\"").append(i).append("\" pageid=\"").append(i) //
+          .append("\" revid=\"").append(i).append("\" old_revid=\"").append(i - 1) //
+          .append("\" timestamp=\"2014-01-02T03:04:05Z\" />");
+    }
+    recentChanges = changes.append("</recentchanges></query></api>").toString();
+
+    StringBuilder text = new StringBuilder("<?xml version=\"1.0\"?><api><query><pages>"
+        + "<page pageid=\"1\" ns=\"0\" title=\"Test\"><revisions>"
+        + "<rev revid=\"1\" user=\"Editor\" xml:space=\"preserve\">");
+    while (text.length() < REVISION_SIZE) {
+      text.append("== Section ==\n* [[Link]] &amp; {{Template|value=1}} some plain wiki text.\n");
+    }
+    revision = text.append("</rev></revisions></page></pages></query></api>").toString();
+  }
+
+  @Benchmark
+  public List<String> recentChangesTree() {
+    List<String> titles = Lists.newArrayList();
+    collectTitles(action.getRootElement(recentChanges), titles);
+    return titles;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void collectTitles(Element element, List<String> titles) {
+    for (Element child : (List<Element>) element.getChildren()) {
+      if ("rc".equals(child.getName())) {
+        titles.add(child.getAttributeValue("title"));
+      } else {
+        collectTitles(child, titles);
+      }
+    }
+  }
+
+  @Benchmark
+  public List<String> recentChangesPull() {
+    List<String> titles = Lists.newArrayList();
+    try (ApiXmlReader reader = action.newXmlReader(recentChanges)) {
+      while (reader.nextElement()) {
+        if ("rc".equals(reader.getName())) {
+          titles.add(reader.getAttribute("title"));
+        }
+      }
+    }
+    return titles;
+  }
+
+  @Benchmark
+  public String revisionTree() {
+    return findText(action.getRootElement(revision));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String findText(Element element) {
+    for (Element child : (List<Element>) element.getChildren()) {
+      String text = "rev".equals(child.getName()) ? child.getText() : findText(child);
+      if (text != null) {
+        return text;
+      }
+    }
+    return null;
+  }
+
+  @Benchmark
+  public String revisionPull() {
+    try (ApiXmlReader reader = action.newXmlReader(revision)) {
+      while (reader.nextElement()) {
+        if ("rev".equals(reader.getName())) {
+          return reader.getText();
+        }
+      }
+    }
+    return null;
+  }
+
+  private static class Action extends MWAction {
+
+    @Override
+    public HttpAction getNextMessage() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
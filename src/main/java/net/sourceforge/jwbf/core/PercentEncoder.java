@@ -0,0 +1,85 @@
+package net.sourceforge.jwbf.core;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Encodes strings like {@link URLEncoder} (<code>application/x-www-form-urlencoded</code>), but
+ * without the detour over a byte array per character run: strings without reserved characters
+ * are returned as they are and UTF-8 is encoded directly into one buffer.
+ */
+public final class PercentEncoder {
+
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private PercentEncoder() {
+    // do nothing
+  }
+
+  /**
+   * @return the UTF-8 encoded value
+   */
+  public static String encode(String s) {
+    return encode(s, Charsets.UTF_8);
+  }
+
+  public static String encode(String s, Charset charset) {
+    int length = s.length();
+    int i = 0;
+    while (i < length && isUnreserved(s.charAt(i))) {
+      i++;
+    }
+    if (i == length) {
+      return s;
+    }
+    if (!Charsets.UTF_8.equals(charset)) {
+      try {
+        return URLEncoder.encode(s, charset.name());
+      } catch (UnsupportedEncodingException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+    StringBuilder out = new StringBuilder(length + 16);
+    out.append(s, 0, i);
+    for (; i < length; i++) {
+      char c = s.charAt(i);
+      if (isUnreserved(c)) {
+        out.append(c);
+      } else if (c == ' ') {
+        out.append('+');
+      } else if (c < 0x80) {
+        appendByte(out, c);
+      } else if (c < 0x800) {
+        appendByte(out, 0xc0 | (c >> 6));
+        appendByte(out, 0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, s.charAt(++i));
+        appendByte(out, 0xf0 | (codePoint >> 18));
+        appendByte(out, 0x80 | ((codePoint >> 12) & 0x3f));
+        appendByte(out, 0x80 | ((codePoint >> 6) & 0x3f));
+        appendByte(out, 0x80 | (codePoint & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        appendByte(out, '?');
+      } else {
+        appendByte(out, 0xe0 | (c >> 12));
+        appendByte(out, 0x80 | ((c >> 6) & 0x3f));
+        appendByte(out, 0x80 | (c & 0x3f));
+      }
+    }
+    return out.toString();
+  }
+
+  private static boolean isUnreserved(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') //
+        || c == '-' || c == '_' || c == '.' || c == '*';
+  }
+
+  private static void appendByte(StringBuilder out, int b) {
+    out.append('%').append(HEX[(b >> 4) & 0x0f]).append(HEX[b & 0x0f]);
+  }
+
+}
@@ -1,31 +1,56 @@
 package net.sourceforge.jwbf.core;
 
-import java.util.Map;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map.Entry;
 
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.Post;
 
-import com.google.common.base.Function;
-import com.google.common.base.Joiner;
-import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Ordering;
 
 public class RequestBuilder {
 
-  private static final Function<Entry<String, String>, String> TO_KEY_VALUE_PAIR = new Function<Map.Entry<String, String>, String>() {
+  /**
+   * Orders params like their "key=value" strings without building them.
+   */
+  static final Comparator<Entry<String, String>> KEY_VALUE_ORDER = new Comparator<Entry<String, String>>() {
 
     @Override
-    public String apply(Entry<String, String> input) {
-      Entry<String, String> nonNullIn = Preconditions.checkNotNull(input);
-      return nonNullIn.getKey() + "=" + nonNullIn.getValue();
+    public int compare(Entry<String, String> a, Entry<String, String> b) {
+      int lengthA = lengthOf(a);
+      int lengthB = lengthOf(b);
+      int length = Math.min(lengthA, lengthB);
+      for (int i = 0; i < length; i++) {
+        char charA = charAt(a, i);
+        char charB = charAt(b, i);
+        if (charA != charB) {
+          return charA - charB;
+        }
+      }
+      return lengthA - lengthB;
+    }
+
+    private int lengthOf(Entry<String, String> entry) {
+      return entry.getKey().length() + 1 + entry.getValue().length();
+    }
+
+    private char charAt(Entry<String, String> entry, int index) {
+      String key = entry.getKey();
+      if (index < key.length()) {
+        return key.charAt(index);
+      } else if (index == key.length()) {
+        return '=';
+      } else {
+        return entry.getValue().charAt(index - key.length() - 1);
+      }
     }
   };
+
   private final Multimap<String, String> params = ArrayListMultimap.create();
   private final String path;
 
@@ -34,15 +59,13 @@ public class RequestBuilder {
   }
 
   public RequestBuilder param(String key, int value) {
-    param(key, value + "");
+    param(key, Integer.toString(value));
     return this;
   }
 
   public RequestBuilder param(String key, String value) {
     if (!Strings.isNullOrEmpty(key)) {
-      if (Strings.isNullOrEmpty(value)) {
-        value = "None";
-      }
+      value = valueOf(value);
       if (!params.containsEntry(key, value)) {
         params.put(key, value);
       }
@@ -50,6 +73,13 @@ public class RequestBuilder {
     return this;
   }
 
+  static String valueOf(String value) {
+    if (Strings.isNullOrEmpty(value)) {
+      return "None";
+    }
+    return value;
+  }
+
   public Post buildPost() {
     return new Post(build());
   }
@@ -59,17 +89,48 @@ public class RequestBuilder {
   }
 
   public String build() {
+    if (params.isEmpty()) {
+      return path;
+    }
+    return render(path, sortedParams(), null);
+  }
 
-    String paramString = "";
-    if (!params.isEmpty()) {
-      ImmutableList<String> values = FluentIterable.from(params.entries()) //
-          .transform(TO_KEY_VALUE_PAIR) //
-          .toSortedList(Ordering.natural()) //
-      ;
+  /**
+   * @return the current params as a template for requests, which differ only in one param, like
+   *         continuations of a query
+   */
+  public RequestTemplate template() {
+    return new RequestTemplate(path, sortedParams());
+  }
 
-      paramString = "?" + Joiner.on("&").join(values);
+  private List<Entry<String, String>> sortedParams() {
+    List<Entry<String, String>> entries = Lists.newArrayList(params.entries());
+    Collections.sort(entries, KEY_VALUE_ORDER);
+    return entries;
+  }
+
+  /**
+   * @param offsets
+   *          to store the start of each param in the result or null
+   */
+  static String render(String path, List<Entry<String, String>> entries, int[] offsets) {
+    int capacity = path.length();
+    for (Entry<String, String> entry : entries) {
+      capacity += entry.getKey().length() + entry.getValue().length() + 2;
+    }
+    StringBuilder out = new StringBuilder(capacity);
+    out.append(path);
+    char separator = '?';
+    for (int i = 0; i < entries.size(); i++) {
+      Entry<String, String> entry = entries.get(i);
+      out.append(separator);
+      if (offsets != null) {
+        offsets[i] = out.length();
+      }
+      out.append(entry.getKey()).append('=').append(entry.getValue());
+      separator = '&';
     }
-    return path + paramString;
+    return out.toString();
   }
 
   public static RequestBuilder of(String path) {
@@ -0,0 +1,88 @@
+package net.sourceforge.jwbf.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import net.sourceforge.jwbf.core.actions.Get;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * Immutable, pre-rendered params of a {@link RequestBuilder}. Requests which add one param, like
+ * the continuations of a query, are built by inserting it into the rendered request instead of
+ * sorting and joining all params again.
+ */
+public class RequestTemplate {
+
+  private final String path;
+  private final ImmutableList<Entry<String, String>> params;
+  private final String request;
+  private final int[] offsets;
+
+  RequestTemplate(String path, List<Entry<String, String>> sortedParams) {
+    this.path = path;
+    this.params = ImmutableList.copyOf(sortedParams);
+    this.offsets = new int[params.size()];
+    this.request = RequestBuilder.render(path, params, offsets);
+  }
+
+  /**
+   * @return the request with the params of this template
+   */
+  public String build() {
+    return request;
+  }
+
+  /**
+   * @return the request with the params of this template and the given one; like
+   *         {@link RequestBuilder#param(String, String)}, an empty key is ignored and an empty
+   *         value is sent as "None"
+   */
+  public String build(String key, String value) {
+    if (Strings.isNullOrEmpty(key)) {
+      return request;
+    }
+    Entry<String, String> param = Maps.immutableEntry(key, RequestBuilder.valueOf(value));
+    int index = Collections.binarySearch(params, param, RequestBuilder.KEY_VALUE_ORDER);
+    if (index >= 0) {
+      return request;
+    }
+    int insertion = -index - 1;
+    StringBuilder out = new StringBuilder(request.length() + key.length()
+        + param.getValue().length() + 2);
+    if (params.isEmpty()) {
+      out.append(path).append('?');
+      appendParam(out, param);
+    } else if (insertion == params.size()) {
+      out.append(request).append('&');
+      appendParam(out, param);
+    } else {
+      int offset = offsets[insertion];
+      out.append(request, 0, offset);
+      appendParam(out, param);
+      out.append('&').append(request, offset, request.length());
+    }
+    return out.toString();
+  }
+
+  private static void appendParam(StringBuilder out, Entry<String, String> param) {
+    out.append(param.getKey()).append('=').append(param.getValue());
+  }
+
+  public Get buildGet() {
+    return new Get(build());
+  }
+
+  public Get buildGet(String key, String value) {
+    return new Get(build(key, value));
+  }
+
+  @Override
+  public String toString() {
+    return request;
+  }
+
+}
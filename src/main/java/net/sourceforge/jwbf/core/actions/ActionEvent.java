@@ -0,0 +1,145 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+
+import com.google.common.collect.Maps;
+
+/**
+ * One message of an action as seen by an {@link ActionListener}. The same instance is passed to
+ * all events of the message; durations are measured from {@link ActionListener#beforeSend} and are
+ * negative until the corresponding event happened.
+ */
+public class ActionEvent {
+
+  private final ReturningTextProcessor action;
+  private final HttpAction httpAction;
+  private final TransportRequest request;
+  private final boolean continuing;
+  final ActionMetrics.Recorder recorder;
+  /** bytes of this message counted by the {@link ResponseBudget} */
+  final AtomicLong heldBytes = new AtomicLong();
+
+  private final AtomicLong responseBytes = new AtomicLong();
+  private final long startNanos = System.nanoTime();
+  private volatile long headersNanos = -1;
+  private volatile long bodyNanos = -1;
+  private volatile long parseNanos = -1;
+  private volatile int statusCode = 0;
+  private Map<String, Object> attributes;
+
+  ActionEvent(@CheckForNull ReturningTextProcessor action, HttpAction httpAction,
+      TransportRequest request, boolean continuing, ActionMetrics.Recorder recorder) {
+    this.action = action;
+    this.httpAction = httpAction;
+    this.request = request;
+    this.continuing = continuing;
+    this.recorder = recorder;
+  }
+
+  /**
+   * @return the action, which processes the response, or null for a plain {@link Get}
+   */
+  @CheckForNull
+  public ReturningTextProcessor getAction() {
+    return action;
+  }
+
+  public HttpAction getHttpAction() {
+    return httpAction;
+  }
+
+  public String getMethod() {
+    return request.getMethod();
+  }
+
+  public URI getUri() {
+    return request.getUri();
+  }
+
+  /**
+   * @return true, if this is not the first message of the action
+   */
+  public boolean isContinuing() {
+    return continuing;
+  }
+
+  /**
+   * @return status of the final response or 0, if the response was not received by this message
+   */
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /**
+   * @return bytes of the response body read so far, after decompression
+   */
+  public long getResponseBytes() {
+    return responseBytes.get();
+  }
+
+  public long getElapsedNanos() {
+    return System.nanoTime() - startNanos;
+  }
+
+  public long getHeadersNanos() {
+    return headersNanos;
+  }
+
+  public long getBodyNanos() {
+    return bodyNanos;
+  }
+
+  /**
+   * @return time from sending the request until the action processed the response
+   */
+  public long getParseNanos() {
+    return parseNanos;
+  }
+
+  /**
+   * Keeps state of a listener between the events of this message, like a tracing span.
+   */
+  public synchronized void setAttribute(String name, Object value) {
+    if (attributes == null) {
+      attributes = Maps.newHashMap();
+    }
+    attributes.put(name, value);
+  }
+
+  @CheckForNull
+  public synchronized Object getAttribute(String name) {
+    if (attributes == null) {
+      return null;
+    }
+    return attributes.get(name);
+  }
+
+  AtomicLong responseBytesCounter() {
+    return responseBytes;
+  }
+
+  void onHeaders(int code) {
+    statusCode = code;
+    headersNanos = getElapsedNanos();
+  }
+
+  void onBody() {
+    bodyNanos = getElapsedNanos();
+  }
+
+  void onParsed() {
+    parseNanos = getElapsedNanos();
+  }
+
+  @Override
+  public String toString() {
+    return request + " " + statusCode;
+  }
+
+}
@@ -0,0 +1,69 @@
+package net.sourceforge.jwbf.core.actions;
+
+/**
+ * Is notified about each message sent by an {@link HttpActionClient}, e.g. to trace requests or
+ * log slow ones. All methods of one message are called by the thread that performs the action; an
+ * exception thrown by a listener is logged and does not affect the action.
+ * 
+ * @see HttpActionClient.Builder#withListener(ActionListener)
+ */
+public interface ActionListener {
+
+  /**
+   * Before the request is sent the first time.
+   */
+  void beforeSend(ActionEvent event);
+
+  /**
+   * After status and headers of the final response were received, i.e. after retries. Not called
+   * for messages answered by the response cache or by a coalesced request.
+   */
+  void afterHeaders(ActionEvent event);
+
+  /**
+   * After the response body was read.
+   */
+  void afterBody(ActionEvent event);
+
+  /**
+   * After the response was processed by the action.
+   */
+  void afterParse(ActionEvent event);
+
+  /**
+   * Instead of the remaining methods, if the message failed or timed out.
+   */
+  void onError(ActionEvent event, RuntimeException e);
+
+  /**
+   * Implements all methods without doing anything.
+   */
+  class Adapter implements ActionListener {
+
+    @Override
+    public void beforeSend(ActionEvent event) {
+      // do nothing
+    }
+
+    @Override
+    public void afterHeaders(ActionEvent event) {
+      // do nothing
+    }
+
+    @Override
+    public void afterBody(ActionEvent event) {
+      // do nothing
+    }
+
+    @Override
+    public void afterParse(ActionEvent event) {
+      // do nothing
+    }
+
+    @Override
+    public void onError(ActionEvent event, RuntimeException e) {
+      // do nothing
+    }
+  }
+
+}
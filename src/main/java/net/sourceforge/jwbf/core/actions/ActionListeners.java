@@ -0,0 +1,78 @@
+package net.sourceforge.jwbf.core.actions;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Notifies all listeners; an exception of one listener is logged and does not stop the others.
+ */
+@Slf4j
+class ActionListeners implements ActionListener {
+
+  private final ImmutableList<ActionListener> listeners;
+
+  ActionListeners(Iterable<ActionListener> listeners) {
+    this.listeners = ImmutableList.copyOf(listeners);
+  }
+
+  @Override
+  public void beforeSend(ActionEvent event) {
+    for (ActionListener listener : listeners) {
+      try {
+        listener.beforeSend(event);
+      } catch (RuntimeException e) {
+        failed(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void afterHeaders(ActionEvent event) {
+    for (ActionListener listener : listeners) {
+      try {
+        listener.afterHeaders(event);
+      } catch (RuntimeException e) {
+        failed(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void afterBody(ActionEvent event) {
+    for (ActionListener listener : listeners) {
+      try {
+        listener.afterBody(event);
+      } catch (RuntimeException e) {
+        failed(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void afterParse(ActionEvent event) {
+    for (ActionListener listener : listeners) {
+      try {
+        listener.afterParse(event);
+      } catch (RuntimeException e) {
+        failed(listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void onError(ActionEvent event, RuntimeException error) {
+    for (ActionListener listener : listeners) {
+      try {
+        listener.onError(event, error);
+      } catch (RuntimeException e) {
+        failed(listener, e);
+      }
+    }
+  }
+
+  private static void failed(ActionListener listener, RuntimeException e) {
+    log.warn("listener " + listener.getClass().getName() + " failed", e);
+  }
+
+}
@@ -0,0 +1,330 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Counts requests, status codes, latencies, response bytes, parse time, retries and failures of
+ * each kind of {@link ContentProcessable} performed by an {@link HttpActionClient}. Latencies are
+ * measured per message from sending its request until its response is parsed.
+ * 
+ * @see HttpActionClient#getActionMetrics()
+ */
+public class ActionMetrics implements ActionMetricsMXBean {
+
+  private final ConcurrentMap<String, Recorder> recorders = Maps.newConcurrentMap();
+
+  private ObjectName objectName;
+
+  Recorder recorderOf(Class<?> actionClass) {
+    String name = actionClass.getName();
+    Recorder recorder = recorders.get(name);
+    if (recorder == null) {
+      Recorder created = new Recorder();
+      recorder = recorders.putIfAbsent(name, created);
+      if (recorder == null) {
+        recorder = created;
+      }
+    }
+    return recorder;
+  }
+
+  /**
+   * @return current values by class name of the action, sorted by name
+   */
+  public ImmutableMap<String, Snapshot> snapshot() {
+    ImmutableSortedMap.Builder<String, Snapshot> builder = ImmutableSortedMap.naturalOrder();
+    for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+      builder.put(entry.getKey(), entry.getValue().snapshot());
+    }
+    // JMX cannot convert sorted maps with a comparator
+    return ImmutableMap.copyOf(builder.build());
+  }
+
+  @CheckForNull
+  public Snapshot snapshotOf(Class<? extends ContentProcessable> actionClass) {
+    Recorder recorder = recorders.get(actionClass.getName());
+    if (recorder == null) {
+      return null;
+    }
+    return recorder.snapshot();
+  }
+
+  @Override
+  public Map<String, Snapshot> getActions() {
+    return snapshot();
+  }
+
+  /**
+   * Sets all counters to zero. They are reset in place, so actions, which are running meanwhile,
+   * keep counting.
+   */
+  @Override
+  public void reset() {
+    for (Recorder recorder : recorders.values()) {
+      recorder.reset();
+    }
+  }
+
+  /**
+   * Registers these metrics at the platform MBean server as
+   * <code>net.sourceforge.jwbf:type=ActionMetrics,name=&lt;name&gt;</code>; they are unregistered
+   * by {@link HttpActionClient#close()}.
+   */
+  public synchronized ObjectName registerMBean(String name) {
+    unregisterMBean();
+    try {
+      ObjectName newName = new ObjectName("net.sourceforge.jwbf:type=ActionMetrics,name="
+          + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+      objectName = newName;
+      return newName;
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public synchronized void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      objectName = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ActionMetrics " + snapshot();
+  }
+
+  /**
+   * Mutable counters of one kind of action.
+   */
+  static class Recorder {
+
+    private final AtomicLong actions = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final ConcurrentMap<Integer, AtomicLong> statusCodes = Maps.newConcurrentMap();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    void onAction() {
+      actions.incrementAndGet();
+    }
+
+    void onResponse(int statusCode) {
+      requests.incrementAndGet();
+      AtomicLong counter = statusCodes.get(statusCode);
+      if (counter == null) {
+        AtomicLong created = new AtomicLong();
+        counter = statusCodes.putIfAbsent(statusCode, created);
+        if (counter == null) {
+          counter = created;
+        }
+      }
+      counter.incrementAndGet();
+    }
+
+    void onMessage(long nanos, long bytes) {
+      messages.incrementAndGet();
+      responseBytes.addAndGet(bytes);
+      latencyNanos.addAndGet(nanos);
+      latency.record(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    void onParsed(long nanos) {
+      parseNanos.addAndGet(nanos);
+    }
+
+    void onRetry() {
+      retries.incrementAndGet();
+    }
+
+    void onError() {
+      errors.incrementAndGet();
+    }
+
+    void onTimeout() {
+      timeouts.incrementAndGet();
+    }
+
+    void reset() {
+      actions.set(0);
+      messages.set(0);
+      requests.set(0);
+      for (AtomicLong counter : statusCodes.values()) {
+        counter.set(0);
+      }
+      latency.reset();
+      latencyNanos.set(0);
+      responseBytes.set(0);
+      parseNanos.set(0);
+      retries.set(0);
+      errors.set(0);
+      timeouts.set(0);
+    }
+
+    Snapshot snapshot() {
+      ImmutableSortedMap.Builder<Integer, Long> codes = ImmutableSortedMap.naturalOrder();
+      for (Map.Entry<Integer, AtomicLong> entry : statusCodes.entrySet()) {
+        codes.put(entry.getKey(), entry.getValue().get());
+      }
+      return new Snapshot(this, ImmutableMap.copyOf(codes.build()));
+    }
+  }
+
+  /**
+   * Immutable values of one kind of action; latencies and times are in milliseconds.
+   */
+  public static class Snapshot {
+
+    private final long actions;
+    private final long messages;
+    private final long requests;
+    private final ImmutableMap<Integer, Long> statusCodes;
+    private final long latencyP50;
+    private final long latencyP95;
+    private final long latencyP99;
+    private final long latencyMax;
+    private final long totalMillis;
+    private final long responseBytes;
+    private final long parseMillis;
+    private final long retries;
+    private final long errors;
+    private final long timeouts;
+
+    Snapshot(Recorder recorder, ImmutableMap<Integer, Long> statusCodes) {
+      this.actions = recorder.actions.get();
+      this.messages = recorder.messages.get();
+      this.requests = recorder.requests.get();
+      this.statusCodes = statusCodes;
+      this.latencyP50 = recorder.latency.percentile(0.50);
+      this.latencyP95 = recorder.latency.percentile(0.95);
+      this.latencyP99 = recorder.latency.percentile(0.99);
+      this.latencyMax = recorder.latency.getMax();
+      this.totalMillis = TimeUnit.NANOSECONDS.toMillis(recorder.latencyNanos.get());
+      this.responseBytes = recorder.responseBytes.get();
+      this.parseMillis = TimeUnit.NANOSECONDS.toMillis(recorder.parseNanos.get());
+      this.retries = recorder.retries.get();
+      this.errors = recorder.errors.get();
+      this.timeouts = recorder.timeouts.get();
+    }
+
+    /**
+     * @return number of performed actions
+     */
+    public long getActions() {
+      return actions;
+    }
+
+    /**
+     * @return number of completed messages, including those answered by a cache
+     */
+    public long getMessages() {
+      return messages;
+    }
+
+    /**
+     * @return number of responses received, including retried ones
+     */
+    public long getRequests() {
+      return requests;
+    }
+
+    /**
+     * @return number of responses by status code
+     */
+    public Map<Integer, Long> getStatusCodes() {
+      return statusCodes;
+    }
+
+    public long getLatencyP50() {
+      return latencyP50;
+    }
+
+    public long getLatencyP95() {
+      return latencyP95;
+    }
+
+    public long getLatencyP99() {
+      return latencyP99;
+    }
+
+    public long getLatencyMax() {
+      return latencyMax;
+    }
+
+    /**
+     * @return sum of the latencies of all messages
+     */
+    public long getTotalMillis() {
+      return totalMillis;
+    }
+
+    /**
+     * @return bytes of response bodies handed to the action, after decompression
+     */
+    public long getResponseBytes() {
+      return responseBytes;
+    }
+
+    /**
+     * @return time spent in the parser of the action; for streaming parsers this includes reading
+     *         the body
+     */
+    public long getParseMillis() {
+      return parseMillis;
+    }
+
+    public long getRetries() {
+      return retries;
+    }
+
+    /**
+     * @return number of failed messages, except timeouts
+     */
+    public long getErrors() {
+      return errors;
+    }
+
+    public long getTimeouts() {
+      return timeouts;
+    }
+
+    @Override
+    public String toString() {
+      return "[actions=" + actions + ", messages=" + messages + ", requests=" + requests
+          + ", statusCodes=" + statusCodes + ", p50=" + latencyP50 + "ms, p95=" + latencyP95
+          + "ms, p99=" + latencyP99 + "ms, total=" + totalMillis + "ms, responseBytes="
+          + responseBytes + ", parse=" + parseMillis + "ms, retries=" + retries + ", errors="
+          + errors + ", timeouts=" + timeouts + "]";
+    }
+  }
+
+}
@@ -0,0 +1,17 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ActionMetrics}.
+ */
+public interface ActionMetricsMXBean {
+
+  /**
+   * @return metrics by class name of the action
+   */
+  Map<String, ActionMetrics.Snapshot> getActions();
+
+  void reset();
+
+}
@@ -0,0 +1,230 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Sends requests with an Apache {@link HttpClient}.
+ */
+public class ApacheHttpTransport implements HttpTransport {
+
+  private final HttpClient client;
+
+  public ApacheHttpTransport(HttpClient client) {
+    this.client = Preconditions.checkNotNull(client);
+  }
+
+  @Override
+  public TransportResponse execute(TransportRequest request) throws IOException {
+    final HttpRequestBase httpRequest = newHttpRequest(request);
+    for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+      httpRequest.setHeader(header.getKey(), header.getValue());
+    }
+    request.onAbort(new Runnable() {
+
+      @Override
+      public void run() {
+        httpRequest.abort();
+      }
+    });
+    return new ApacheTransportResponse(client.execute(httpRequest));
+  }
+
+  private static HttpRequestBase newHttpRequest(TransportRequest request) {
+    String method = request.getMethod();
+    if (TransportRequest.GET.equals(method)) {
+      return new HttpGet(request.getUri());
+    } else if (TransportRequest.POST.equals(method)) {
+      HttpPost post = new HttpPost(request.getUri());
+      RequestBody body = request.getBody();
+      if (body instanceof EntityBody) {
+        post.setEntity(((EntityBody) body).entity);
+      } else if (body != null) {
+        post.setEntity(new BodyEntity(body));
+      }
+      return post;
+    }
+    throw new IllegalArgumentException("unsupported method " + method);
+  }
+
+  HttpClient getClient() {
+    return client;
+  }
+
+  /**
+   * Closes the client, if it is {@link Closeable}.
+   */
+  @Override
+  public void close() throws IOException {
+    if (client instanceof Closeable) {
+      ((Closeable) client).close();
+    }
+  }
+
+  /**
+   * @return a body, which is sent as the given entity
+   */
+  static RequestBody bodyOf(HttpEntity entity) {
+    return new EntityBody(entity);
+  }
+
+  private static class EntityBody implements RequestBody {
+
+    private final HttpEntity entity;
+
+    EntityBody(HttpEntity entity) {
+      this.entity = entity;
+    }
+
+    @Override
+    public String getContentType() {
+      Header contentType = entity.getContentType();
+      if (contentType == null) {
+        return null;
+      }
+      return contentType.getValue();
+    }
+
+    @Override
+    public long getContentLength() {
+      return entity.getContentLength();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return entity.isRepeatable();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      entity.writeTo(out);
+    }
+  }
+
+  /**
+   * Streams the body with {@link #writeTo(OutputStream)}; {@link #getContent()} buffers it.
+   */
+  static class BodyEntity extends AbstractHttpEntity {
+
+    private final RequestBody body;
+
+    BodyEntity(RequestBody body) {
+      this.body = body;
+      setContentType(body.getContentType());
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return body.isRepeatable();
+    }
+
+    @Override
+    public long getContentLength() {
+      return body.getContentLength();
+    }
+
+    /**
+     * @return the body written to memory; a body, which is not repeatable, is consumed by it
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+      long length = body.getContentLength();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0
+          && length <= Integer.MAX_VALUE ? (int) length : 1024);
+      body.writeTo(out);
+      return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      body.writeTo(out);
+    }
+
+    @Override
+    public boolean isStreaming() {
+      return false;
+    }
+  }
+
+  private static class ApacheTransportResponse implements TransportResponse {
+
+    private final HttpResponse response;
+
+    ApacheTransportResponse(HttpResponse response) {
+      this.response = response;
+    }
+
+    @Override
+    public int getStatusCode() {
+      return response.getStatusLine().getStatusCode();
+    }
+
+    @Override
+    public String getReasonPhrase() {
+      return response.getStatusLine().getReasonPhrase();
+    }
+
+    @Override
+    @CheckForNull
+    public String getFirstHeader(String name) {
+      Header header = response.getFirstHeader(name);
+      if (header == null) {
+        return null;
+      }
+      return header.getValue();
+    }
+
+    @Override
+    public List<String> getHeaders(String name) {
+      ImmutableList.Builder<String> values = ImmutableList.builder();
+      for (Header header : response.getHeaders(name)) {
+        values.add(header.getValue());
+      }
+      return values.build();
+    }
+
+    @Override
+    @CheckForNull
+    public InputStream getBody() throws IOException {
+      HttpEntity entity = response.getEntity();
+      if (entity == null) {
+        return null;
+      }
+      return entity.getContent();
+    }
+
+    @Override
+    public void close() throws IOException {
+      HttpEntity entity = response.getEntity();
+      if (entity != null) {
+        entity.getContent().close();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return response.getStatusLine().toString();
+    }
+  }
+
+}
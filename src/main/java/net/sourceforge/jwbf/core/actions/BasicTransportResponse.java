@@ -0,0 +1,90 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A response held in memory, e.g. for an in-process {@link HttpTransport} in tests.
+ */
+public class BasicTransportResponse implements TransportResponse {
+
+  private final int statusCode;
+  private final String reasonPhrase;
+  private final List<Map.Entry<String, String>> headers = Lists.newArrayList();
+  private final byte[] body;
+
+  public BasicTransportResponse(int statusCode, String reasonPhrase, @CheckForNull byte[] body) {
+    this.statusCode = statusCode;
+    this.reasonPhrase = reasonPhrase;
+    this.body = body;
+  }
+
+  public BasicTransportResponse(int statusCode) {
+    this(statusCode, "", null);
+  }
+
+  public BasicTransportResponse addHeader(String name, String value) {
+    headers.add(Maps.immutableEntry(name, value));
+    return this;
+  }
+
+  @Override
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  @Override
+  public String getReasonPhrase() {
+    return reasonPhrase;
+  }
+
+  @Override
+  @CheckForNull
+  public String getFirstHeader(String name) {
+    for (Map.Entry<String, String> header : headers) {
+      if (header.getKey().equalsIgnoreCase(name)) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public List<String> getHeaders(String name) {
+    ImmutableList.Builder<String> values = ImmutableList.builder();
+    for (Map.Entry<String, String> header : headers) {
+      if (header.getKey().equalsIgnoreCase(name)) {
+        values.add(header.getValue());
+      }
+    }
+    return values.build();
+  }
+
+  @Override
+  @CheckForNull
+  public InputStream getBody() {
+    if (body == null) {
+      return null;
+    }
+    return new ByteArrayInputStream(body);
+  }
+
+  @Override
+  public void close() {
+    // nothing to release
+  }
+
+  @Override
+  public String toString() {
+    return statusCode + " " + reasonPhrase;
+  }
+
+}
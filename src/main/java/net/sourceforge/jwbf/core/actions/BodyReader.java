@@ -0,0 +1,20 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads a response body while it is received, like a decoder of images, which needs not hold the
+ * encoded bytes as a whole.
+ * 
+ * @see HttpActionClient#download(Get, BodyReader)
+ */
+public interface BodyReader<T> {
+
+  /**
+   * @param body
+   *          the unchanged response body; it is closed by the caller, the rest of it is skipped
+   */
+  T read(ReadableByteChannel body) throws IOException;
+
+}
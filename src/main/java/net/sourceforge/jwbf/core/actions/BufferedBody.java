@@ -0,0 +1,123 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A response body read completely, either in memory or, above a threshold, in a temporary file.
+ * A spilled body is shared by reference counting; its file is deleted by the last
+ * {@link #release()}. Bodies in memory are left to the garbage collector.
+ */
+@Slf4j
+class BufferedBody {
+
+  private final byte[] bytes;
+  private final File file;
+  private final long length;
+  private final AtomicInteger references = new AtomicInteger(1);
+
+  private BufferedBody(byte[] bytes, File file, long length) {
+    this.bytes = bytes;
+    this.file = file;
+    this.length = length;
+  }
+
+  static BufferedBody of(byte[] bytes) {
+    return new BufferedBody(bytes, null, bytes.length);
+  }
+
+  /**
+   * Reads the stream to its end, but does not close it.
+   * 
+   * @param threshold
+   *          bytes kept in memory; larger bodies are written to a file in the given directory
+   * @param directory
+   *          or null for the default temporary directory
+   */
+  static BufferedBody read(InputStream in, long threshold, @CheckForNull File directory)
+      throws IOException {
+    ByteArrayOutputStream head = new ByteArrayOutputStream();
+    long copied = ByteStreams.copy(ByteStreams.limit(in, threshold + 1), head);
+    if (copied <= threshold) {
+      return of(head.toByteArray());
+    }
+    File file = File.createTempFile("jwbf-body", ".tmp", directory);
+    try (OutputStream out = new FileOutputStream(file)) {
+      head.writeTo(out);
+      long length = copied + ByteStreams.copy(in, out);
+      log.debug("spilled {} bytes to {}", length, file);
+      return new BufferedBody(null, file, length);
+    } catch (IOException | RuntimeException e) {
+      delete(file);
+      throw e;
+    }
+  }
+
+  boolean isSpilled() {
+    return file != null;
+  }
+
+  long length() {
+    return length;
+  }
+
+  /**
+   * @return the bytes of a body in memory or null, if it was spilled
+   */
+  @CheckForNull
+  byte[] bytes() {
+    return bytes;
+  }
+
+  InputStream open() throws IOException {
+    if (file == null) {
+      return new ByteArrayInputStream(bytes);
+    }
+    return new BufferedInputStream(new FileInputStream(file), TextDecoder.BUFFER_SIZE);
+  }
+
+  /**
+   * @return false, if the body was already released by all its users
+   */
+  boolean retain() {
+    if (file == null) {
+      return true;
+    }
+    while (true) {
+      int current = references.get();
+      if (current <= 0) {
+        return false;
+      }
+      if (references.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  void release() {
+    if (file != null && references.decrementAndGet() == 0) {
+      delete(file);
+    }
+  }
+
+  private static void delete(File file) {
+    if (!file.delete()) {
+      log.warn("could not delete {}", file);
+    }
+  }
+
+}
@@ -0,0 +1,50 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds every byte read to a shared counter.
+ */
+class ByteCountingInputStream extends FilterInputStream {
+
+  private final AtomicLong counter;
+
+  ByteCountingInputStream(InputStream in, AtomicLong counter) {
+    super(in);
+    this.counter = counter;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b != -1) {
+      counter.incrementAndGet();
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int count = super.read(b, off, len);
+    if (count > 0) {
+      counter.addAndGet(count);
+    }
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+    counter.addAndGet(skipped);
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+}
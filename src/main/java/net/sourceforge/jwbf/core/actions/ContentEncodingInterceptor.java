@@ -0,0 +1,142 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Replaces the <code>ResponseContentEncoding</code> of HttpClient: gzip and deflate bodies are
+ * decompressed while they are read and the bytes before and after decompression are counted.
+ */
+class ContentEncodingInterceptor implements HttpResponseInterceptor {
+
+  private static final String GZIP = "gzip";
+  private static final String X_GZIP = "x-gzip";
+  private static final String DEFLATE = "deflate";
+  private static final String IDENTITY = "identity";
+
+  private final TransferStats stats;
+
+  ContentEncodingInterceptor(TransferStats stats) {
+    this.stats = stats;
+  }
+
+  @Override
+  public void process(HttpResponse response, HttpContext context) throws HttpException,
+      IOException {
+    HttpEntity entity = response.getEntity();
+    if (entity == null || entity.getContentLength() == 0) {
+      return;
+    }
+    String encoding = encodingOf(entity);
+    if (encoding.equals(GZIP) || encoding.equals(X_GZIP) || encoding.equals(DEFLATE)) {
+      response.setEntity(new CountingEntity(entity, encoding));
+      removeEncodingHeaders(response);
+      stats.addResponse(true);
+    } else if (encoding.equals(IDENTITY)) {
+      response.setEntity(new CountingEntity(entity, IDENTITY));
+      stats.addResponse(false);
+    } else {
+      throw new HttpException("Unsupported Content-Coding: " + encoding);
+    }
+  }
+
+  private static String encodingOf(HttpEntity entity) {
+    Header header = entity.getContentEncoding();
+    if (header == null || header.getValue().trim().isEmpty()) {
+      return IDENTITY;
+    }
+    return header.getValue().trim().toLowerCase(Locale.US);
+  }
+
+  private static void removeEncodingHeaders(HttpResponse response) {
+    response.removeHeaders("Content-Length");
+    response.removeHeaders("Content-Encoding");
+    response.removeHeaders("Content-MD5");
+  }
+
+  private class CountingEntity extends HttpEntityWrapper {
+
+    private final String encoding;
+    private InputStream content;
+
+    CountingEntity(HttpEntity wrapped, String encoding) {
+      super(wrapped);
+      this.encoding = encoding;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      if (content == null) {
+        InputStream wire = new ByteCountingInputStream(wrappedEntity.getContent(),
+            stats.wireBytesCounter());
+        if (encoding.equals(IDENTITY)) {
+          content = new ByteCountingInputStream(wire, stats.decodedBytesCounter());
+        } else {
+          content = new ByteCountingInputStream(decode(wire), stats.decodedBytesCounter());
+        }
+      }
+      return content;
+    }
+
+    private InputStream decode(InputStream wire) throws IOException {
+      if (encoding.equals(DEFLATE)) {
+        return new DeflateInputStream(wire);
+      } else {
+        return new GZIPInputStream(wire);
+      }
+    }
+
+    @Override
+    public Header getContentEncoding() {
+      if (encoding.equals(IDENTITY)) {
+        return super.getContentEncoding();
+      }
+      return null;
+    }
+
+    @Override
+    public long getContentLength() {
+      if (encoding.equals(IDENTITY)) {
+        return super.getContentLength();
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean isStreaming() {
+      return true;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+      return false;
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+      InputStream in = getContent();
+      try {
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+          outstream.write(buffer, 0, count);
+        }
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time after which an action must not send further requests.
+ */
+final class Deadline {
+
+  static final Deadline NONE = new Deadline(0, false);
+
+  private final long expiresAtNanos;
+  private final boolean finite;
+
+  private Deadline(long expiresAtNanos, boolean finite) {
+    this.expiresAtNanos = expiresAtNanos;
+    this.finite = finite;
+  }
+
+  /**
+   * @return a deadline in the given duration or {@link #NONE}, if it is not positive
+   */
+  static Deadline after(long duration, TimeUnit unit) {
+    if (duration <= 0) {
+      return NONE;
+    }
+    return new Deadline(System.nanoTime() + unit.toNanos(duration), true);
+  }
+
+  /**
+   * @return the one of both deadlines, which expires first
+   */
+  Deadline earliest(Deadline other) {
+    if (!other.finite) {
+      return this;
+    }
+    if (!finite || other.expiresAtNanos - expiresAtNanos < 0) {
+      return other;
+    }
+    return this;
+  }
+
+  boolean isFinite() {
+    return finite;
+  }
+
+  /**
+   * @return milliseconds until this deadline, at least zero; {@link Long#MAX_VALUE} if not finite
+   */
+  long remainingMillis() {
+    if (!finite) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+  }
+
+  boolean isExpired() {
+    return finite && expiresAtNanos - System.nanoTime() <= 0;
+  }
+
+  @Override
+  public String toString() {
+    if (finite) {
+      return "Deadline [in " + remainingMillis() + "ms]";
+    }
+    return "Deadline [none]";
+  }
+
+}
@@ -0,0 +1,29 @@
+package net.sourceforge.jwbf.core.actions;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Honors the <code>Keep-Alive</code> header of a response; if a server sends no timeout, the
+ * connection is kept for the configured fallback duration.
+ */
+class FallbackKeepAliveStrategy extends DefaultConnectionKeepAliveStrategy {
+
+  private final long fallbackMillis;
+
+  FallbackKeepAliveStrategy(long fallbackMillis) {
+    this.fallbackMillis = fallbackMillis;
+  }
+
+  @Override
+  public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+    long duration = super.getKeepAliveDuration(response, context);
+    if (duration > 0) {
+      return duration;
+    } else {
+      return fallbackMillis;
+    }
+  }
+
+}
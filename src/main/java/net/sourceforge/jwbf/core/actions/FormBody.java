@@ -0,0 +1,136 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * An <code>application/x-www-form-urlencoded</code> body, which is encoded while it is written;
+ * neither the encoded parameters nor the whole body are copied to memory before. The length is
+ * determined by an encoding pass without output, so the body is not sent chunked.
+ */
+class FormBody implements RequestBody {
+
+  private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+  private static final int BUFFER_SIZE = 1024;
+  private static final String CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+  private final ImmutableMap<String, String> params;
+  private final Charset charset;
+  private final String contentType;
+  private final long contentLength;
+
+  FormBody(Map<String, String> params, Charset charset) {
+    this.params = ImmutableMap.copyOf(params);
+    this.charset = charset;
+    this.contentType = CONTENT_TYPE + "; charset=" + charset.name();
+    try {
+      this.contentLength = write(null);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public String getContentType() {
+    return contentType;
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    write(out);
+  }
+
+  /**
+   * @param out
+   *          to write to or null to count only
+   * @return number of bytes
+   */
+  private long write(@CheckForNull OutputStream out) throws IOException {
+    CharsetEncoder encoder = charset.newEncoder() //
+        .onMalformedInput(CodingErrorAction.REPLACE) //
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long length = 0;
+    boolean first = true;
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      if (!first) {
+        length += write(out, '&');
+      }
+      first = false;
+      length += encode(param.getKey(), encoder, buffer, out);
+      length += write(out, '=');
+      length += encode(param.getValue(), encoder, buffer, out);
+    }
+    return length;
+  }
+
+  private static long encode(String text, CharsetEncoder encoder, ByteBuffer buffer,
+      @CheckForNull OutputStream out) throws IOException {
+    encoder.reset();
+    CharBuffer chars = CharBuffer.wrap(text);
+    long length = 0;
+    boolean flushed = false;
+    while (!flushed) {
+      CoderResult result = encoder.encode(chars, buffer, true);
+      if (result.isUnderflow()) {
+        result = encoder.flush(buffer);
+        flushed = result.isUnderflow();
+      }
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        length += escape(buffer.get(), out);
+      }
+      buffer.clear();
+    }
+    return length;
+  }
+
+  private static int escape(byte b, @CheckForNull OutputStream out) throws IOException {
+    if (isUnreserved(b)) {
+      return write(out, b);
+    } else if (b == ' ') {
+      return write(out, '+');
+    } else {
+      if (out != null) {
+        out.write('%');
+        out.write(HEX[(b >> 4) & 0x0f]);
+        out.write(HEX[b & 0x0f]);
+      }
+      return 3;
+    }
+  }
+
+  private static boolean isUnreserved(byte b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') //
+        || b == '-' || b == '_' || b == '.' || b == '*';
+  }
+
+  private static int write(@CheckForNull OutputStream out, int b) throws IOException {
+    if (out != null) {
+      out.write(b);
+    }
+    return 1;
+  }
+
+}
@@ -19,35 +19,76 @@
 
 package net.sourceforge.jwbf.core.actions;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.JWBF;
+import net.sourceforge.jwbf.core.actions.util.ActionTimeoutException;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicates;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * The main interaction class.
@@ -55,17 +96,58 @@ import com.google.common.base.Strings;
  * @author Thomas Stock
  */
 @Slf4j
-public class HttpActionClient {
+public class HttpActionClient implements Closeable {
 
   private static final String USER_AGENT = "JWBF " + JWBF.getVersion(HttpActionClient.class);
 
-  private final HttpClient client;
+  private final HttpTransport transport;
+
+  private final boolean ownTransport;
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  private final IdleConnectionEvictor idleConnectionEvictor;
+
+  private final ListeningExecutorService executor;
+
+  private final TransferStats transferStats;
+
+  private final RequestGovernor governor;
+
+  private final RetryPolicy retryPolicy;
+
+  private final ResponseCache responseCache;
+
+  private final ResponseBudget responseBudget;
+
+  private final boolean coalescing;
+
+  private final RecordingHttpClient recorder;
+
+  private final long requestTimeoutMillis;
+
+  private final long actionTimeoutMillis;
+
+  private final AtomicLong timeouts = new AtomicLong();
+
+  private final ActionMetrics metrics = new ActionMetrics();
+
+  private final ActionListener listeners;
+
+  private final ThreadLocal<ActionContext> currentAction = new ThreadLocal<>();
+
+  private volatile ScheduledExecutorService timeoutScheduler;
+
+  private final ConcurrentMap<Get, SettableFuture<BufferedBody>> inFlight = Maps
+      .newConcurrentMap();
+
+  private final boolean ownExecutor;
 
   private final String path;
 
   private final HttpHost host;
 
-  private int prevHash;
+  private final String hostUrl;
 
   private final URL url;
 
@@ -82,14 +164,72 @@ public class HttpActionClient {
     this.url = url;
     path = pathOf(url);
     host = newHost(url);
-    this.client = clientBuilder.build();
+    hostUrl = host.toURI();
+    this.transport = new ApacheHttpTransport(clientBuilder.build());
+    this.ownTransport = true;
+    this.connectionManager = null;
+    this.idleConnectionEvictor = null;
+    // HttpClientBuilder allows as many connections to one host as our default pool
+    this.executor = newActionExecutor(Builder.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    this.ownExecutor = true;
+    this.transferStats = new TransferStats();
+    this.governor = null;
+    this.retryPolicy = null;
+    this.responseCache = null;
+    this.responseBudget = null;
+    this.coalescing = false;
+    this.recorder = null;
+    this.requestTimeoutMillis = -1;
+    this.actionTimeoutMillis = -1;
+    this.listeners = new LoggingActionListener();
   }
 
   public HttpActionClient(Builder builder) {
     this.url = Preconditions.checkNotNull(builder.url, "no url is defined");
     host = newHost(builder.url);
+    hostUrl = host.toURI();
     path = pathOf(builder.url);
-    this.client = builder.client;
+    this.transport = builder.transport;
+    this.ownTransport = builder.ownTransport;
+    this.connectionManager = builder.connectionManager;
+    this.transferStats = builder.transferStats;
+    this.governor = builder.governor;
+    this.retryPolicy = builder.retryPolicy;
+    this.responseCache = builder.responseCache;
+    this.responseBudget = builder.responseBudget;
+    this.coalescing = builder.coalescing;
+    this.recorder = builder.recorder;
+    this.requestTimeoutMillis = builder.requestTimeoutMillis;
+    this.actionTimeoutMillis = builder.actionTimeoutMillis;
+    this.listeners = new ActionListeners(Iterables.concat(
+        ImmutableList.of(new LoggingActionListener()), builder.listeners));
+    if (connectionManager != null && builder.maxIdleMillis > 0) {
+      idleConnectionEvictor = new IdleConnectionEvictor(connectionManager, builder.maxIdleMillis);
+      idleConnectionEvictor.start();
+    } else {
+      idleConnectionEvictor = null;
+    }
+    if (builder.executor == null) {
+      this.executor = newActionExecutor(builder.actionThreads());
+      this.ownExecutor = true;
+    } else {
+      this.executor = MoreExecutors.listeningDecorator(builder.executor);
+      this.ownExecutor = false;
+    }
+  }
+
+  /**
+   * Threads are only started on demand and terminate when idle; waiting actions are queued instead
+   * of blocking a thread each.
+   */
+  private static ListeningExecutorService newActionExecutor(int threads) {
+    ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder() //
+            .setDaemon(true) //
+            .setNameFormat("jwbf-action-%d") //
+            .build());
+    threadPool.allowCoreThreadTimeOut(true);
+    return MoreExecutors.listeningDecorator(threadPool);
   }
 
   private HttpHost newHost(final URL url) {
@@ -106,32 +246,100 @@ public class HttpActionClient {
   }
 
   /**
+   * Executes all messages of the given action. This method is thread safe; independent actions
+   * can be performed in parallel on the same client, limited by the size of the connection pool.
+   * The action itself is not shared, so its state must only be touched by one thread.
+   * 
    * @return message, never null
    */
   @Nonnull
-  public synchronized String performAction(ContentProcessable contentProcessable) {
-    String out = "";
-    while (contentProcessable.hasMoreMessages()) {
-      HttpAction httpAction = contentProcessable.getNextMessage();
-      ReturningTextProcessor answerParser = contentProcessable;
-      out = processAction(httpAction, answerParser);
+  public String performAction(ContentProcessable contentProcessable) {
+    return performAction(contentProcessable, Deadline.after(actionTimeoutMillis,
+        TimeUnit.MILLISECONDS));
+  }
 
+  /**
+   * Same as {@link #performAction(ContentProcessable)}, but all messages of the action must be
+   * completed within the given timeout; a running request is cancelled when it expires.
+   * 
+   * @throws ActionTimeoutException
+   *           if the timeout expired
+   */
+  @Nonnull
+  public String performAction(ContentProcessable contentProcessable, long timeout, TimeUnit unit) {
+    Preconditions.checkArgument(timeout > 0, "timeout must be positive");
+    return performAction(contentProcessable, Deadline.after(timeout, unit));
+  }
+
+  private String performAction(ContentProcessable contentProcessable, Deadline deadline) {
+    ActionContext outer = currentAction.get();
+    ActionContext context = new ActionContext(deadline);
+    context.recorder = metrics.recorderOf(contentProcessable.getClass());
+    context.recorder.onAction();
+    currentAction.set(context);
+    try {
+      String out = "";
+      while (contentProcessable.hasMoreMessages()) {
+        if (deadline.isExpired()) {
+          timeouts.incrementAndGet();
+          context.recorder.onTimeout();
+          throw new ActionTimeoutException("deadline expired before all messages of "
+              + contentProcessable.getClass().getSimpleName() + " were sent");
+        }
+        HttpAction httpAction = contentProcessable.getNextMessage();
+        ReturningTextProcessor answerParser = contentProcessable;
+        out = processAction(httpAction, answerParser);
+        context.continuing = true;
+      }
+      return out;
+    } finally {
+      if (outer == null) {
+        currentAction.remove();
+      } else {
+        currentAction.set(outer);
+      }
     }
-    return out;
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #performAction(ContentProcessable)}. Actions are queued and
+   * executed by a bounded number of threads, which defaults to the connections per host of the
+   * pool.
+   * <p>
+   * The I/O is not asynchronous: each running action occupies one thread of the executor until all
+   * of its messages are answered, including waits for the pool, the governor and retries. Further
+   * actions wait in the queue of the executor without a thread; they do not block the caller.
+   * </p>
+   * 
+   * @return the message of the last response
+   */
+  @Nonnull
+  public ListenableFuture<String> performActionAsync(final ContentProcessable contentProcessable) {
+    return executor.submit(new Callable<String>() {
+
+      @Override
+      public String call() {
+        return performAction(contentProcessable);
+      }
+    });
   }
 
   protected String processAction(HttpAction httpAction, ReturningTextProcessor answerParser) {
-    final String requestString = makeRequestString(httpAction);
+    ActionContext context = currentAction(answerParser);
+    String requestString = makeRequestString(httpAction);
+    if (governor != null) {
+      requestString = governor.appendMaxlag(requestString);
+    }
     log.debug(requestString);
-    URI uri = JWBF.toUri(host.toURI() + requestString);
+    URI uri = JWBF.toUri(hostUrl + requestString);
     if (httpAction instanceof Get) {
-      HttpRequestBase httpRequest = new HttpGet(uri);
+      TransportRequest httpRequest = new TransportRequest(TransportRequest.GET, uri);
 
-      return get(httpRequest, answerParser, httpAction);
+      return get(httpRequest, answerParser, httpAction, context);
     } else if (httpAction instanceof Post) {
-      HttpRequestBase httpRequest = new HttpPost(uri);
+      TransportRequest httpRequest = new TransportRequest(TransportRequest.POST, uri);
 
-      return post(httpRequest, answerParser, httpAction);
+      return post(httpRequest, answerParser, httpAction, context);
     }
     throw new IllegalArgumentException("httpAction should be GET or POST");
   }
@@ -146,150 +354,624 @@ public class HttpActionClient {
     return requestString;
   }
 
-  private String post(HttpRequestBase requestBase //
-      , ReturningTextProcessor contentProcessable, HttpAction ha) {
+  private String post(TransportRequest request //
+      , ReturningTextProcessor contentProcessable, HttpAction ha, ActionContext context) {
     Post p = (Post) ha;
-    MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
-    for (String key : p.getParams().keySet()) {
-      Object content = p.getParams().get(key);
-      if (content != null) {
+    ImmutableMap<String, Object> params = p.getParams();
+    Charset charset = TextDecoder.charsetOf(p.getCharset());
+    if (Iterables.any(params.values(), Predicates.instanceOf(File.class))) {
+      MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+      for (Map.Entry<String, Object> param : params.entrySet()) {
+        Object content = param.getValue();
         if (content instanceof String) {
-          Charset charset = Charset.forName(p.getCharset());
           String text = (String) content;
-          entityBuilder.addTextBody(key, text, ContentType.create("xml/text", charset));
+          entityBuilder.addTextBody(param.getKey(), text, ContentType.create("xml/text", charset));
         } else if (content instanceof File) {
           File file = (File) content;
-          entityBuilder.addBinaryBody(key, file);
+          entityBuilder.addBinaryBody(param.getKey(), file);
         }
       }
+      request.setBody(ApacheHttpTransport.bodyOf(entityBuilder.build()));
+    } else {
+      Map<String, String> textParams = Maps.newLinkedHashMap();
+      for (Map.Entry<String, Object> param : params.entrySet()) {
+        if (param.getValue() instanceof String) {
+          textParams.put(param.getKey(), (String) param.getValue());
+        }
+      }
+      request.setBody(new FormBody(textParams, charset));
     }
-    ((HttpPost) requestBase).setEntity(entityBuilder.build());
 
-    return executeAndProcess(requestBase, contentProcessable, ha);
+    return executeAndProcess(request, contentProcessable, ha, context);
 
   }
 
-  protected void consume(HttpResponse res) {
+  protected void consume(TransportResponse res) {
     try {
-      res.getEntity().getContent().close();
+      res.close();
     } catch (IOException e) {
       throw new IllegalStateException(e);
     }
   }
 
   @Nonnull
-  private String get(HttpRequestBase requestBase, ReturningTextProcessor cp, HttpAction ha) {
-    return executeAndProcess(requestBase, cp, ha);
+  private String get(TransportRequest request, ReturningTextProcessor cp, HttpAction ha,
+      ActionContext context) {
+    return executeAndProcess(request, cp, ha, context);
   }
 
-  private String executeAndProcess(HttpRequestBase requestBase, ReturningTextProcessor cp,
-      HttpAction ha) {
+  private String executeAndProcess(final TransportRequest request,
+      final ReturningTextProcessor cp, final HttpAction ha, ActionContext context) {
+    return exchange(request, cp, ha, context, new Exchange<String>() {
 
-    log.debug("message {} is: " //
-        + "\n\t hostPath : {} " //
-        + "\n\t queryPath: {}", debug(requestBase, ha, cp));
-    HttpResponse res = execute(requestBase);
+      @Override
+      public String run(ActionEvent event, Deadline deadline) {
+        return executeAndProcess(request, cp, ha, event, deadline);
+      }
+    });
+  }
 
-    final String out = writeToString(ha, res);
+  /**
+   * Sends one message and handles its response.
+   */
+  private interface Exchange<T> {
+
+    T run(ActionEvent event, Deadline deadline);
+  }
+
+  /**
+   * Runs the exchange with timeouts, metrics and listeners.
+   */
+  private <T> T exchange(TransportRequest request, ReturningTextProcessor cp, HttpAction ha,
+      ActionContext context, Exchange<T> exchange) {
+    Deadline deadline = context.deadline //
+        .earliest(Deadline.after(requestTimeoutMillis, TimeUnit.MILLISECONDS));
+    ActionMetrics.Recorder recorder = context.recorder;
+    ActionEvent event = new ActionEvent(cp, ha, request, context.continuing, recorder);
+    listeners.beforeSend(event);
+    ScheduledFuture<?> abort = scheduleAbort(request, deadline);
     try {
-      if (cp != null) {
-        return cp.processReturningText(out, ha);
+      T out = exchange.run(event, deadline);
+      recorder.onMessage(event.getElapsedNanos(), event.getResponseBytes());
+      listeners.afterParse(event);
+      return out;
+    } catch (ActionTimeoutException e) {
+      recorder.onTimeout();
+      listeners.onError(event, e);
+      throw e;
+    } catch (RuntimeException e) {
+      if (request.isAborted()) {
+        recorder.onTimeout();
+        ActionTimeoutException timeout = timeout(request, e);
+        listeners.onError(event, timeout);
+        throw timeout;
+      }
+      recorder.onError();
+      listeners.onError(event, e);
+      throw e;
+    } finally {
+      if (abort != null) {
+        abort.cancel(false);
+      }
+      if (responseBudget != null) {
+        responseBudget.release(event.heldBytes);
+      }
+    }
+  }
+
+  private String executeAndProcess(TransportRequest request, ReturningTextProcessor cp,
+      HttpAction ha, ActionEvent event, Deadline deadline) {
+    if (ha instanceof Get && (coalescing || isCached((Get) ha))) {
+      Get get = (Get) ha;
+      final BufferedBody body;
+      if (coalescing) {
+        body = fetchCoalesced(request, get, event, deadline);
       } else {
-        return out;
+        body = fetch(request, get, event, deadline);
+      }
+      try {
+        event.responseBytesCounter().addAndGet(body.length());
+        afterBody(event);
+        return process(body.open(), cp, ha, event);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        body.release();
       }
+    }
+    TransportResponse res = execute(request, ha, event, deadline);
+    try {
+      InputStream body = new ByteCountingInputStream(bodyOf(res), event.responseBytesCounter());
+      return process(track(body, event), cp, ha, event);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
     } finally {
       consume(res);
     }
   }
 
-  @Nonnull
-  private String writeToString(HttpAction ha, HttpResponse res) {
-    StringBuilder sb = new StringBuilder();
-    Charset charSet = Charset.forName(ha.getCharset());
-    try ( //
-    InputStreamReader inputStreamReader = new InputStreamReader(res.getEntity().getContent(),
-        charSet); //
-        BufferedReader br = new BufferedReader(inputStreamReader); //
-    ) {
-
-      String line;
-      while ((line = br.readLine()) != null) {
-        sb.append(line).append("\n");
+  private boolean isCached(Get get) {
+    return responseCache != null && responseCache.accepts(get);
+  }
+
+  /**
+   * Sends the request only if no equal {@link Get} is in flight; otherwise waits for and shares
+   * the body of the running one. A spilled body, which was already released by all others, is
+   * fetched again.
+   */
+  private BufferedBody fetchCoalesced(TransportRequest request, Get get, ActionEvent event,
+      Deadline deadline) {
+    SettableFuture<BufferedBody> own = SettableFuture.create();
+    SettableFuture<BufferedBody> running = inFlight.putIfAbsent(get, own);
+    if (running != null) {
+      log.debug("join in flight request {}", get);
+      BufferedBody body = awaitBody(running, request, deadline);
+      if (body.retain()) {
+        return body;
       }
-    } catch (IOException e) {
+      return fetch(request, get, event, deadline);
+    }
+    try {
+      BufferedBody body = fetch(request, get, event, deadline);
+      own.set(body);
+      return body;
+    } catch (RuntimeException e) {
+      own.setException(e);
+      throw e;
+    } finally {
+      inFlight.remove(get, own);
+    }
+  }
+
+  private BufferedBody awaitBody(Future<BufferedBody> running, TransportRequest request,
+      Deadline deadline) {
+    try {
+      if (deadline.isFinite()) {
+        return running.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+      }
+      return running.get();
+    } catch (TimeoutException e) {
+      throw timeout(request, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
       throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
     }
-    return sb.toString();
   }
 
-  private HttpResponse execute(HttpRequestBase requestBase) {
-    HttpResponse res = null;
+  private BufferedBody fetch(TransportRequest request, Get get, ActionEvent event,
+      Deadline deadline) {
+    ResponseCache.Entry entry = null;
+    if (isCached(get)) {
+      entry = responseCache.lookup(get);
+      if (responseCache.isFresh(entry)) {
+        return BufferedBody.of(entry.getBody());
+      }
+      responseCache.prepareRevalidation(request, entry);
+    }
+    TransportResponse res = execute(request, get, event, deadline);
     try {
-      res = client.execute(requestBase);
+      if (isCached(get)) {
+        entry = responseCache.revalidated(get, entry, res);
+        if (entry != null) {
+          return BufferedBody.of(entry.getBody());
+        }
+      }
+      BufferedBody body = buffer(bodyOf(res), event);
+      if (isCached(get) && !body.isSpilled()) {
+        responseCache.store(get, res, body.bytes());
+      }
+      return body;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      consume(res);
+    }
+  }
+
+  /**
+   * Reads a body into memory or, above the spill threshold of the budget, into a temporary file,
+   * which does not count against the budget.
+   */
+  private BufferedBody buffer(InputStream in, ActionEvent event) throws IOException {
+    if (responseBudget == null) {
+      return BufferedBody.of(ByteStreams.toByteArray(in));
+    }
+    BufferedBody body = responseBudget.buffer(responseBudget.track(in, event.heldBytes));
+    if (body.isSpilled()) {
+      responseBudget.release(event.heldBytes);
+    }
+    return body;
+  }
+
+  private InputStream track(InputStream in, ActionEvent event) {
+    if (responseBudget == null) {
+      return in;
+    }
+    return responseBudget.track(in, event.heldBytes);
+  }
+
+  private static InputStream bodyOf(TransportResponse res) throws IOException {
+    InputStream body = res.getBody();
+    if (body == null) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    return body;
+  }
+
+  /**
+   * The body of a streamed response is read while it is parsed, so its events follow each other.
+   * Its bytes count against the budget until the message is processed, like those of a body read
+   * as text, because the parser may hold all of it. The caller tracks the content; a buffered body
+   * was already counted while it was read, or lives in a file or the cache.
+   */
+  private String process(InputStream content, ReturningTextProcessor cp, HttpAction ha,
+      ActionEvent event) {
+    long start = System.nanoTime();
+    if (cp instanceof ReturningStreamProcessor) {
+      try (InputStream in = content) {
+        return ((ReturningStreamProcessor) cp).processReturningStream(in, ha);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        event.recorder.onParsed(System.nanoTime() - start);
+        afterBody(event);
+        event.onParsed();
+      }
+    }
+    final String out = writeToString(ha, content);
+    afterBody(event);
+    if (cp != null) {
+      start = System.nanoTime();
+      try {
+        return cp.processReturningText(out, ha);
+      } finally {
+        event.recorder.onParsed(System.nanoTime() - start);
+        event.onParsed();
+      }
+    } else {
+      event.onParsed();
+      return out;
+    }
+  }
+
+  private void afterBody(ActionEvent event) {
+    if (event.getBodyNanos() < 0) {
+      event.onBody();
+      listeners.afterBody(event);
+    }
+  }
+
+  @Nonnull
+  private String writeToString(HttpAction ha, InputStream content) {
+    try (InputStream in = content) {
+      return TextDecoder.decode(in, ha.getCharset());
     } catch (IOException e) {
       throw new IllegalStateException(e);
     }
-    StatusLine statusLine = res.getStatusLine();
-    int code = statusLine.getStatusCode();
-    if (code >= HttpStatus.SC_BAD_REQUEST) {
+  }
+
+  private TransportResponse execute(TransportRequest request, HttpAction ha, ActionEvent event,
+      Deadline deadline) {
+    ActionMetrics.Recorder recorder = event.recorder;
+    TransportResponse res = null;
+    String hostKey = hostKeyOf(request);
+    int throttledAttempt = 1;
+    int failedAttempt = 1;
+    while (true) {
+      if (responseBudget != null && !responseBudget.awaitCapacity(deadline.remainingMillis())) {
+        throw timeout(request, null);
+      }
+      if (governor != null && !governor.acquire(hostKey, deadline.remainingMillis())) {
+        throw timeout(request, null);
+      }
+      try {
+        res = transport.execute(request);
+      } catch (IOException e) {
+        if (request.isAborted()) {
+          throw timeout(request, e);
+        }
+        if (retryPolicy != null && retryPolicy.shouldRetry(ha, failedAttempt)) {
+          log.warn("retry {} after: {}", request.getUri(), e.toString());
+          retryAfter(request, retryPolicy.backoffMillis(failedAttempt), deadline);
+          recorder.onRetry();
+          failedAttempt++;
+          continue;
+        }
+        if (e instanceof InterruptedIOException) {
+          throw timeout(request, e);
+        }
+        throw new IllegalStateException(e);
+      }
+      recorder.onResponse(res.getStatusCode());
+      if (governor != null) {
+        long waitMillis = governor.onResponse(hostKey, res);
+        if (waitMillis >= 0 && throttledAttempt < governor.getMaxAttempts()) {
+          consume(res);
+          retryAfter(request, waitMillis, deadline);
+          recorder.onRetry();
+          throttledAttempt++;
+          continue;
+        }
+      }
+      if (retryPolicy != null) {
+        int code = res.getStatusCode();
+        if (RetryPolicy.isRetryableStatus(code) && retryPolicy.shouldRetry(ha, failedAttempt)) {
+          log.warn("retry {} after: {} {}", request.getUri(), code, res.getReasonPhrase());
+          consume(res);
+          retryAfter(request, retryPolicy.backoffMillis(failedAttempt), deadline);
+          recorder.onRetry();
+          failedAttempt++;
+          continue;
+        }
+        retryPolicy.onSuccess();
+      }
+      break;
+    }
+    int code = res.getStatusCode();
+    event.onHeaders(code);
+    listeners.afterHeaders(event);
+    if (code >= HttpStatus.SC_BAD_REQUEST && !isUnsatisfiableRange(request, code)) {
       consume(res);
-      throw new IllegalStateException("invalid status: " + statusLine + "; for "
-          + requestBase.getURI());
+      throw new IllegalStateException("invalid status: " + code + " " + res.getReasonPhrase()
+          + "; for " + request.getUri());
     }
     return res;
   }
 
+  /**
+   * @return true, if a download is resumed from its end
+   */
+  private static boolean isUnsatisfiableRange(TransportRequest request, int code) {
+    return code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE
+        && request.getHeaders().containsKey(HttpHeaders.RANGE);
+  }
+
+  /**
+   * @param deadline
+   *          of the request including its retries
+   */
+  private void retryAfter(TransportRequest request, long millis, Deadline deadline) {
+    if (millis >= deadline.remainingMillis() || !request.reset()) {
+      throw timeout(request, null);
+    }
+    sleep(millis);
+  }
+
+  /**
+   * Aborts the request, if it is not completed with all its retries until the deadline.
+   * 
+   * @param deadline
+   *          the earliest of the deadline of the action and the request timeout
+   * @return to cancel the abort or null, if there is no timeout
+   */
+  @CheckForNull
+  private ScheduledFuture<?> scheduleAbort(final TransportRequest request, Deadline deadline) {
+    if (!deadline.isFinite()) {
+      return null;
+    }
+    long timeoutMillis = deadline.remainingMillis();
+    return timeoutScheduler().schedule(new Runnable() {
+
+      @Override
+      public void run() {
+        log.debug("abort {}", request.getUri());
+        request.abort();
+      }
+    }, timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private ScheduledExecutorService timeoutScheduler() {
+    ScheduledExecutorService scheduler = timeoutScheduler;
+    if (scheduler == null) {
+      synchronized (this) {
+        scheduler = timeoutScheduler;
+        if (scheduler == null) {
+          scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder() //
+              .setDaemon(true) //
+              .setNameFormat("jwbf-request-timeout-%d") //
+              .build());
+          timeoutScheduler = scheduler;
+        }
+      }
+    }
+    return scheduler;
+  }
+
+  private ActionTimeoutException timeout(TransportRequest request, @CheckForNull Throwable t) {
+    timeouts.incrementAndGet();
+    return new ActionTimeoutException("timeout of " + request.getUri(), t);
+  }
+
+  /**
+   * @param action
+   *          is recorded, if no action is performed by the current thread
+   */
+  private ActionContext currentAction(@CheckForNull Object action) {
+    ActionContext context = currentAction.get();
+    if (context == null) {
+      context = new ActionContext(Deadline.after(actionTimeoutMillis, TimeUnit.MILLISECONDS));
+      context.recorder = metrics.recorderOf(action == null ? HttpAction.class : action.getClass());
+    }
+    return context;
+  }
+
+  /**
+   * State of the action performed by the current thread.
+   */
+  private static class ActionContext {
+
+    private final Deadline deadline;
+    private ActionMetrics.Recorder recorder;
+    private boolean continuing = false;
+
+    ActionContext(Deadline deadline) {
+      this.deadline = deadline;
+    }
+  }
+
+  private String hostKeyOf(TransportRequest request) {
+    HttpHost target = URIUtils.extractHost(request.getUri());
+    if (target == null) {
+      return host.toHostString();
+    }
+    return target.toHostString();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the body decoded as text in the charset of the action and encoded in the platform
+   *         charset; see {@link #download(Get, WritableByteChannel)} for binary content
+   */
   @Nonnull
   public byte[] get(Get get) {
-    HttpGet authgets = new HttpGet(get.getRequest());
-    return get(authgets, null, get).getBytes();
+    TransportRequest authgets = new TransportRequest(TransportRequest.GET, //
+        URI.create(get.getRequest()));
+    return get(authgets, null, get, currentAction(get)).getBytes();
   }
 
-  private Object[] debug(HttpUriRequest request, HttpAction ha, ReturningTextProcessor cp) {
-    if (cp != null) {
-      final String continueing = debugContinueingMsg(cp);
-      final String path = debugRequestPathOf(request);
-      final String type = debugTypeOf(ha, cp, continueing);
-      return new String[] { type, path, ha.getRequest() };
-    }
-    return new String[0];
+  /**
+   * Writes the response body unchanged to the target; it is streamed and never held in memory as a
+   * whole.
+   * 
+   * @param get
+   *          relative to the url of this client or absolute, like the url of an image
+   * @return number of bytes written
+   */
+  public long download(Get get, final WritableByteChannel target) {
+    TransportRequest request = newDownloadRequest(get);
+    return download(request, get, new Download<Long>() {
+
+      @Override
+      public Long write(TransportResponse res, ReadableByteChannel body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TextDecoder.BUFFER_SIZE);
+        long written = 0;
+        while (body.read(buffer) >= 0) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            written += target.write(buffer);
+          }
+          buffer.clear();
+        }
+        return written;
+      }
+    }).longValue();
   }
 
-  private String debugRequestPathOf(HttpUriRequest request) {
-    String requestString = request.getURI().toString();
-    int lastSlash = requestString.lastIndexOf("/");
-    requestString = host.toURI() + requestString.substring(0, lastSlash);
-    return requestString;
+  /**
+   * Hands the unchanged response body to the reader while it is received.
+   * 
+   * @param get
+   *          relative to the url of this client or absolute, like the url of an image
+   * @return the result of the reader
+   */
+  public <T> T download(Get get, final BodyReader<T> reader) {
+    return download(newDownloadRequest(get), get, new Download<T>() {
+
+      @Override
+      public T write(TransportResponse res, ReadableByteChannel body) throws IOException {
+        return reader.read(body);
+      }
+    });
   }
 
-  private String debugContinueingMsg(ReturningTextProcessor cp) {
-    final String continueing;
-    // FIXME internal state mutating on debug WTF
-    if (prevHash == cp.hashCode()) {
-      continueing = " [continuing req]";
-    } else {
-      continueing = "";
+  /**
+   * Same as {@link #download(Get, WritableByteChannel)}, but appends to the file, if it exists and
+   * the server supports ranges; otherwise the file is overwritten. A download can be resumed with
+   * the same file after a failure.
+   * 
+   * @return number of bytes written by this call
+   */
+  public long download(Get get, File file) {
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      final long offset = channel.size();
+      TransportRequest request = newDownloadRequest(get);
+      if (offset > 0) {
+        // a range of a compressed body would not match the bytes on disk
+        request.setHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+        request.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-");
+      }
+      return download(request, get, new Download<Long>() {
+
+        @Override
+        public Long write(TransportResponse res, ReadableByteChannel body) throws IOException {
+          int code = res.getStatusCode();
+          if (code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+            return 0L;
+          }
+          long position = offset;
+          if (code != HttpStatus.SC_PARTIAL_CONTENT) {
+            channel.truncate(0);
+            position = 0;
+          }
+          long written = 0;
+          long count;
+          while ((count = channel.transferFrom(body, position + written, Long.MAX_VALUE)) > 0) {
+            written += count;
+          }
+          return written;
+        }
+      }).longValue();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
     }
-    prevHash = cp.hashCode();
-    return continueing;
   }
 
-  private String debugTypeOf(HttpAction ha, ReturningTextProcessor cp, final String continueing) {
-    final String suffix = cp.getClass().getSimpleName() + ")" + continueing;
-    if (ha instanceof Post) {
-      return "(POST " + suffix;
-    } else if (ha instanceof Get) {
-      return "(GET " + suffix;
-    } else {
-      throw new IllegalStateException();
+  private TransportRequest newDownloadRequest(Get get) {
+    URI uri = URI.create(get.getRequest());
+    if (!uri.isAbsolute()) {
+      uri = JWBF.toUri(hostUrl + makeRequestString(get));
     }
+    return new TransportRequest(TransportRequest.GET, uri);
+  }
+
+  /**
+   * Writes a response body.
+   */
+  private interface Download<T> {
+
+    T write(TransportResponse res, ReadableByteChannel body) throws IOException;
+  }
+
+  private <T> T download(final TransportRequest request, final Get get,
+      final Download<T> download) {
+    return exchange(request, null, get, currentAction(get), new Exchange<T>() {
+
+      @Override
+      public T run(ActionEvent event, Deadline deadline) {
+        TransportResponse res = execute(request, get, event, deadline);
+        try {
+          InputStream body = new ByteCountingInputStream(bodyOf(res), //
+              event.responseBytesCounter());
+          T out = download.write(res, Channels.newChannel(body));
+          afterBody(event);
+          event.onParsed();
+          return out;
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        } finally {
+          consume(res);
+        }
+      }
+    });
   }
 
   /**
    * @return like http://localhost
    */
   String getHostUrl() {
-    return host.toURI();
+    return hostUrl;
   }
 
   /**
@@ -299,24 +981,360 @@ public class HttpActionClient {
     return url.toExternalForm();
   }
 
+  /**
+   * @return the current number of leased, pending and available connections of the pool; absent if
+   *         this client was built with an external {@link HttpClient} or {@link HttpTransport}
+   */
+  public Optional<PoolStats> getPoolStats() {
+    if (connectionManager == null) {
+      return Optional.absent();
+    }
+    return Optional.of(connectionManager.getTotalStats());
+  }
+
+  /**
+   * Drops all responses of the {@link ResponseCache}, if one is configured; e.g. after the session
+   * changed.
+   */
+  public void invalidateResponseCache() {
+    if (responseCache != null) {
+      responseCache.invalidateAll();
+    }
+  }
+
+  /**
+   * @return counters of transferred and decompressed response bytes; only updated if this client
+   *         was not built with an external {@link HttpClient}
+   */
+  public TransferStats getTransferStats() {
+    return transferStats;
+  }
+
+  /**
+   * @return number of requests and actions, which were cancelled by a timeout
+   * @see #getActionMetrics()
+   */
+  public long getTimeoutCount() {
+    return timeouts.get();
+  }
+
+  /**
+   * @return requests, status codes, latencies, bytes, parse time and retries of each kind of action
+   *         performed by this client
+   */
+  public ActionMetrics getActionMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Stops the idle connection eviction, closes all pooled connections and a recorded archive and
+   * unregisters the MBean of the {@link #getActionMetrics() metrics}.
+   * Queued asynchronous actions are not executed anymore; an executor, a transport or a client
+   * given to the {@link Builder} is not closed.
+   */
+  @Override
+  public void close() {
+    try {
+      if (recorder != null) {
+        recorder.close();
+      }
+      if (ownTransport) {
+        transport.close();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    if (ownExecutor) {
+      executor.shutdownNow();
+    }
+    if (idleConnectionEvictor != null) {
+      idleConnectionEvictor.shutdown();
+    }
+    if (timeoutScheduler != null) {
+      timeoutScheduler.shutdownNow();
+    }
+    if (connectionManager != null) {
+      connectionManager.shutdown();
+    }
+    metrics.unregisterMBean();
+  }
+
   public static class Builder {
 
+    static final int DEFAULT_MAX_CONNECTIONS = 20;
+    static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 2;
+
     private HttpClient client;
+    private HttpTransport transport;
+    private boolean ownTransport = false;
     private URL url;
     private String userAgent;
 
+    private PoolingHttpClientConnectionManager connectionManager;
+    private ExecutorService executor;
+    private Boolean compression;
+    private RequestGovernor governor;
+    private RetryPolicy retryPolicy;
+    private ResponseCache responseCache;
+    private ResponseBudget responseBudget;
+    private final List<ActionListener> listeners = Lists.newArrayList();
+    private boolean coalescing = false;
+    private File recording;
+    private RecordingHttpClient recorder;
+    private final TransferStats transferStats = new TransferStats();
+    private boolean poolConfigured = false;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private long maxIdleMillis = -1;
+    private long keepAliveMillis = -1;
+    private long connectionTimeToLiveMillis = -1;
+    private boolean staleConnectionCheck = false;
+    private int connectTimeoutMillis = -1;
+    private int socketTimeoutMillis = -1;
+    private long requestTimeoutMillis = -1;
+    private long actionTimeoutMillis = -1;
+
     public Builder withUserAgent(String userAgent) {
       this.userAgent = userAgent;
       return this;
     }
 
+    /**
+     * @param maxConnections
+     *          total number of pooled connections, default is {@value #DEFAULT_MAX_CONNECTIONS}
+     */
+    public Builder withMaxConnections(int maxConnections) {
+      Preconditions.checkArgument(maxConnections > 0, "maxConnections must be positive");
+      this.maxConnections = maxConnections;
+      poolConfigured = true;
+      return this;
+    }
+
+    /**
+     * @param maxConnectionsPerRoute
+     *          number of pooled connections to one host, default is
+     *          {@value #DEFAULT_MAX_CONNECTIONS_PER_ROUTE}
+     */
+    public Builder withMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+      Preconditions.checkArgument(maxConnectionsPerRoute > 0,
+          "maxConnectionsPerRoute must be positive");
+      this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+      poolConfigured = true;
+      return this;
+    }
+
+    /**
+     * Closes pooled connections in background if they are idle longer than the given duration.
+     */
+    public Builder withIdleConnectionEviction(long maxIdle, TimeUnit unit) {
+      this.maxIdleMillis = unit.toMillis(maxIdle);
+      poolConfigured = true;
+      return this;
+    }
+
+    /**
+     * @param keepAlive
+     *          how long a connection is reused, if a server does not send a
+     *          <code>Keep-Alive</code> timeout; by default such connections are kept forever
+     */
+    public Builder withKeepAlive(long keepAlive, TimeUnit unit) {
+      this.keepAliveMillis = unit.toMillis(keepAlive);
+      poolConfigured = true;
+      return this;
+    }
+
+    /**
+     * @param timeToLive
+     *          maximum lifetime of a pooled connection regardless of its keep alive duration
+     */
+    public Builder withConnectionTimeToLive(long timeToLive, TimeUnit unit) {
+      this.connectionTimeToLiveMillis = unit.toMillis(timeToLive);
+      poolConfigured = true;
+      return this;
+    }
+
+    /**
+     * Validates a pooled connection before it is leased, so connections closed by the server while
+     * idle are not used for a request.
+     */
+    public Builder withStaleConnectionCheck(boolean staleConnectionCheck) {
+      this.staleConnectionCheck = staleConnectionCheck;
+      poolConfigured = true;
+      return this;
+    }
+
+    /**
+     * @param connectTimeout
+     *          to establish a connection and to wait for a pooled one; infinite by default
+     */
+    public Builder withConnectTimeout(long connectTimeout, TimeUnit unit) {
+      this.connectTimeoutMillis = Ints.checkedCast(unit.toMillis(connectTimeout));
+      return this;
+    }
+
+    /**
+     * @param socketTimeout
+     *          maximum inactivity between two packets of a response; infinite by default
+     */
+    public Builder withSocketTimeout(long socketTimeout, TimeUnit unit) {
+      this.socketTimeoutMillis = Ints.checkedCast(unit.toMillis(socketTimeout));
+      return this;
+    }
+
+    /**
+     * @param requestTimeout
+     *          for each message from sending its request until its response is processed,
+     *          including retries; the request is aborted afterwards. Infinite by default
+     * @see HttpActionClient#getTimeoutCount()
+     */
+    public Builder withRequestTimeout(long requestTimeout, TimeUnit unit) {
+      this.requestTimeoutMillis = unit.toMillis(requestTimeout);
+      return this;
+    }
+
+    /**
+     * @param actionTimeout
+     *          deadline for all messages of an action, like all requests of an edit; infinite by
+     *          default
+     * @see HttpActionClient#performAction(ContentProcessable, long, TimeUnit)
+     */
+    public Builder withActionTimeout(long actionTimeout, TimeUnit unit) {
+      this.actionTimeoutMillis = unit.toMillis(actionTimeout);
+      return this;
+    }
+
+    /**
+     * @param compression
+     *          if true (default), gzip and deflate encoded responses are requested and decompressed
+     *          while they are read
+     * @see HttpActionClient#getTransferStats()
+     */
+    public Builder withCompression(boolean compression) {
+      this.compression = Boolean.valueOf(compression);
+      return this;
+    }
+
+    /**
+     * Sends API requests with <code>maxlag</code> and adapts the request rate to throttled
+     * responses.
+     * 
+     * @see RequestGovernor
+     */
+    public Builder withRequestGovernor(RequestGovernor governor) {
+      this.governor = governor;
+      return this;
+    }
+
+    /**
+     * Same as {@link #withRequestGovernor(RequestGovernor)} with default rates.
+     * 
+     * @param maxlag
+     *          in seconds
+     */
+    public Builder withMaxlag(int maxlag) {
+      return withRequestGovernor(RequestGovernor.builder().withMaxlag(maxlag).build());
+    }
+
+    /**
+     * Sends idempotent requests again, if they fail with transient network errors.
+     * 
+     * @see RetryPolicy
+     */
+    public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    /**
+     * Keeps responses of {@link Get} actions and revalidates them with the server.
+     * 
+     * @see ResponseCache
+     */
+    public Builder withResponseCache(ResponseCache responseCache) {
+      this.responseCache = responseCache;
+      return this;
+    }
+
+    /**
+     * Bounds the bytes of response bodies held in memory; new requests wait while the budget is
+     * exceeded and large buffered bodies are written to temporary files.
+     * 
+     * @see ResponseBudget
+     */
+    public Builder withResponseBudget(ResponseBudget responseBudget) {
+      this.responseBudget = responseBudget;
+      return this;
+    }
+
+    /**
+     * @param coalescing
+     *          if true, a {@link Get} that equals a request in flight is not sent again; its
+     *          caller waits and every caller parses the shared response body. Disabled by default.
+     */
+    public Builder withRequestCoalescing(boolean coalescing) {
+      this.coalescing = coalescing;
+      return this;
+    }
+
+    /**
+     * Adds a listener, which is notified about each message; a {@link LoggingActionListener}
+     * without threshold is always registered.
+     */
+    public Builder withListener(ActionListener listener) {
+      listeners.add(Preconditions.checkNotNull(listener));
+      return this;
+    }
+
+    /**
+     * Records all exchanges to the given archive, which can be replayed without network access by
+     * {@link ReplayingHttpClient}. The archive is completed by {@link HttpActionClient#close()}.
+     */
+    public Builder withRecording(File archive) {
+      this.recording = archive;
+      return this;
+    }
+
+    /**
+     * @param executor
+     *          to run {@link HttpActionClient#performActionAsync(ContentProcessable)}; by default a
+     *          thread pool with one thread per pooled connection to the host of the wiki is used
+     */
+    public Builder withExecutor(ExecutorService executor) {
+      this.executor = executor;
+      return this;
+    }
+
     public HttpActionClient build() {
+      if (transport != null) {
+        checkTransportConfig();
+        return new HttpActionClient(this);
+      }
       HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
-      if (client == null) {
+      boolean ownClient = client == null;
+      if (ownClient) {
         if (Strings.isNullOrEmpty(userAgent)) {
           userAgent = USER_AGENT;
         }
+        connectionManager = newConnectionManager();
         httpClientBuilder.setUserAgent(userAgent);
+        httpClientBuilder.setConnectionManager(connectionManager);
+        if (keepAliveMillis > 0) {
+          httpClientBuilder.setKeepAliveStrategy(new FallbackKeepAliveStrategy(keepAliveMillis));
+        }
+        httpClientBuilder.setDefaultRequestConfig(RequestConfig.custom() //
+            .setStaleConnectionCheckEnabled(staleConnectionCheck) //
+            .setConnectTimeout(connectTimeoutMillis) //
+            .setConnectionRequestTimeout(connectTimeoutMillis) //
+            .setSocketTimeout(socketTimeoutMillis) //
+            .build());
+        httpClientBuilder.disableContentCompression();
+        if (compression == null || compression.booleanValue()) {
+          httpClientBuilder.addInterceptorLast(new RequestAcceptEncoding());
+        }
+        httpClientBuilder.addInterceptorFirst(new ContentEncodingInterceptor(transferStats));
+        if (retryPolicy != null) {
+          httpClientBuilder.disableAutomaticRetries();
+        }
         withClient(httpClientBuilder.build());
 
       } else {
@@ -324,15 +1342,81 @@ public class HttpActionClient {
           String msg = "useragent must be setted in your client";
           throw new IllegalArgumentException(msg);
         }
+        if (poolConfigured) {
+          String msg = "connection pool must be configured in your client";
+          throw new IllegalArgumentException(msg);
+        }
+        if (compression != null) {
+          String msg = "compression must be configured in your client";
+          throw new IllegalArgumentException(msg);
+        }
+        if (connectTimeoutMillis >= 0 || socketTimeoutMillis >= 0) {
+          String msg = "connect and socket timeouts must be configured in your client";
+          throw new IllegalArgumentException(msg);
+        }
       }
+      if (recording != null) {
+        if (!(client instanceof CloseableHttpClient)) {
+          String msg = "recording requires a " + CloseableHttpClient.class.getSimpleName();
+          throw new IllegalArgumentException(msg);
+        }
+        recorder = new RecordingHttpClient((CloseableHttpClient) client, recording);
+        client = recorder;
+      }
+      transport = new ApacheHttpTransport(client);
+      ownTransport = ownClient;
       return new HttpActionClient(this);
     }
 
+    private void checkTransportConfig() {
+      if (client != null) {
+        throw new IllegalArgumentException("either a client or a transport can be used");
+      }
+      if (userAgent != null || compression != null || recording != null) {
+        String msg = "useragent, compression and recording must be configured in your transport";
+        throw new IllegalArgumentException(msg);
+      }
+      if (poolConfigured || connectTimeoutMillis >= 0 || socketTimeoutMillis >= 0) {
+        String msg = "connections and their timeouts must be configured in your transport";
+        throw new IllegalArgumentException(msg);
+      }
+    }
+
+    /**
+     * @return the number of threads of the default executor; all requests go to the host of the
+     *         wiki, so more threads than connections to one host would only wait for the pool
+     */
+    int actionThreads() {
+      if (connectionManager == null) {
+        return maxConnections;
+      }
+      return Math.min(maxConnections, maxConnectionsPerRoute);
+    }
+
+    private PoolingHttpClientConnectionManager newConnectionManager() {
+      PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(
+          connectionTimeToLiveMillis, TimeUnit.MILLISECONDS);
+      manager.setMaxTotal(maxConnections);
+      manager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+      return manager;
+    }
+
     public Builder withClient(HttpClient client) {
       this.client = client;
       return this;
     }
 
+    /**
+     * Sends all requests with the given transport instead of an Apache {@link HttpClient}; it is
+     * not closed by {@link HttpActionClient#close()}. Compression, recording and the connection
+     * pool settings of this builder are features of the default transport and cannot be combined
+     * with it.
+     */
+    public Builder withTransport(HttpTransport transport) {
+      this.transport = transport;
+      return this;
+    }
+
     public Builder withUrl(URL url) {
       this.url = url;
       return this;
@@ -0,0 +1,197 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+
+/**
+ * A recorded request/response pair of a {@link RecordingHttpClient}, as it is stored in an
+ * archive and replayed by a {@link ReplayingHttpClient}.
+ */
+class HttpExchange {
+
+  static final int ARCHIVE_MAGIC = 0x4a574241; // "JWBA"
+  static final int ARCHIVE_VERSION = 1;
+
+  private static final String BOUNDARY = "boundary=";
+
+  private final String key;
+  private final int statusCode;
+  private final String reasonPhrase;
+  private final List<Header> headers;
+  private final byte[] body;
+  private final long durationMillis;
+
+  HttpExchange(String key, HttpResponse response, byte[] body, long durationMillis) {
+    this.key = key;
+    this.statusCode = response.getStatusLine().getStatusCode();
+    this.reasonPhrase = response.getStatusLine().getReasonPhrase();
+    ImmutableList.Builder<Header> recorded = ImmutableList.builder();
+    for (Header header : response.getAllHeaders()) {
+      if (!isTransferHeader(header.getName())) {
+        recorded.add(new BasicHeader(header.getName(), header.getValue()));
+      }
+    }
+    this.headers = recorded.build();
+    this.body = body;
+    this.durationMillis = durationMillis;
+  }
+
+  private HttpExchange(String key, int statusCode, String reasonPhrase, List<Header> headers,
+      byte[] body, long durationMillis) {
+    this.key = key;
+    this.statusCode = statusCode;
+    this.reasonPhrase = reasonPhrase;
+    this.headers = headers;
+    this.body = body;
+    this.durationMillis = durationMillis;
+  }
+
+  private static boolean isTransferHeader(String name) {
+    return name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)
+        || name.equalsIgnoreCase(HttpHeaders.CONTENT_ENCODING)
+        || name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)
+        || name.equalsIgnoreCase(HttpHeaders.CONNECTION);
+  }
+
+  /**
+   * Identifies a request by method, uri and, if it has one, a hash of its body. Multipart
+   * boundaries are random, so they are removed before the body is hashed. The entity of the
+   * request is buffered to be read twice.
+   */
+  static String keyOf(HttpRequest request) throws IOException {
+    String key = request.getRequestLine().getMethod() + " " + request.getRequestLine().getUri();
+    if (request instanceof HttpEntityEnclosingRequest) {
+      HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+      HttpEntity entity = enclosing.getEntity();
+      if (entity != null) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        entity.writeTo(bytes);
+        ByteArrayEntity buffered = new ByteArrayEntity(bytes.toByteArray());
+        buffered.setContentType(entity.getContentType());
+        buffered.setContentEncoding(entity.getContentEncoding());
+        enclosing.setEntity(buffered);
+        String content = new String(bytes.toByteArray(), Charsets.ISO_8859_1);
+        String boundary = boundaryOf(buffered);
+        if (boundary != null) {
+          content = content.replace(boundary, "");
+        }
+        key += " " + Hashing.sha1().hashString(content, Charsets.ISO_8859_1);
+      }
+    }
+    return key;
+  }
+
+  private static String boundaryOf(HttpEntity entity) {
+    Header contentType = entity.getContentType();
+    if (contentType == null) {
+      return null;
+    }
+    String value = contentType.getValue();
+    int index = value.indexOf(BOUNDARY);
+    if (index < 0) {
+      return null;
+    }
+    String boundary = value.substring(index + BOUNDARY.length());
+    int end = boundary.indexOf(';');
+    if (end >= 0) {
+      boundary = boundary.substring(0, end);
+    }
+    return boundary.trim();
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  long getDurationMillis() {
+    return durationMillis;
+  }
+
+  CloseableHttpResponse toResponse() {
+    ExchangeResponse response = new ExchangeResponse(statusCode, reasonPhrase);
+    ContentType contentType = null;
+    for (Header header : headers) {
+      response.addHeader(header);
+      if (header.getName().equalsIgnoreCase(HttpHeaders.CONTENT_TYPE)) {
+        contentType = ContentType.parse(header.getValue());
+      }
+    }
+    response.setEntity(new ByteArrayEntity(body, contentType));
+    return response;
+  }
+
+  void writeTo(DataOutput out) throws IOException {
+    writeString(out, key);
+    out.writeInt(statusCode);
+    writeString(out, reasonPhrase);
+    out.writeInt(headers.size());
+    for (Header header : headers) {
+      writeString(out, header.getName());
+      writeString(out, header.getValue());
+    }
+    out.writeLong(durationMillis);
+    out.writeInt(body.length);
+    out.write(body);
+  }
+
+  static HttpExchange readFrom(DataInput in) throws IOException {
+    String key = readString(in);
+    int statusCode = in.readInt();
+    String reasonPhrase = readString(in);
+    int headerCount = in.readInt();
+    ImmutableList.Builder<Header> headers = ImmutableList.builder();
+    for (int i = 0; i < headerCount; i++) {
+      headers.add(new BasicHeader(readString(in), readString(in)));
+    }
+    long durationMillis = in.readLong();
+    byte[] body = new byte[in.readInt()];
+    in.readFully(body);
+    return new HttpExchange(key, statusCode, reasonPhrase, headers.build(), body, durationMillis);
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static class ExchangeResponse extends BasicHttpResponse implements
+      CloseableHttpResponse {
+
+    ExchangeResponse(int statusCode, String reasonPhrase) {
+      super(HttpVersion.HTTP_1_1, statusCode, reasonPhrase);
+    }
+
+    @Override
+    public void close() {
+      // nothing to release
+    }
+  }
+
+}
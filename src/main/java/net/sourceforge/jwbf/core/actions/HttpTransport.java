@@ -0,0 +1,35 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sends the requests of an {@link HttpActionClient}. Retries, throttling, caching, timeouts and
+ * parsing are handled by the client independent of the transport; an implementation only has to
+ * send a request and hand over status, headers and body of its response.
+ * <p>
+ * Implementations must be thread safe. The default is {@link ApacheHttpTransport}, which speaks
+ * HTTP/1.1 with one request per pooled connection. A transport that multiplexes concurrent requests
+ * over one connection, like an HTTP/2 client, is called from several threads at once; the number of
+ * concurrent asynchronous actions is then limited by the executor given to
+ * {@link HttpActionClient.Builder#withExecutor(java.util.concurrent.ExecutorService)}. The optional
+ * module <code>jwbf-http2</code> provides such a transport for Java 11.
+ * </p>
+ * 
+ * @see HttpActionClient.Builder#withTransport(HttpTransport)
+ */
+public interface HttpTransport extends Closeable {
+
+  /**
+   * Sends the request and returns as soon as status and headers are received; the body is read
+   * from the response afterwards. An implementation must register a cancellation with
+   * {@link TransportRequest#onAbort(Runnable)}, so a running request can be aborted.
+   * 
+   * @throws java.io.InterruptedIOException
+   *           if the request was aborted or timed out
+   * @throws IOException
+   *           if the request failed
+   */
+  TransportResponse execute(TransportRequest request) throws IOException;
+
+}
@@ -0,0 +1,54 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.conn.HttpClientConnectionManager;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Closes expired and idle connections of a pooled {@link HttpClientConnectionManager} in the
+ * background.
+ */
+@Slf4j
+class IdleConnectionEvictor {
+
+  private final HttpClientConnectionManager connectionManager;
+  private final long maxIdleMillis;
+  private final ScheduledExecutorService scheduler;
+
+  IdleConnectionEvictor(HttpClientConnectionManager connectionManager, long maxIdleMillis) {
+    this.connectionManager = connectionManager;
+    this.maxIdleMillis = maxIdleMillis;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder() //
+        .setDaemon(true) //
+        .setNameFormat("jwbf-idle-connection-evictor-%d") //
+        .build());
+  }
+
+  void start() {
+    long period = Math.max(maxIdleMillis / 2, 1);
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        evict();
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  void evict() {
+    log.trace("evict idle connections");
+    connectionManager.closeExpiredConnections();
+    connectionManager.closeIdleConnections(maxIdleMillis, TimeUnit.MILLISECONDS);
+  }
+
+  void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+}
@@ -0,0 +1,89 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Counts durations in logarithmic buckets; values below 16 are exact, larger ones are rounded up by
+ * at most 12.5 percent. Recording is lock free and needs no allocation.
+ */
+class LatencyHistogram {
+
+  private static final int EXACT = 16;
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = EXACT + (Long.SIZE - 5) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong max = new AtomicLong();
+
+  void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(indexOf(v));
+    long current = max.get();
+    while (v > current && !max.compareAndSet(current, v)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * @param quantile
+   *          like 0.95
+   * @return the upper bound of the bucket, which contains the quantile, or 0 if nothing was
+   *         recorded
+   */
+  long percentile(double quantile) {
+    Preconditions.checkArgument(quantile > 0 && quantile <= 1, "quantile must be in (0, 1]");
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * total);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    max.set(0);
+  }
+
+  long getMax() {
+    return max.get();
+  }
+
+  static int indexOf(long value) {
+    if (value < EXACT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+    return EXACT + (exponent - 4) * SUB_BUCKETS + sub;
+  }
+
+  static long upperBoundOf(int index) {
+    if (index < EXACT) {
+      return index;
+    }
+    int exponent = (index - EXACT) / SUB_BUCKETS + 4;
+    int sub = (index - EXACT) % SUB_BUCKETS;
+    long lower = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    return lower + (1L << (exponent - SUB_BITS)) - 1;
+  }
+
+}
@@ -0,0 +1,74 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Logs each message at debug level before it is sent or, if a threshold is given, only messages
+ * that took longer at warn level. An instance without threshold is always registered by
+ * {@link HttpActionClient}.
+ */
+@Slf4j
+public class LoggingActionListener extends ActionListener.Adapter {
+
+  private final long slowNanos;
+
+  public LoggingActionListener() {
+    this.slowNanos = -1;
+  }
+
+  /**
+   * @param slowThreshold
+   *          a message is logged as slow, if it is not processed within this duration
+   */
+  public LoggingActionListener(long slowThreshold, TimeUnit unit) {
+    Preconditions.checkArgument(slowThreshold > 0, "slowThreshold must be positive");
+    this.slowNanos = unit.toNanos(slowThreshold);
+  }
+
+  @Override
+  public void beforeSend(ActionEvent event) {
+    if (slowNanos < 0 && log.isDebugEnabled() && event.getAction() != null) {
+      log.debug("message {} is: " //
+          + "\n\t hostPath : {} " //
+          + "\n\t queryPath: {}", typeOf(event), pathOf(event), event.getHttpAction().getRequest());
+    }
+  }
+
+  @Override
+  public void afterParse(ActionEvent event) {
+    if (slowNanos > 0 && event.getParseNanos() > slowNanos) {
+      log.warn("slow {}: {} ms (headers {} ms, body {} ms, {} bytes) for {}", typeOf(event),
+          millisOf(event.getParseNanos()), millisOf(event.getHeadersNanos()),
+          millisOf(event.getBodyNanos()), event.getResponseBytes(), event.getUri());
+    }
+  }
+
+  private static long millisOf(long nanos) {
+    if (nanos < 0) {
+      return nanos;
+    }
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static String pathOf(ActionEvent event) {
+    String requestString = event.getUri().toString();
+    return requestString.substring(0, requestString.lastIndexOf("/"));
+  }
+
+  private static String typeOf(ActionEvent event) {
+    String type = "(" + event.getMethod();
+    if (event.getAction() != null) {
+      type += " " + event.getAction().getClass().getSimpleName();
+    }
+    type += ")";
+    if (event.isContinuing()) {
+      type += " [continuing req]";
+    }
+    return type;
+  }
+
+}
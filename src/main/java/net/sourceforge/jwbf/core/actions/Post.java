@@ -12,6 +12,7 @@ public class Post implements HttpAction {
   private final String req;
   private final Map<String, Object> params = Maps.newHashMap();
   private final String charset;
+  private boolean retrySafe = false;
 
   public Post(String req, String charset) {
     this.req = req;
@@ -34,6 +35,20 @@ public class Post implements HttpAction {
     return this;
   }
 
+  /**
+   * @param retrySafe
+   *          true, if sending this request more than once has no additional effect
+   * @see RetryPolicy
+   */
+  public Post retrySafe(boolean retrySafe) {
+    this.retrySafe = retrySafe;
+    return this;
+  }
+
+  public boolean isRetrySafe() {
+    return retrySafe;
+  }
+
   public ImmutableMap<String, Object> getParams() {
     return ImmutableMap.copyOf(params);
   }
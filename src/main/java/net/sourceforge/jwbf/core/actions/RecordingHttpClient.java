@@ -0,0 +1,93 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Sends requests with another client and appends every exchange to a gzip compressed archive,
+ * which can be replayed by a {@link ReplayingHttpClient}. Response bodies are buffered and
+ * recorded after decompression. Each exchange is flushed to disk immediately; {@link #close()}
+ * completes the archive but does not close the wrapped client.
+ *
+ * @see HttpActionClient.Builder#withRecording(File)
+ */
+@Slf4j
+public class RecordingHttpClient extends CloseableHttpClient {
+
+  private final CloseableHttpClient client;
+  private final DataOutputStream archive;
+
+  /**
+   * @param archive
+   *          is overwritten, if it exists
+   */
+  public RecordingHttpClient(CloseableHttpClient client, File archive) {
+    this.client = client;
+    try {
+      this.archive = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(
+          new FileOutputStream(archive)), true));
+      this.archive.writeInt(HttpExchange.ARCHIVE_MAGIC);
+      this.archive.writeInt(HttpExchange.ARCHIVE_VERSION);
+      this.archive.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request,
+      HttpContext context) throws IOException, ClientProtocolException {
+    String key = HttpExchange.keyOf(request);
+    long start = System.currentTimeMillis();
+    HttpExchange exchange;
+    try (CloseableHttpResponse response = client.execute(target, request, context)) {
+      byte[] body = new byte[0];
+      if (response.getEntity() != null) {
+        body = EntityUtils.toByteArray(response.getEntity());
+      }
+      exchange = new HttpExchange(key, response, body, System.currentTimeMillis() - start);
+    }
+    record(exchange);
+    return exchange.toResponse();
+  }
+
+  private synchronized void record(HttpExchange exchange) throws IOException {
+    log.trace("record {}", exchange.getKey());
+    exchange.writeTo(archive);
+    archive.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    archive.close();
+  }
+
+  @Override
+  @Deprecated
+  @SuppressWarnings("deprecation")
+  public org.apache.http.params.HttpParams getParams() {
+    return client.getParams();
+  }
+
+  @Override
+  @Deprecated
+  @SuppressWarnings("deprecation")
+  public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+    return client.getConnectionManager();
+  }
+
+}
@@ -0,0 +1,185 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+
+/**
+ * Answers requests with the exchanges of an archive written by a {@link RecordingHttpClient},
+ * without any network access. A request is matched by method, uri and body; if an equal request
+ * was recorded more than once, the responses are returned in recorded order and the last one is
+ * repeated. Latency can be injected to simulate a remote wiki.
+ *
+ * <pre>
+ * HttpActionClient client = HttpActionClient.builder() //
+ *     .withUrl(url) //
+ *     .withClient(ReplayingHttpClient.builder(archive) //
+ *         .withLatency(20, TimeUnit.MILLISECONDS) //
+ *         .build()) //
+ *     .build();
+ * </pre>
+ */
+@Slf4j
+public class ReplayingHttpClient extends CloseableHttpClient {
+
+  private final Map<String, Deque<HttpExchange>> exchanges;
+  private final long latencyMillis;
+  private final double recordedLatencyFactor;
+
+  ReplayingHttpClient(Builder builder) {
+    this.exchanges = read(builder.archive);
+    this.latencyMillis = builder.latencyMillis;
+    this.recordedLatencyFactor = builder.recordedLatencyFactor;
+  }
+
+  private static Map<String, Deque<HttpExchange>> read(File archive) {
+    Map<String, Deque<HttpExchange>> exchanges = Maps.newHashMap();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+        new FileInputStream(archive))))) {
+      if (in.readInt() != HttpExchange.ARCHIVE_MAGIC
+          || in.readInt() != HttpExchange.ARCHIVE_VERSION) {
+        throw new IllegalArgumentException(archive + " is no supported archive");
+      }
+      while (true) {
+        HttpExchange exchange;
+        try {
+          exchange = HttpExchange.readFrom(in);
+        } catch (EOFException e) {
+          break;
+        }
+        Deque<HttpExchange> recorded = exchanges.get(exchange.getKey());
+        if (recorded == null) {
+          recorded = Queues.newArrayDeque();
+          exchanges.put(exchange.getKey(), recorded);
+        }
+        recorded.add(exchange);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return exchanges;
+  }
+
+  /**
+   * @throws IllegalStateException
+   *           if no equal request was recorded; it is no {@link IOException}, so the request is not
+   *           retried
+   */
+  @Override
+  protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request,
+      HttpContext context) throws IOException, ClientProtocolException {
+    String key = HttpExchange.keyOf(request);
+    HttpExchange exchange = next(key);
+    if (exchange == null) {
+      throw new IllegalStateException("no recorded exchange for " + key);
+    }
+    long delay = latencyMillis + (long) (exchange.getDurationMillis() * recordedLatencyFactor);
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+    log.trace("replay {}", key);
+    return exchange.toResponse();
+  }
+
+  private HttpExchange next(String key) {
+    Deque<HttpExchange> recorded = exchanges.get(key);
+    if (recorded == null) {
+      return null;
+    }
+    synchronized (recorded) {
+      if (recorded.size() > 1) {
+        return recorded.poll();
+      }
+      return recorded.peek();
+    }
+  }
+
+  @Override
+  public void close() {
+    // nothing to release
+  }
+
+  @Override
+  @Deprecated
+  @SuppressWarnings("deprecation")
+  public org.apache.http.params.HttpParams getParams() {
+    return new org.apache.http.params.BasicHttpParams();
+  }
+
+  /**
+   * @throws UnsupportedOperationException
+   *           always, a replaying client has no connections to manage
+   */
+  @Override
+  @Deprecated
+  @SuppressWarnings("deprecation")
+  public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+    throw new UnsupportedOperationException();
+  }
+
+  public static Builder builder(File archive) {
+    return new Builder(archive);
+  }
+
+  public static class Builder {
+
+    private final File archive;
+    private long latencyMillis = 0;
+    private double recordedLatencyFactor = 0;
+
+    Builder(File archive) {
+      this.archive = Preconditions.checkNotNull(archive);
+    }
+
+    /**
+     * @param latency
+     *          added to every response, none by default
+     */
+    public Builder withLatency(long latency, TimeUnit unit) {
+      Preconditions.checkArgument(latency >= 0, "latency must not be negative");
+      this.latencyMillis = unit.toMillis(latency);
+      return this;
+    }
+
+    /**
+     * @param factor
+     *          of the recorded duration of an exchange added to its response, e.g. 1 to replay
+     *          with the recorded timing; 0 by default
+     */
+    public Builder withRecordedLatency(double factor) {
+      Preconditions.checkArgument(factor >= 0, "factor must not be negative");
+      this.recordedLatencyFactor = factor;
+      return this;
+    }
+
+    public ReplayingHttpClient build() {
+      return new ReplayingHttpClient(this);
+    }
+  }
+
+}
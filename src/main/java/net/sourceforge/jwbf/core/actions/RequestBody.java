@@ -0,0 +1,25 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The body of a {@link TransportRequest}.
+ */
+public interface RequestBody {
+
+  String getContentType();
+
+  /**
+   * @return number of bytes or a negative number if unknown
+   */
+  long getContentLength();
+
+  /**
+   * @return true, if {@link #writeTo(OutputStream)} can be called more than once
+   */
+  boolean isRepeatable();
+
+  void writeTo(OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,263 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Adapts the request rate per host to the load of a wiki. API requests are sent with a
+ * <code>maxlag</code> parameter; if a server answers that its database replicas are lagged or
+ * responds with <code>503 Service Unavailable</code>, the request is delayed by
+ * <code>Retry-After</code> and sent again. The rate is adjusted additive-increase/
+ * multiplicative-decrease: each accepted response raises it by a constant step up to a maximum, each
+ * throttled response divides it.
+ *
+ * @see <a href="https://www.mediawiki.org/wiki/Manual:Maxlag_parameter">Maxlag parameter</a>
+ */
+@Slf4j
+public class RequestGovernor {
+
+  static final String MAXLAG = "maxlag";
+  static final String API_PATH = "/api.php";
+  static final String RETRY_AFTER = "Retry-After";
+  static final String DATABASE_LAG = "X-Database-Lag";
+  static final String API_ERROR = "MediaWiki-API-Error";
+
+  private final int maxlag;
+  private final double minRate;
+  private final double maxRate;
+  private final double increase;
+  private final double decreaseFactor;
+  private final int maxAttempts;
+  private final long defaultWaitMillis;
+  private final long maxWaitMillis;
+
+  private final ConcurrentMap<String, HostRate> hosts = Maps.newConcurrentMap();
+
+  RequestGovernor(Builder builder) {
+    this.maxlag = builder.maxlag;
+    this.minRate = builder.minRate;
+    this.maxRate = builder.maxRate;
+    this.increase = builder.increase;
+    this.decreaseFactor = builder.decreaseFactor;
+    this.maxAttempts = builder.maxAttempts;
+    this.defaultWaitMillis = builder.defaultWaitMillis;
+    this.maxWaitMillis = builder.maxWaitMillis;
+  }
+
+  /**
+   * @return the request with a <code>maxlag</code> parameter, if it is an API request without one
+   */
+  String appendMaxlag(String request) {
+    if (maxlag < 0 || !request.contains(API_PATH) || request.contains(MAXLAG + "=")) {
+      return request;
+    }
+    String separator;
+    if (request.contains("?")) {
+      separator = "&";
+    } else {
+      separator = "?";
+    }
+    return request + separator + MAXLAG + "=" + maxlag;
+  }
+
+  /**
+   * Blocks until a request to the given host is permitted.
+   */
+  void acquire(String host) {
+    hostRate(host).limiter.acquire();
+  }
+
+  /**
+   * Blocks until a request to the given host is permitted or the timeout expired.
+   * 
+   * @return false, if the request would not be permitted within the timeout
+   */
+  boolean acquire(String host, long timeoutMillis) {
+    if (timeoutMillis == Long.MAX_VALUE) {
+      acquire(host);
+      return true;
+    }
+    return hostRate(host).limiter.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Adjusts the rate of the host to the given response.
+   *
+   * @return milliseconds to wait before the request is sent again or <code>-1</code> if the
+   *         response was accepted
+   */
+  long onResponse(String host, TransportResponse response) {
+    HostRate hostRate = hostRate(host);
+    if (isThrottled(response)) {
+      double rate = hostRate.decrease();
+      long wait = waitMillisOf(response);
+      log.info("{} is throttled, retry in {}ms with {} requests/s", host, wait, rate);
+      return wait;
+    } else {
+      hostRate.increase();
+      return -1;
+    }
+  }
+
+  int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * @return the current permitted requests per second to the given host, like "localhost:8080"
+   */
+  public double getRate(String host) {
+    return hostRate(host).limiter.getRate();
+  }
+
+  private HostRate hostRate(String host) {
+    HostRate hostRate = hosts.get(host);
+    if (hostRate == null) {
+      hosts.putIfAbsent(host, new HostRate());
+      hostRate = hosts.get(host);
+    }
+    return hostRate;
+  }
+
+  static boolean isThrottled(TransportResponse response) {
+    int code = response.getStatusCode();
+    if (code == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+      return true;
+    }
+    if (MAXLAG.equals(response.getFirstHeader(API_ERROR))) {
+      return true;
+    }
+    return response.getFirstHeader(DATABASE_LAG) != null
+        && response.getFirstHeader(RETRY_AFTER) != null;
+  }
+
+  long waitMillisOf(TransportResponse response) {
+    String retryAfter = response.getFirstHeader(RETRY_AFTER);
+    long wait = defaultWaitMillis;
+    if (retryAfter != null) {
+      String value = retryAfter.trim();
+      Long seconds = Longs.tryParse(value);
+      if (seconds != null) {
+        wait = TimeUnit.SECONDS.toMillis(seconds.longValue());
+      } else {
+        Date date = DateUtils.parseDate(value);
+        if (date != null) {
+          wait = date.getTime() - System.currentTimeMillis();
+        }
+      }
+    }
+    return Math.max(0, Math.min(wait, maxWaitMillis));
+  }
+
+  private class HostRate {
+
+    private final RateLimiter limiter = RateLimiter.create(maxRate);
+
+    synchronized double increase() {
+      double rate = limiter.getRate();
+      if (rate < maxRate) {
+        limiter.setRate(Math.min(maxRate, rate + increase));
+      }
+      return limiter.getRate();
+    }
+
+    synchronized double decrease() {
+      limiter.setRate(Math.max(minRate, limiter.getRate() * decreaseFactor));
+      return limiter.getRate();
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    static final int DEFAULT_MAXLAG = 5;
+
+    private int maxlag = DEFAULT_MAXLAG;
+    private double minRate = 0.2;
+    private double maxRate = 50;
+    private double increase = 1;
+    private double decreaseFactor = 0.5;
+    private int maxAttempts = 5;
+    private long defaultWaitMillis = TimeUnit.SECONDS.toMillis(5);
+    private long maxWaitMillis = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * @param maxlag
+     *          seconds of replication lag a wiki may have to accept a request, default is
+     *          {@value #DEFAULT_MAXLAG}; a negative value omits the parameter
+     */
+    public Builder withMaxlag(int maxlag) {
+      this.maxlag = maxlag;
+      return this;
+    }
+
+    /**
+     * @param minRate
+     *          requests per second, the rate is never decreased below
+     * @param maxRate
+     *          requests per second, the rate starts with and is never increased above
+     */
+    public Builder withRate(double minRate, double maxRate) {
+      Preconditions.checkArgument(minRate > 0 && minRate <= maxRate, "invalid rate range");
+      this.minRate = minRate;
+      this.maxRate = maxRate;
+      return this;
+    }
+
+    /**
+     * @param increase
+     *          requests per second added after each accepted response
+     * @param decreaseFactor
+     *          the rate is multiplied with after each throttled response
+     */
+    public Builder withAdjustment(double increase, double decreaseFactor) {
+      Preconditions.checkArgument(increase >= 0, "increase must not be negative");
+      Preconditions.checkArgument(decreaseFactor > 0 && decreaseFactor < 1,
+          "decreaseFactor must be between 0 and 1");
+      this.increase = increase;
+      this.decreaseFactor = decreaseFactor;
+      return this;
+    }
+
+    /**
+     * @param maxAttempts
+     *          how often a throttled request is sent
+     */
+    public Builder withMaxAttempts(int maxAttempts) {
+      Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * @param defaultWait
+     *          to wait if a throttled response contains no <code>Retry-After</code>
+     * @param maxWait
+     *          upper bound of <code>Retry-After</code>
+     */
+    public Builder withWait(long defaultWait, long maxWait, TimeUnit unit) {
+      this.defaultWaitMillis = unit.toMillis(defaultWait);
+      this.maxWaitMillis = unit.toMillis(maxWait);
+      return this;
+    }
+
+    public RequestGovernor build() {
+      return new RequestGovernor(this);
+    }
+  }
+
+}
@@ -0,0 +1,213 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Limits the bytes of response bodies, which are held in memory by all messages in flight. If the
+ * limit is exceeded, new requests wait until running messages are processed; running ones are
+ * never blocked. Bodies streamed to a {@link ReturningStreamProcessor} are counted until their
+ * message is processed; downloads are not counted.
+ * <p>
+ * Bodies, which are buffered for coalesced or cached requests, are written to a temporary file
+ * above the spill threshold and parsed from there. Spilled bodies are not kept by the
+ * {@link ResponseCache}.
+ * </p>
+ */
+public class ResponseBudget {
+
+  private final long maxBytes;
+  private final long spillThreshold;
+  private final File directory;
+
+  private final AtomicLong inFlight = new AtomicLong();
+  private final AtomicLong waits = new AtomicLong();
+  private final AtomicLong spills = new AtomicLong();
+
+  ResponseBudget(Builder builder) {
+    this.maxBytes = builder.maxBytes;
+    this.spillThreshold = builder.spillThreshold;
+    this.directory = builder.directory;
+  }
+
+  /**
+   * Waits until the bytes in flight are below the limit.
+   * 
+   * @return false, if the timeout expired before
+   */
+  boolean awaitCapacity(long timeoutMillis) {
+    if (inFlight.get() < maxBytes) {
+      return true;
+    }
+    waits.incrementAndGet();
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (this) {
+      while (inFlight.get() >= maxBytes) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (timeoutMillis != Long.MAX_VALUE && remaining <= 0) {
+          return false;
+        }
+        try {
+          if (timeoutMillis == Long.MAX_VALUE) {
+            wait();
+          } else {
+            wait(remaining);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param message
+   *          counts the bytes read for one message, to {@link #release(AtomicLong)} them afterwards
+   */
+  InputStream track(InputStream in, AtomicLong message) {
+    return new TrackingInputStream(in, message);
+  }
+
+  void release(AtomicLong message) {
+    long bytes = message.getAndSet(0);
+    if (bytes > 0) {
+      inFlight.addAndGet(-bytes);
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  BufferedBody buffer(InputStream in) throws IOException {
+    BufferedBody body = BufferedBody.read(in, spillThreshold, directory);
+    if (body.isSpilled()) {
+      spills.incrementAndGet();
+    }
+    return body;
+  }
+
+  /**
+   * @return bytes of response bodies currently held by messages
+   */
+  public long getInFlightBytes() {
+    return inFlight.get();
+  }
+
+  /**
+   * @return number of requests, which had to wait for the budget
+   */
+  public long getWaitCount() {
+    return waits.get();
+  }
+
+  /**
+   * @return number of bodies written to a temporary file
+   */
+  public long getSpillCount() {
+    return spills.get();
+  }
+
+  @Override
+  public String toString() {
+    return "ResponseBudget [inFlight=" + inFlight + ", maxBytes=" + maxBytes + ", waits=" + waits
+        + ", spills=" + spills + "]";
+  }
+
+  private class TrackingInputStream extends FilterInputStream {
+
+    private final AtomicLong message;
+
+    TrackingInputStream(InputStream in, AtomicLong message) {
+      super(in);
+      this.message = message;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        add(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        add(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      add(skipped);
+      return skipped;
+    }
+
+    private void add(long bytes) {
+      message.addAndGet(bytes);
+      inFlight.addAndGet(bytes);
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+    static final long DEFAULT_SPILL_THRESHOLD = 4 * 1024 * 1024;
+
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long spillThreshold = DEFAULT_SPILL_THRESHOLD;
+    private File directory;
+
+    /**
+     * @param maxBytes
+     *          of response bodies in memory before new requests wait, default is
+     *          {@value #DEFAULT_MAX_BYTES}
+     */
+    public Builder withMaxBytes(long maxBytes) {
+      Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive");
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * @param spillThreshold
+     *          size of a buffered body, above which it is written to a temporary file, default is
+     *          {@value #DEFAULT_SPILL_THRESHOLD}
+     */
+    public Builder withSpillThreshold(long spillThreshold) {
+      Preconditions.checkArgument(spillThreshold >= 0 && spillThreshold < Integer.MAX_VALUE,
+          "spillThreshold must be in [0, " + Integer.MAX_VALUE + ")");
+      this.spillThreshold = spillThreshold;
+      return this;
+    }
+
+    /**
+     * @param directory
+     *          for spilled bodies; the default temporary directory by default
+     */
+    public Builder withDirectory(File directory) {
+      this.directory = directory;
+      return this;
+    }
+
+    public ResponseBudget build() {
+      return new ResponseBudget(this);
+    }
+  }
+
+}
@@ -0,0 +1,393 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Caches response bodies of {@link Get} actions, which are equal if their request and charset are
+ * equal. Within its time to live an entry is returned without a request; afterwards it is
+ * revalidated with <code>If-None-Match</code> and <code>If-Modified-Since</code>, so an unchanged
+ * response costs a <code>304 Not Modified</code> instead of the whole body.
+ * <p>
+ * Entries are kept in memory up to a maximum number of bytes and, if a directory is configured, on
+ * disk. Responses with <code>Cache-Control: no-store</code> are never cached; other cache headers
+ * of the server are ignored in favor of the configured time to live.
+ * </p>
+ * <p>
+ * Entries are not bound to a session. Requests for tokens, user info and logins are therefore
+ * never cached, and {@link #invalidateAll()} should be called when the session changes, as
+ * <code>MediaWikiBot#login</code> does.
+ * </p>
+ */
+@Slf4j
+public class ResponseCache {
+
+  private static final int DISK_FORMAT = 1;
+
+  private final long ttlMillis;
+  private final Predicate<Get> filter;
+  private final File directory;
+  private final Cache<Get, Entry> memory;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  ResponseCache(Builder builder) {
+    this.ttlMillis = builder.ttlMillis;
+    this.filter = builder.filter;
+    this.directory = builder.directory;
+    this.memory = CacheBuilder.newBuilder() //
+        .maximumWeight(builder.maxBytes) //
+        .weigher(new Weigher<Get, Entry>() {
+
+          @Override
+          public int weigh(Get key, Entry value) {
+            return value.body.length;
+          }
+        }) //
+        .build();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("cannot create cache directory " + directory);
+    }
+  }
+
+  boolean accepts(Get get) {
+    return !isSessionDependent(get.getRequest()) && filter.apply(get);
+  }
+
+  /**
+   * @return true for requests of tokens, user info, logins and logouts, whose responses depend on
+   *         the session
+   */
+  static boolean isSessionDependent(String request) {
+    int query = request.indexOf('?');
+    for (String param : request.substring(query + 1).split("&")) {
+      int equals = param.indexOf('=');
+      String name = (equals < 0 ? param : param.substring(0, equals)).toLowerCase(Locale.ENGLISH);
+      String value = equals < 0 ? "" : param.substring(equals + 1).toLowerCase(Locale.ENGLISH);
+      if (name.endsWith("token") || name.startsWith("lg")) {
+        return true;
+      }
+      if (name.equals("meta") && (value.contains("userinfo") || value.contains("tokens"))) {
+        return true;
+      }
+      if (name.equals("action") && (value.equals("login") || value.equals("logout")
+          || value.equals("tokens"))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return a fresh or stale entry or null
+   */
+  @CheckForNull
+  Entry lookup(Get get) {
+    Entry entry = memory.getIfPresent(get);
+    if (entry == null && directory != null) {
+      entry = readFromDisk(get);
+      if (entry != null) {
+        memory.put(get, entry);
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * @return true and counts a hit, if the entry can be used without a request
+   */
+  boolean isFresh(@CheckForNull Entry entry) {
+    if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+      hits.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Adds the validators of the entry to the request.
+   */
+  void prepareRevalidation(TransportRequest request, @CheckForNull Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    if (entry.etag != null) {
+      request.setHeader(HttpHeaders.IF_NONE_MATCH, entry.etag);
+    }
+    if (entry.lastModified != null) {
+      request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+    }
+  }
+
+  /**
+   * @return the entry with a new time to live, if the response is <code>304 Not Modified</code>;
+   *         otherwise null
+   */
+  @CheckForNull
+  Entry revalidated(Get get, @CheckForNull Entry entry, TransportResponse response) {
+    if (entry == null || response.getStatusCode() != HttpStatus.SC_NOT_MODIFIED) {
+      misses.incrementAndGet();
+      return null;
+    }
+    revalidations.incrementAndGet();
+    Entry refreshed = new Entry(valueOf(response, HttpHeaders.ETAG, entry.etag), //
+        valueOf(response, HttpHeaders.LAST_MODIFIED, entry.lastModified), //
+        System.currentTimeMillis() + ttlMillis, entry.body);
+    put(get, refreshed);
+    return refreshed;
+  }
+
+  /**
+   * Stores the body of a successful response.
+   */
+  void store(Get get, TransportResponse response, byte[] body) {
+    if (response.getStatusCode() != HttpStatus.SC_OK || isNoStore(response)) {
+      return;
+    }
+    put(get, new Entry(valueOf(response, HttpHeaders.ETAG, null), //
+        valueOf(response, HttpHeaders.LAST_MODIFIED, null), //
+        System.currentTimeMillis() + ttlMillis, body));
+  }
+
+  private void put(Get get, Entry entry) {
+    memory.put(get, entry);
+    if (directory != null) {
+      writeToDisk(get, entry);
+    }
+  }
+
+  private static boolean isNoStore(TransportResponse response) {
+    for (String value : response.getHeaders(HttpHeaders.CACHE_CONTROL)) {
+      if (value.toLowerCase(Locale.ENGLISH).contains("no-store")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @CheckForNull
+  private static String valueOf(TransportResponse response, String name, String defaultValue) {
+    String value = response.getFirstHeader(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return value;
+  }
+
+  /**
+   * Removes all entries from memory and disk.
+   */
+  public void invalidateAll() {
+    memory.invalidateAll();
+    if (directory != null) {
+      File[] files = directory.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (file.getName().endsWith(".entry") && !file.delete()) {
+            log.warn("could not delete {}", file);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return number of responses returned without a request
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of responses confirmed by <code>304 Not Modified</code>
+   */
+  public long getRevalidationCount() {
+    return revalidations.get();
+  }
+
+  /**
+   * @return number of responses fetched with a body
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  private File fileOf(Get get) {
+    String name = Hashing.sha1().hashString(get.toString(), Charsets.UTF_8).toString();
+    return new File(directory, name + ".entry");
+  }
+
+  @CheckForNull
+  private Entry readFromDisk(Get get) {
+    File file = fileOf(get);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+        file)))) {
+      if (in.readInt() != DISK_FORMAT || !get.toString().equals(in.readUTF())) {
+        return null;
+      }
+      String etag = readNullable(in);
+      String lastModified = readNullable(in);
+      long expiresAt = in.readLong();
+      byte[] body = new byte[in.readInt()];
+      in.readFully(body);
+      return new Entry(etag, lastModified, expiresAt, body);
+    } catch (IOException e) {
+      log.warn("could not read {}: {}", file, e.toString());
+      return null;
+    }
+  }
+
+  private void writeToDisk(Get get, Entry entry) {
+    File file = fileOf(get);
+    File tmp = new File(directory, file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(tmp)))) {
+      out.writeInt(DISK_FORMAT);
+      out.writeUTF(get.toString());
+      writeNullable(out, entry.etag);
+      writeNullable(out, entry.lastModified);
+      out.writeLong(entry.expiresAt);
+      out.writeInt(entry.body.length);
+      out.write(entry.body);
+    } catch (IOException e) {
+      log.warn("could not write {}: {}", tmp, e.toString());
+      tmp.delete();
+      return;
+    }
+    if (!tmp.renameTo(file)) {
+      file.delete();
+      if (!tmp.renameTo(file)) {
+        log.warn("could not write {}", file);
+        tmp.delete();
+      }
+    }
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  @CheckForNull
+  private static String readNullable(DataInputStream in) throws IOException {
+    if (in.readBoolean()) {
+      return in.readUTF();
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "ResponseCache [hits=" + hits + ", revalidations=" + revalidations + ", misses="
+        + misses + "]";
+  }
+
+  static class Entry {
+
+    private final String etag;
+    private final String lastModified;
+    private final long expiresAt;
+    private final byte[] body;
+
+    Entry(String etag, String lastModified, long expiresAt, byte[] body) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.expiresAt = expiresAt;
+      this.body = body;
+    }
+
+    byte[] getBody() {
+      return body;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private long ttlMillis = TimeUnit.MINUTES.toMillis(5);
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private File directory;
+    private Predicate<Get> filter = Predicates.alwaysTrue();
+
+    /**
+     * @param ttl
+     *          how long a response is used without revalidation, default is five minutes
+     */
+    public Builder withTtl(long ttl, TimeUnit unit) {
+      Preconditions.checkArgument(ttl >= 0, "ttl must not be negative");
+      this.ttlMillis = unit.toMillis(ttl);
+      return this;
+    }
+
+    /**
+     * @param maxBytes
+     *          of response bodies kept in memory, default is {@value #DEFAULT_MAX_BYTES}
+     */
+    public Builder withMaxBytes(long maxBytes) {
+      Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive");
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * @param directory
+     *          to keep entries across runs; entries are only kept in memory by default
+     */
+    public Builder withDirectory(File directory) {
+      this.directory = directory;
+      return this;
+    }
+
+    /**
+     * @param filter
+     *          selects the actions to cache; all by default, except requests of tokens, user info
+     *          and logins, which are never cached
+     */
+    public Builder withFilter(Predicate<Get> filter) {
+      this.filter = Preconditions.checkNotNull(filter);
+      return this;
+    }
+
+    public ResponseCache build() {
+      return new ResponseCache(this);
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+
+import org.apache.http.HttpStatus;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Decides if a failed request is sent again and how long to wait before. A request is retried if it
+ * failed with an {@link java.io.IOException} or a gateway error (502, 504) and it is idempotent:
+ * every {@link Get} and a {@link Post} marked as {@link Post#retrySafe(boolean)}.
+ * <p>
+ * Waits grow exponentially with random jitter. A retry budget prevents retry storms if a wiki is
+ * down: every retry spends one token, every successful request earns a fraction of one; without
+ * tokens, failures are not retried.
+ * </p>
+ */
+public class RetryPolicy {
+
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final double multiplier;
+  private final double jitter;
+  private final double maxTokens;
+  private final double tokensPerSuccess;
+
+  private double tokens;
+
+  RetryPolicy(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.initialBackoffMillis = builder.initialBackoffMillis;
+    this.maxBackoffMillis = builder.maxBackoffMillis;
+    this.multiplier = builder.multiplier;
+    this.jitter = builder.jitter;
+    this.maxTokens = builder.maxTokens;
+    this.tokensPerSuccess = builder.tokensPerSuccess;
+    this.tokens = maxTokens;
+  }
+
+  /**
+   * @return true, if the action can be sent again; a token of the retry budget is spent in this
+   *         case
+   */
+  boolean shouldRetry(HttpAction action, int attempt) {
+    if (attempt >= maxAttempts || !isIdempotent(action)) {
+      return false;
+    }
+    return spendToken();
+  }
+
+  static boolean isIdempotent(HttpAction action) {
+    if (action instanceof Get) {
+      return true;
+    } else if (action instanceof Post) {
+      return ((Post) action).isRetrySafe();
+    }
+    return false;
+  }
+
+  static boolean isRetryableStatus(int code) {
+    return code == HttpStatus.SC_BAD_GATEWAY || code == HttpStatus.SC_GATEWAY_TIMEOUT;
+  }
+
+  /**
+   * @param attempt
+   *          of the failed request, starting with 1
+   * @return milliseconds to wait before the next attempt
+   */
+  long backoffMillis(int attempt) {
+    double backoff = initialBackoffMillis * Math.pow(multiplier, attempt - 1);
+    long capped = (long) Math.min(maxBackoffMillis, backoff);
+    long jitterMillis = (long) (capped * jitter * ThreadLocalRandom.current().nextDouble());
+    return capped - jitterMillis;
+  }
+
+  synchronized void onSuccess() {
+    tokens = Math.min(maxTokens, tokens + tokensPerSuccess);
+  }
+
+  private synchronized boolean spendToken() {
+    if (tokens >= 1) {
+      tokens--;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return remaining retries of the budget
+   */
+  public synchronized double getRetryBudget() {
+    return tokens;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private int maxAttempts = 4;
+    private long initialBackoffMillis = 500;
+    private long maxBackoffMillis = TimeUnit.SECONDS.toMillis(30);
+    private double multiplier = 2;
+    private double jitter = 0.5;
+    private double maxTokens = 10;
+    private double tokensPerSuccess = 0.1;
+
+    /**
+     * @param maxAttempts
+     *          including the first one
+     */
+    public Builder withMaxAttempts(int maxAttempts) {
+      Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * @param initialBackoff
+     *          wait after the first failure
+     * @param maxBackoff
+     *          upper bound of a wait
+     * @param multiplier
+     *          each further wait is multiplied with
+     */
+    public Builder withBackoff(long initialBackoff, long maxBackoff, TimeUnit unit,
+        double multiplier) {
+      Preconditions.checkArgument(multiplier >= 1, "multiplier must be >= 1");
+      this.initialBackoffMillis = unit.toMillis(initialBackoff);
+      this.maxBackoffMillis = unit.toMillis(maxBackoff);
+      this.multiplier = multiplier;
+      return this;
+    }
+
+    /**
+     * @param jitter
+     *          between 0 (none) and 1 (a wait is reduced by a random part up to its full length)
+     */
+    public Builder withJitter(double jitter) {
+      Preconditions.checkArgument(jitter >= 0 && jitter <= 1, "jitter must be between 0 and 1");
+      this.jitter = jitter;
+      return this;
+    }
+
+    /**
+     * @param maxRetries
+     *          the budget is filled with
+     * @param retriesPerSuccess
+     *          the budget is refilled with after each successful request
+     */
+    public Builder withBudget(double maxRetries, double retriesPerSuccess) {
+      Preconditions.checkArgument(maxRetries >= 0 && retriesPerSuccess >= 0,
+          "budget must not be negative");
+      this.maxTokens = maxRetries;
+      this.tokensPerSuccess = retriesPerSuccess;
+      return this;
+    }
+
+    public RetryPolicy build() {
+      return new RetryPolicy(this);
+    }
+  }
+
+}
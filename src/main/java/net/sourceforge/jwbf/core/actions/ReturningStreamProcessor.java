@@ -0,0 +1,25 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+
+/**
+ * Streaming counterpart of {@link ReturningTextProcessor}. If a {@link ContentProcessable} also
+ * implements this interface, {@link HttpActionClient} hands over the undecoded response body instead
+ * of materializing it as one {@link String}; {@link #processReturningText(String, HttpAction)} is
+ * not called in this case.
+ */
+public interface ReturningStreamProcessor {
+
+  /**
+   * @param in
+   *          the response body, encoded in the charset of {@link HttpAction#getCharset()}; it is
+   *          closed by the caller
+   * @param action
+   *          the requestor message
+   * @return the returning text or a modification of it
+   */
+  String processReturningStream(InputStream in, HttpAction action) throws IOException;
+}
@@ -0,0 +1,112 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Decodes response bodies to text in one pass. Charsets are looked up once per name; decoders and
+ * buffers are reused per thread. Line terminators are kept as they were sent; only a final line
+ * without terminator gets a <code>\n</code>, as response texts always ended with one.
+ */
+final class TextDecoder {
+
+  static final int BUFFER_SIZE = 8192;
+
+  private static final ConcurrentMap<String, Charset> CHARSETS = Maps.newConcurrentMap();
+
+  private static final ThreadLocal<TextDecoder> DECODERS = new ThreadLocal<TextDecoder>() {
+
+    @Override
+    protected TextDecoder initialValue() {
+      return new TextDecoder();
+    }
+  };
+
+  private final Map<Charset, CharsetDecoder> decoders = Maps.newHashMap();
+  private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+  private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+  private TextDecoder() {
+  }
+
+  static Charset charsetOf(String name) {
+    Charset charset = CHARSETS.get(name);
+    if (charset == null) {
+      charset = Charset.forName(name);
+      CHARSETS.putIfAbsent(name, charset);
+    }
+    return charset;
+  }
+
+  /**
+   * Reads the stream to its end, but does not close it. Malformed input is replaced.
+   */
+  static String decode(InputStream in, String charsetName) throws IOException {
+    return DECODERS.get().decode(in, charsetOf(charsetName));
+  }
+
+  private String decode(InputStream in, Charset charset) throws IOException {
+    CharsetDecoder decoder = decoderOf(charset);
+    StringBuilder out = new StringBuilder(Math.max(BUFFER_SIZE, in.available()));
+    byte[] array = bytes.array();
+    bytes.clear();
+    chars.clear();
+    boolean endOfInput = false;
+    while (!endOfInput) {
+      int read = in.read(array, bytes.position(), bytes.remaining());
+      if (read < 0) {
+        endOfInput = true;
+      } else {
+        bytes.position(bytes.position() + read);
+      }
+      bytes.flip();
+      CoderResult result;
+      do {
+        result = decoder.decode(bytes, chars, endOfInput);
+        drain(result, out);
+      } while (result.isOverflow());
+      bytes.compact();
+    }
+    while (decoder.flush(chars) == CoderResult.OVERFLOW) {
+      drain(CoderResult.OVERFLOW, out);
+    }
+    drain(CoderResult.UNDERFLOW, out);
+    int length = out.length();
+    if (length > 0 && out.charAt(length - 1) != '\n' && out.charAt(length - 1) != '\r') {
+      out.append('\n');
+    }
+    return out.toString();
+  }
+
+  private void drain(CoderResult result, StringBuilder out) {
+    out.append(chars.array(), 0, chars.position());
+    chars.clear();
+    if (result.isError()) {
+      throw new IllegalStateException(result.toString());
+    }
+  }
+
+  private CharsetDecoder decoderOf(Charset charset) {
+    CharsetDecoder decoder = decoders.get(charset);
+    if (decoder == null) {
+      decoder = charset.newDecoder() //
+          .onMalformedInput(CodingErrorAction.REPLACE) //
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      decoders.put(charset, decoder);
+    } else {
+      decoder.reset();
+    }
+    return decoder;
+  }
+
+}
@@ -0,0 +1,64 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of response bodies as they were transferred and after decompression.
+ */
+public class TransferStats {
+
+  private final AtomicLong responses = new AtomicLong();
+  private final AtomicLong compressedResponses = new AtomicLong();
+  private final AtomicLong wireBytes = new AtomicLong();
+  private final AtomicLong decodedBytes = new AtomicLong();
+
+  /**
+   * @return number of response bodies
+   */
+  public long getResponses() {
+    return responses.get();
+  }
+
+  /**
+   * @return number of gzip or deflate encoded response bodies
+   */
+  public long getCompressedResponses() {
+    return compressedResponses.get();
+  }
+
+  /**
+   * @return bytes read from the connection
+   */
+  public long getWireBytes() {
+    return wireBytes.get();
+  }
+
+  /**
+   * @return bytes after decompression
+   */
+  public long getDecodedBytes() {
+    return decodedBytes.get();
+  }
+
+  AtomicLong wireBytesCounter() {
+    return wireBytes;
+  }
+
+  AtomicLong decodedBytesCounter() {
+    return decodedBytes;
+  }
+
+  void addResponse(boolean compressed) {
+    responses.incrementAndGet();
+    if (compressed) {
+      compressedResponses.incrementAndGet();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "TransferStats [responses=" + responses + ", compressedResponses="
+        + compressedResponses + ", wireBytes=" + wireBytes + ", decodedBytes=" + decodedBytes + "]";
+  }
+
+}
@@ -0,0 +1,107 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.net.URI;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * A request to be sent by an {@link HttpTransport}. The request can be aborted by another thread
+ * while it is sent or its response is read.
+ */
+public class TransportRequest {
+
+  public static final String GET = "GET";
+  public static final String POST = "POST";
+
+  private final String method;
+  private final URI uri;
+  private final Map<String, String> headers = Maps.newLinkedHashMap();
+  private RequestBody body;
+
+  private boolean aborted = false;
+  private Runnable cancellation;
+
+  public TransportRequest(String method, URI uri) {
+    this.method = Preconditions.checkNotNull(method);
+    this.uri = Preconditions.checkNotNull(uri);
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public URI getUri() {
+    return uri;
+  }
+
+  public synchronized TransportRequest setHeader(String name, String value) {
+    headers.put(name, value);
+    return this;
+  }
+
+  public synchronized ImmutableMap<String, String> getHeaders() {
+    return ImmutableMap.copyOf(headers);
+  }
+
+  public TransportRequest setBody(RequestBody body) {
+    this.body = body;
+    return this;
+  }
+
+  @CheckForNull
+  public RequestBody getBody() {
+    return body;
+  }
+
+  /**
+   * @param cancellation
+   *          to stop sending this request or reading its response; it is run immediately, if this
+   *          request is already aborted
+   */
+  public void onAbort(Runnable cancellation) {
+    boolean runNow;
+    synchronized (this) {
+      this.cancellation = cancellation;
+      runNow = aborted;
+    }
+    if (runNow) {
+      cancellation.run();
+    }
+  }
+
+  public void abort() {
+    Runnable toRun;
+    synchronized (this) {
+      aborted = true;
+      toRun = cancellation;
+    }
+    if (toRun != null) {
+      toRun.run();
+    }
+  }
+
+  public synchronized boolean isAborted() {
+    return aborted;
+  }
+
+  /**
+   * Prepares this request to be sent again; an aborted request stays aborted.
+   * 
+   * @return false, if this request is aborted
+   */
+  synchronized boolean reset() {
+    cancellation = null;
+    return !aborted;
+  }
+
+  @Override
+  public String toString() {
+    return method + " " + uri;
+  }
+
+}
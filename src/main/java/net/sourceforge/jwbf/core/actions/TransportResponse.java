@@ -0,0 +1,34 @@
+package net.sourceforge.jwbf.core.actions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Status, headers and body of a response received by an {@link HttpTransport}. Header names are
+ * case insensitive. {@link #close()} releases the underlying connection.
+ */
+public interface TransportResponse extends Closeable {
+
+  int getStatusCode();
+
+  String getReasonPhrase();
+
+  /**
+   * @return the value of the first header with the given name or null
+   */
+  @CheckForNull
+  String getFirstHeader(String name);
+
+  List<String> getHeaders(String name);
+
+  /**
+   * @return the body, decompressed, or null if the response has none
+   */
+  @CheckForNull
+  InputStream getBody() throws IOException;
+
+}
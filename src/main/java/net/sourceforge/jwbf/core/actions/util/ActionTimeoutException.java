@@ -0,0 +1,19 @@
+package net.sourceforge.jwbf.core.actions.util;
+
+/**
+ * Thrown if a request or an action was not completed within its timeout; the request was
+ * cancelled.
+ */
+public class ActionTimeoutException extends ActionException {
+
+  private static final long serialVersionUID = 1L;
+
+  public ActionTimeoutException(String message, Throwable t) {
+    super(message, t);
+  }
+
+  public ActionTimeoutException(String message) {
+    super(message);
+  }
+
+}
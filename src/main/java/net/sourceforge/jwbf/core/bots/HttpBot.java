@@ -18,14 +18,22 @@
  */
 package net.sourceforge.jwbf.core.bots;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
+import net.sourceforge.jwbf.core.actions.ActionMetrics;
+import net.sourceforge.jwbf.core.actions.BodyReader;
 import net.sourceforge.jwbf.core.actions.ContentProcessable;
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.GetPage;
 import net.sourceforge.jwbf.core.actions.HttpActionClient;
 import net.sourceforge.jwbf.core.actions.HttpActionClient.Builder;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * @author Thomas Stock
  */
@@ -52,11 +60,34 @@ public class HttpBot {
 
   /**
    * @return http raw content
+   * @see HttpActionClient#performAction(ContentProcessable)
    */
-  public synchronized String performAction(final ContentProcessable a) {
+  public String performAction(final ContentProcessable a) {
     return actionClient.performAction(a);
   }
 
+  /**
+   * @return http raw content
+   * @see HttpActionClient#performActionAsync(ContentProcessable)
+   */
+  public ListenableFuture<String> performActionAsync(final ContentProcessable a) {
+    return actionClient.performActionAsync(a);
+  }
+
+  /**
+   * @see HttpActionClient#getActionMetrics()
+   */
+  public ActionMetrics getActionMetrics() {
+    return actionClient.getActionMetrics();
+  }
+
+  /**
+   * @see HttpActionClient#invalidateResponseCache()
+   */
+  public void invalidateResponseCache() {
+    actionClient.invalidateResponseCache();
+  }
+
   /**
    * Simple method to get plain HTML or XML data e.g. from custom specialpages or xml newsfeeds.
    * 
@@ -76,14 +107,47 @@ public class HttpBot {
   }
 
   /**
-   * Simple method to get plain HTML or XML data e.g. from custom specialpages or xml newsfeeds.
+   * Simple method to get raw data e.g. from custom specialpages, xml newsfeeds or images.
    * 
    * @param u
    *          url like index.php?title=Main_Page
-   * @return HTML content
+   * @return the unchanged response body
    */
   public final byte[] getBytes(String u) {
-    return actionClient.get(new Get(u));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    download(u, Channels.newChannel(out));
+    return out.toByteArray();
+  }
+
+  /**
+   * Streams the response body unchanged to the target.
+   * 
+   * @param u
+   *          absolute or relative url like images/a/ab/Test.gif
+   * @return number of bytes written
+   * @see HttpActionClient#download(Get, WritableByteChannel)
+   */
+  public long download(String u, WritableByteChannel target) {
+    return actionClient.download(new Get(u), target);
+  }
+
+  /**
+   * Streams the response body to the file or resumes an incomplete download into it.
+   * 
+   * @return number of bytes written by this call
+   * @see HttpActionClient#download(Get, File)
+   */
+  public long download(String u, File file) {
+    return actionClient.download(new Get(u), file);
+  }
+
+  /**
+   * Hands the response body to the reader while it is received.
+   * 
+   * @see HttpActionClient#download(Get, BodyReader)
+   */
+  public <T> T download(String u, BodyReader<T> reader) {
+    return actionClient.download(new Get(u), reader);
   }
 
 }
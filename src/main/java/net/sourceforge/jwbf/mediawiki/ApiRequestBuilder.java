@@ -2,6 +2,7 @@ package net.sourceforge.jwbf.mediawiki;
 
 import net.sourceforge.jwbf.core.RequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
 
 public class ApiRequestBuilder extends RequestBuilder {
 
@@ -18,4 +19,25 @@ public class ApiRequestBuilder extends RequestBuilder {
     param("format", "xml");
     return this;
   }
+
+  /**
+   * Requests JSON with <code>formatversion=2</code>; wikis before 1.25 ignore the version and
+   * answer with version 1.
+   */
+  public ApiRequestBuilder formatJson() {
+    param("format", "json");
+    param("formatversion", "2");
+    return this;
+  }
+
+  /**
+   * @param format
+   *          or null for XML
+   */
+  public ApiRequestBuilder format(Format format) {
+    if (format == Format.JSON) {
+      return formatJson();
+    }
+    return formatXml();
+  }
 }
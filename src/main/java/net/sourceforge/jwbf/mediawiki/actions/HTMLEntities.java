@@ -1,7 +1,5 @@
 package net.sourceforge.jwbf.mediawiki.actions;
 
-import java.util.Hashtable;
-
 /**
  * Collection of static methods to convert special and extended characters into HTML entitities and vice versa.<br/>
  * <br/>
@@ -148,126 +146,147 @@ final class HTMLEntities {
       { ("&zwj;"), Integer.valueOf(8205) }, { ("&zwnj;"), Integer.valueOf(8204) } };
 
   /**
-   * Map to convert extended characters in html entities.
+   * Entities, which are missing in the table above, but are used by the XML output of the API.
    */
-  private static final Hashtable<Integer, String> HTMLENTITIES_MAP = new Hashtable<Integer, String>();
+  private static final Object[][] XML_ENTITIES_TABLE = { { ("&quot;"), Integer.valueOf(34) },
+      { ("&lt;"), Integer.valueOf(60) }, { ("&gt;"), Integer.valueOf(62) },
+      { ("&apos;"), Integer.valueOf(39) } };
+
+  /** Longest name or number between <code>&amp;</code> and <code>;</code>, e.g. "#x10FFFF". */
+  private static final int MAX_ENTITY_LENGTH = 10;
 
   /**
-   * Map to convert html entities in exteden characters.
+   * Open addressing hash table of entity names without <code>&amp;</code> and <code>;</code>; the
+   * slots are at least four times the entities, so probes are short. All entities are in the BMP.
    */
-  private static final Hashtable<String, Integer> UNHTMLENTITIES_MAP = new Hashtable<String, Integer>();
+  private static final int SLOTS = 1024;
+  private static final String[] NAMES = new String[SLOTS];
+  private static final char[] CHARS = new char[SLOTS];
 
-  // ==============================================================================
-  // METHODS
-  // ==============================================================================
+  static {
+    for (Object[][] table : new Object[][][] { HTML_ENTITIES_TABLE, XML_ENTITIES_TABLE }) {
+      for (Object[] entity : table) {
+        String name = (String) entity[0];
+        name = name.substring(1, name.length() - 1);
+        int slot = spread(name.hashCode());
+        while (NAMES[slot] != null) {
+          slot = (slot + 1) & (SLOTS - 1);
+        }
+        NAMES[slot] = name;
+        CHARS[slot] = (char) ((Integer) entity[1]).intValue();
+      }
+    }
+  }
 
-  /**
-   * Initialize HTML translation maps.
-   */
   private HTMLEntities() {
-    initializeEntitiesTables();
+    // do nothing
   }
 
-  /**
-   * Initialize HTML entities table.
-   */
-  private static void initializeEntitiesTables() {
-    // initialize html translation maps
-    for (int i = 0; i < HTML_ENTITIES_TABLE.length; ++i) {
-      HTMLENTITIES_MAP.put((Integer) HTML_ENTITIES_TABLE[i][1], (String) HTML_ENTITIES_TABLE[i][0]);
-      UNHTMLENTITIES_MAP.put((String) HTML_ENTITIES_TABLE[i][0],
-          (Integer) HTML_ENTITIES_TABLE[i][1]);
-    }
+  private static int spread(int hash) {
+    return (hash ^ (hash >>> 10)) & (SLOTS - 1);
   }
 
   /**
-   * Convert HTML entities to special and extended unicode characters equivalents.
+   * Convert HTML entities to special and extended unicode characters equivalents in one pass.
+   * Numeric entities may denote any code point; unknown or malformed entities are kept as they
+   * are. Without any <code>&amp;</code> the input is returned.
    * 
    * @param str
    *          input string
    * @return formatted string
-   * @see #htmlentities(String)
    */
   public static String unhtmlentities(String str) {
-
-    // initialize html translation maps table the first time is called
-    if (HTMLENTITIES_MAP.isEmpty()) {
-      initializeEntitiesTables();
+    int amp = str.indexOf('&');
+    if (amp < 0) {
+      return str;
     }
-
-    StringBuffer buf = new StringBuffer();
-
-    for (int i = 0; i < str.length(); ++i) {
-      char ch = str.charAt(i);
-      if (ch == '&') {
-        int semi = str.indexOf(';', i + 1);
-        if ((semi == -1) || ((semi - i) > 7)) {
-          buf.append(ch);
-          continue;
-        }
-        String entity = str.substring(i, semi + 1);
-        Integer iso;
-        if (entity.charAt(1) == ' ') {
-          buf.append(ch);
-          continue;
-        }
-        if (entity.charAt(1) == '#') {
-          if (entity.charAt(2) == 'x') {
-            iso = Integer.valueOf(Integer.parseInt(entity.substring(3, entity.length() - 1), 16));
-          } else {
-            iso = Integer.valueOf(entity.substring(2, entity.length() - 1));
-          }
-        } else {
-          iso = UNHTMLENTITIES_MAP.get(entity);
-        }
-        if (iso == null) {
-          buf.append(entity);
-        } else {
-          buf.append((char) (iso.intValue()));
-        }
-        i = semi;
-      } else {
-        buf.append(ch);
+    StringBuilder buf = null;
+    int start = 0;
+    while (amp >= 0) {
+      int semi = semicolonOf(str, amp);
+      int codePoint = semi < 0 ? -1 : codePointOf(str, amp + 1, semi);
+      if (codePoint < 0) {
+        amp = str.indexOf('&', amp + 1);
+        continue;
+      }
+      if (buf == null) {
+        buf = new StringBuilder(str.length());
       }
+      buf.append(str, start, amp).appendCodePoint(codePoint);
+      start = semi + 1;
+      amp = str.indexOf('&', start);
     }
-    return buf.toString();
+    if (buf == null) {
+      return str;
+    }
+    return buf.append(str, start, str.length()).toString();
   }
 
-  // methods to convert special characters
-
   /**
-   * Replace single quotes HTML entities with equivalent character.
-   * 
-   * @param str
-   *          the input string
-   * @return string with replaced single quotes
+   * @return the position of the semicolon, which ends the entity at <code>amp</code>, or -1
    */
-  private static String unhtmlSingleQuotes(String str) {
-    return str.replaceAll("&rsquo;", "\'");
+  private static int semicolonOf(String str, int amp) {
+    int end = Math.min(str.length(), amp + MAX_ENTITY_LENGTH + 2);
+    for (int i = amp + 1; i < end; i++) {
+      char c = str.charAt(i);
+      if (c == ';') {
+        return i > amp + 1 ? i : -1;
+      }
+      if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '#')) {
+        return -1;
+      }
+    }
+    return -1;
   }
 
   /**
-   * Replace single quotes HTML entities with equivalent character.
-   * 
-   * @param str
-   *          the input string
-   * @return string with replaced single quotes
+   * @return the code point of the name or number between <code>start</code> and <code>end</code>
+   *         or -1
    */
-  private static String unhtmlDoubleQuotes(String str) {
-    return str.replaceAll("&quot;", "\"");
+  private static int codePointOf(String str, int start, int end) {
+    if (str.charAt(start) != '#') {
+      return lookup(str, start, end);
+    }
+    int radix = 10;
+    int i = start + 1;
+    if (i < end && (str.charAt(i) == 'x' || str.charAt(i) == 'X')) {
+      radix = 16;
+      i++;
+    }
+    if (i == end) {
+      return -1;
+    }
+    int codePoint = 0;
+    for (; i < end; i++) {
+      int digit = Character.digit(str.charAt(i), radix);
+      if (digit < 0) {
+        return -1;
+      }
+      codePoint = codePoint * radix + digit;
+      if (codePoint > Character.MAX_CODE_POINT) {
+        return -1;
+      }
+    }
+    if (codePoint == 0 || codePoint >= Character.MIN_SURROGATE
+        && codePoint <= Character.MAX_SURROGATE) {
+      return -1;
+    }
+    return codePoint;
   }
 
-  /**
-   * Replace single and double quotes HTML entities with equivalent characters.
-   * 
-   * @param str
-   *          the input string
-   * @return string with replaced quotes
-   */
-  public static String unhtmlQuotes(String str) {
-    str = unhtmlDoubleQuotes(str); // convert double quotes
-    str = unhtmlSingleQuotes(str); // convert single quotes
-    return str;
+  private static int lookup(String str, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + str.charAt(i);
+    }
+    int length = end - start;
+    for (int slot = spread(hash); NAMES[slot] != null; slot = (slot + 1) & (SLOTS - 1)) {
+      String name = NAMES[slot];
+      if (name.length() == length && str.regionMatches(start, name, 0, length)) {
+        return CHARS[slot];
+      }
+    }
+    return -1;
   }
 
 }
@@ -18,12 +18,12 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions;
 
-import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
-import java.net.URLEncoder;
 import java.util.List;
 import java.util.Set;
 
+import net.sourceforge.jwbf.core.PercentEncoder;
+
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
@@ -177,6 +177,20 @@ public final class MediaWiki {
 
   }
 
+  /**
+   * Format of API responses.
+   * 
+   * @see net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot#useFormat(Format)
+   */
+  public enum Format {
+    XML
+    /**
+     * Requested with <code>formatversion=2</code>, which is ignored by wikis before 1.25; the
+     * actions read both versions.
+     */
+    , JSON;
+  }
+
   private MediaWiki() {
     // do nothing
   }
@@ -189,19 +203,13 @@ public final class MediaWiki {
    * @return encoded s
    */
   public static String encode(String s) {
-    try {
-      return URLEncoder.encode(s, MediaWiki.CHARSET);
-    } catch (UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
+    return PercentEncoder.encode(s);
   }
 
   /**
    * @return decoded s
    */
   public static String decode(final String s) {
-    String out = HTMLEntities.unhtmlentities(s);
-    out = HTMLEntities.unhtmlQuotes(out);
-    return out;
+    return HTMLEntities.unhtmlentities(s);
   }
 }
@@ -177,7 +177,7 @@ public class FileUpload extends MWAction {
     @Override
     public Deque<HttpAction> getActions() {
       getApiToken = new GetApiToken(Intoken.EDIT, simpleFile.getFilename(), bot.getVersion(),
-          bot.getUserinfo());
+          bot.getUserinfo(), bot.getFormat());
       actions.add(getApiToken.getNextMessage());
       return actions;
     }
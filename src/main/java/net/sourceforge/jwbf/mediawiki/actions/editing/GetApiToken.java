@@ -6,7 +6,9 @@ import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.contentRep.Userinfo;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiJsonReader;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 
 import org.jdom.Element;
@@ -34,6 +36,8 @@ public final class GetApiToken extends MWAction {
 
   private Intoken intoken = null;
 
+  private final Format format;
+
   private Get msg;
 
   /**
@@ -47,7 +51,16 @@ public final class GetApiToken extends MWAction {
    *          user info object if this action is not supported of the MediaWiki version connected to
    */
   public GetApiToken(Intoken intoken, String title, Version v, Userinfo ui) {
+    this(intoken, title, v, ui, Format.XML);
+  }
+
+  /**
+   * @param format
+   *          of the response
+   */
+  public GetApiToken(Intoken intoken, String title, Version v, Userinfo ui, Format format) {
     this.intoken = intoken;
+    this.format = format;
     generateTokenRequest(intoken, title);
 
   }
@@ -66,7 +79,7 @@ public final class GetApiToken extends MWAction {
     }
     msg = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("prop", "info") //
         .param("intoken", intoken.toString().toLowerCase()) //
         .param("titles", MediaWiki.encode(title)) //
@@ -96,7 +109,11 @@ public final class GetApiToken extends MWAction {
         log.debug("Got returning text: \"" + s + "\"");
       }
       try {
-        process(getRootElement(s));
+        if (format == Format.JSON) {
+          process(s);
+        } else {
+          process(getRootElement(s));
+        }
         // TODO check catch
       } catch (IllegalArgumentException e) {
         if (s.startsWith("unknown_action:")) {
@@ -134,6 +151,29 @@ public final class GetApiToken extends MWAction {
     return first;
   }
 
+  /**
+   * Reads the token from the page object of a JSON response.
+   */
+  private void process(String json) {
+    String key = intoken.toString().toLowerCase() + "token";
+    try (ApiJsonReader reader = newJsonReader(json)) {
+      while (reader.nextObject()) {
+        if (reader.getDepth() == 4 && token.isEmpty()) {
+          String value = reader.readValues().get(key);
+          if (value != null) {
+            token = value;
+          }
+        }
+      }
+    }
+    if (token.isEmpty()) {
+      throw new RuntimeException("Unknow reply. This is not a token.");
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("found token =" + token + "\n" + "for: " + msg.getRequest() + "\n");
+    }
+  }
+
   private void process(Element rootElement) {
     try {
       Element elem = rootElement.getChild("query").getChild("pages").getChild("page");
@@ -18,28 +18,32 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions.editing;
 
+import java.io.InputStream;
 import java.text.ParseException;
-import java.util.Iterator;
+import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.Get;
+import net.sourceforge.jwbf.core.actions.ReturningStreamProcessor;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
 import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiJsonReader;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiXmlReader;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 
-import org.jdom.Element;
-
 /**
- * Reads the content of a given article.
+ * Reads the content of a given article. The response is parsed while it is received, so the
+ * content is held in memory only once.
  * 
  * @author Thomas Stock
  */
 @Slf4j
-public class GetRevision extends MWAction {
+public class GetRevision extends MWAction implements ReturningStreamProcessor {
 
   private final SimpleArticle sa;
 
@@ -55,6 +59,8 @@ public class GetRevision extends MWAction {
 
   private final int properties;
 
+  private final Format format;
+
   private final Get msg;
 
   private boolean singleProcess = true;
@@ -63,17 +69,26 @@ public class GetRevision extends MWAction {
    * TODO follow redirects. TODO change constructor fild ordering; bot
    */
   public GetRevision(Version v, final String articlename, final int properties) {
+    this(v, articlename, properties, Format.XML);
+  }
+
+  /**
+   * @param format
+   *          of the response
+   */
+  public GetRevision(Version v, final String articlename, final int properties, Format format) {
     // if (!bot.getUserinfo().getRights().contains("read")) {
     // throw new
     // ActionException("reading is not permited, make sure that this account is able to read");
     // } FIXME check if
 
     this.properties = properties;
+    this.format = format;
     sa = new SimpleArticle();
     sa.setTitle(articlename);
     msg = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("prop", "revisions") //
         .param("titles", MediaWiki.encode(articlename)) //
         .param("rvprop", getDataProperties(properties) + getReversion(properties)) //
@@ -96,13 +111,41 @@ public class GetRevision extends MWAction {
 
       }
 
-      parse(s);
+      if (format == Format.JSON) {
+        try (ApiJsonReader reader = newJsonReader(s)) {
+          findContent(reader);
+        }
+      } else {
+        try (ApiXmlReader reader = newXmlReader(s)) {
+          findContent(reader);
+        }
+      }
       singleProcess = false;
 
     }
     return "";
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String processReturningStream(InputStream in, HttpAction ha) {
+    if (msg.getRequest().equals(ha.getRequest()) && singleProcess) {
+      if (format == Format.JSON) {
+        try (ApiJsonReader reader = newJsonReader(in, ha.getCharset())) {
+          findContent(reader);
+        }
+      } else {
+        try (ApiXmlReader reader = newXmlReader(in, ha.getCharset())) {
+          findContent(reader);
+        }
+      }
+      singleProcess = false;
+    }
+    return "";
+  }
+
   /**
    * TODO Not very nice implementation.
    */
@@ -147,73 +190,98 @@ public class GetRevision extends MWAction {
     return properties;
   }
 
-  private void parse(final String xml) {
-    Element root = getRootElementWithError(xml);
-    Element error = getErrorElement(root);
-    if (error != null) {
-      throw new ApiException(error.getAttributeValue("code") //
-          , error.getAttributeValue("info"));
-    }
-    findContent(root);
-  }
-
   public SimpleArticle getArticle() {
 
     return sa;
   }
 
-  private void findContent(final Element root) {
-
-    @SuppressWarnings("unchecked")
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("rev")) {
-
-        try {
-          sa.setText(element.getText());
-        } catch (NullPointerException e) {
-          if (log.isDebugEnabled()) {
-            log.debug("no text found");
-          }
-        }
+  /**
+   * Reads the attributes of each <code>rev</code> element before its text.
+   * 
+   * @throws ApiException
+   *           if the response contains an error
+   */
+  private void findContent(final ApiXmlReader reader) {
+    while (reader.nextElement()) {
+      if (reader.getName().equalsIgnoreCase("rev")) {
         if ((properties & FLAGS) > 0) {
-          if (element.getAttribute("minor") != null) {
+          if (reader.getAttribute("minor") != null) {
             sa.setMinorEdit(true);
           } else {
             sa.setMinorEdit(false);
           }
         }
 
-        sa.setRevisionId(getAttrValueOf(element, "revid"));
-        sa.setEditSummary(getAttrValueOf(element, "comment"));
-        sa.setEditor(getAttrValueOf(element, "user"));
+        sa.setRevisionId(getAttrValueOf(reader, "revid"));
+        sa.setEditSummary(getAttrValueOf(reader, "comment"));
+        sa.setEditor(getAttrValueOf(reader, "user"));
 
         if ((properties & TIMESTAMP) > 0) {
 
           try {
-            sa.setEditTimestamp(getAttrValueOf(element, "timestamp"));
+            sa.setEditTimestamp(getAttrValueOf(reader, "timestamp"));
           } catch (ParseException e) {
             log.debug("timestamp could not be parsed");
           }
         }
 
-      } else {
-        findContent(element);
+        sa.setText(reader.getText());
       }
-
     }
+  }
 
+  /**
+   * Reads each revision object; its content is named <code>*</code> in
+   * <code>formatversion=1</code> and <code>content</code> in <code>2</code>.
+   * 
+   * @throws ApiException
+   *           if the response contains an error
+   */
+  private void findContent(final ApiJsonReader reader) {
+    while (reader.nextObject()) {
+      if (reader.getName().equals("revisions")) {
+        Map<String, String> rev = reader.readValues();
+        if ((properties & FLAGS) > 0) {
+          sa.setMinorEdit(isFlagSet(rev.get("minor")));
+        }
+
+        sa.setRevisionId(getValueOf(rev, "revid"));
+        sa.setEditSummary(getValueOf(rev, "comment"));
+        sa.setEditor(getValueOf(rev, "user"));
+
+        if ((properties & TIMESTAMP) > 0) {
+
+          try {
+            sa.setEditTimestamp(getValueOf(rev, "timestamp"));
+          } catch (ParseException e) {
+            log.debug("timestamp could not be parsed");
+          }
+        }
+
+        if (rev.containsKey("content")) {
+          sa.setText(getValueOf(rev, "content"));
+        } else {
+          sa.setText(getValueOf(rev, "*"));
+        }
+      }
+    }
   }
 
-  private String getAttrValueOf(Element element, String key) {
-    return getAttrValueOf(element, key, "");
+  private static String getValueOf(Map<String, String> values, String key) {
+    String value = values.get(key);
+    if (value == null) {
+      log.trace("no value for {}", key);
+      return "";
+    }
+    return value;
   }
 
-  private String getAttrValueOf(Element element, String key, String otherwise) {
-    String value = null;
+  private String getAttrValueOf(ApiXmlReader reader, String key) {
+    return getAttrValueOf(reader, key, "");
+  }
 
-    value = element.getAttributeValue(key);
+  private String getAttrValueOf(ApiXmlReader reader, String key, String otherwise) {
+    String value = reader.getAttribute(key);
     if (value == null) {
       log.trace("no value for {}", key);
       return otherwise;
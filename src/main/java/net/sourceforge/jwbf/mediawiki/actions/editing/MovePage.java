@@ -72,7 +72,8 @@ public class MovePage extends MWAction {
    */
   public MovePage(MediaWikiBot bot, String oldtitle, String newtitle, String reason,
       boolean withsubpages, boolean noredirect) {
-    token = new GetApiToken(GetApiToken.Intoken.MOVE, oldtitle, bot.getVersion(), bot.getUserinfo());
+    token = new GetApiToken(GetApiToken.Intoken.MOVE, oldtitle, bot.getVersion(),
+        bot.getUserinfo(), bot.getFormat());
     this.oldtitle = oldtitle;
     this.newtitle = newtitle;
     this.reason = reason;
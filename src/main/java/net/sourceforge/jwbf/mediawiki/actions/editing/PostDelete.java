@@ -48,7 +48,8 @@ public class PostDelete extends MWAction {
    * Constructs a new <code>PostDelete</code> action.
    */
   public PostDelete(MediaWikiBot bot, String title) {
-    token = new GetApiToken(GetApiToken.Intoken.DELETE, title, bot.getVersion(), bot.getUserinfo());
+    token = new GetApiToken(GetApiToken.Intoken.DELETE, title, bot.getVersion(),
+        bot.getUserinfo(), bot.getFormat());
     this.title = title;
     if (title == null || title.length() == 0) {
       throw new IllegalArgumentException("The argument 'title' must not be null or empty");
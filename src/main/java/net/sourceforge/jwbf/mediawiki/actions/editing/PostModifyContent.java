@@ -80,7 +80,8 @@ public class PostModifyContent extends MWAction {
     }
     if (first) {
       first = false;
-      apiReq = new GetApiToken(GetApiToken.Intoken.EDIT, a.getTitle(), bot.getVersion(), userinfo);
+      apiReq = new GetApiToken(GetApiToken.Intoken.EDIT, a.getTitle(), bot.getVersion(),
+          userinfo, bot.getFormat());
       apiGet = apiReq.getNextMessage();
       return apiGet;
     } else if (second) {
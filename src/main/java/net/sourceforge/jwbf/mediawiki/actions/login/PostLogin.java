@@ -19,15 +19,16 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions.login;
 
-import java.util.HashMap;
+import java.util.Map;
 
-import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.Post;
 import net.sourceforge.jwbf.core.actions.util.ActionException;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.actions.util.ProcessException;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiJsonReader;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.contentRep.LoginData;
 
@@ -51,6 +52,7 @@ public class PostLogin extends MWAction {
   private final String username;
   private final String pw;
   private final String domain;
+  private final Format format;
 
   /**
    * @param username
@@ -63,11 +65,21 @@ public class PostLogin extends MWAction {
    *          a
    */
   public PostLogin(final String username, final String pw, final String domain, LoginData login) {
+    this(username, pw, domain, login, Format.XML);
+  }
+
+  /**
+   * @param format
+   *          of the response
+   */
+  public PostLogin(final String username, final String pw, final String domain,
+      LoginData login, Format format) {
     super();
     this.login = login;
     this.username = username;
     this.pw = pw;
     this.domain = domain;
+    this.format = format;
     msg = getLoginMsg(username, pw, domain, null);
 
   }
@@ -76,7 +88,7 @@ public class PostLogin extends MWAction {
       final String token) {
     Post pm = new ApiRequestBuilder() //
         .action("login") //
-        .formatXml() //
+        .format(format) //
         .buildPost();
     pm.addParam("lgname", username);
     pm.addParam("lgpassword", pw);
@@ -94,8 +106,19 @@ public class PostLogin extends MWAction {
   @Override
   public String processAllReturningText(final String s) {
 
-    Element root = getRootElement(s);
-    findContent(root);
+    if (format == Format.JSON) {
+      try (ApiJsonReader reader = newJsonReader(s)) {
+        while (reader.nextObject()) {
+          if (reader.getDepth() == 2 && reader.getName().equals("login")) {
+            Map<String, String> values = reader.readValues();
+            handleResult(values.get("result"), values.get("lgusername"), values.get("token"));
+          }
+        }
+      }
+    } else {
+      Element root = getRootElement(s);
+      findContent(root);
+    }
 
     return s;
   }
@@ -107,13 +130,15 @@ public class PostLogin extends MWAction {
   private void findContent(final Element startElement) {
 
     Element loginEl = startElement.getChild("login");
-    String result = loginEl.getAttributeValue("result");
+    handleResult(loginEl.getAttributeValue("result"), loginEl.getAttributeValue("lgusername"),
+        loginEl.getAttributeValue("token"));
+  }
+
+  private void handleResult(String result, String lgusername, String token) {
     if (result.equalsIgnoreCase(success)) {
-      val properties = new HashMap<String, String>();
-      properties.put("userId", loginEl.getAttribute("lguserid").toString());
-      login.setup(loginEl.getAttributeValue("lgusername"), true);
+      login.setup(lgusername, true);
     } else if (result.equalsIgnoreCase(needToken) && reTryLimit) {
-      msg = getLoginMsg(username, pw, domain, loginEl.getAttributeValue("token"));
+      msg = getLoginMsg(username, pw, domain, token);
       reTry = true;
       reTryLimit = false;
     } else if (result.equalsIgnoreCase(wrongPass)) {
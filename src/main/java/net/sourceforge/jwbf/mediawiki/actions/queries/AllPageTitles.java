@@ -20,15 +20,15 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.RequestTemplate;
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
@@ -45,16 +45,6 @@ import com.google.common.collect.Lists;
 @Slf4j
 public class AllPageTitles extends TitleQuery<String> {
 
-  /** Pattern to parse returned page, @see {@link #parseHasMore(String)}. */
-  private static final Pattern HAS_MORE_PATTERN = Pattern.compile(
-      "<query-continue>.*?<allpages *apfrom=\"([^\"]*)\" */>.*?</query-continue>", Pattern.DOTALL
-          | Pattern.MULTILINE);
-  private static final Pattern HAS_MORE_PATTERN_20 = Pattern.compile(
-      "<query-continue>.*?<allpages *apcontinue=\"([^\"]*)\" */>.*?</query-continue>",
-      Pattern.DOTALL | Pattern.MULTILINE);
-  private static final Pattern ARTICLE_TITLES_PATTERN = Pattern
-      .compile("<p pageid=\".*?\" ns=\".*?\" title=\"(.*?)\" />");
-  /** Pattern to parse returned page, @see {@link #parseArticleTitles(String)} */
   /** Constant value for the aplimit-parameter. **/
   private static final int LIMIT = 50;
 
@@ -70,6 +60,8 @@ public class AllPageTitles extends TitleQuery<String> {
 
   private final RedirectFilter rf;
 
+  private RequestTemplate requestTemplate;
+
   /**
    * The public constructor. It will have an MediaWiki-request generated, which is then added to msgs. When it is
    * answered, the method processAllReturningText will be called (from outside this class).
@@ -113,6 +105,22 @@ public class AllPageTitles extends TitleQuery<String> {
    * 
    * @param from
    *          page title to start from, may be null
+   * @return a
+   */
+  private Get generateRequest(String from) {
+    if (log.isTraceEnabled()) {
+      log.trace("enter GetAllPagetitles.generateRequest(String)");
+    }
+    if (requestTemplate == null) {
+      requestTemplate = newRequestTemplate(prefix, rf, namespaces, getFormat());
+    }
+    if (!Strings.isNullOrEmpty(from)) {
+      return requestTemplate.buildGet("apfrom", MediaWiki.encode(from));
+    }
+    return requestTemplate.buildGet();
+  }
+
+  /**
    * @param prefix
    *          restricts search to titles that begin with this value, may be null
    * @param rf
@@ -120,13 +128,12 @@ public class AllPageTitles extends TitleQuery<String> {
    * @param namespace
    *          the namespace(s) that will be searched for links, as a string of numbers separated by '|'; if null, this
    *          parameter is omitted
-   * @return a
+   * @param format
+   *          of the responses
+   * @return the params of all requests
    */
-  private Get generateRequest(String from, String prefix, RedirectFilter rf, String namespace) {
-    if (log.isTraceEnabled()) {
-      log.trace("enter GetAllPagetitles.generateRequest" + "(String,String,boolean,boolean,String)");
-    }
-
+  private static RequestTemplate newRequestTemplate(String prefix, RedirectFilter rf,
+      String namespace, Format format) {
     String apfilterredir;
     if (rf == RedirectFilter.all) {
       apfilterredir = "all";
@@ -137,22 +144,19 @@ public class AllPageTitles extends TitleQuery<String> {
     }
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("list", "allpages") //
         .param("apfilterredir", apfilterredir) //
         .param("aplimit", LIMIT + "") //
     ;
 
-    if (!Strings.isNullOrEmpty(from)) {
-      requestBuilder.param("apfrom", MediaWiki.encode(from));
-    }
     if (!Strings.isNullOrEmpty(prefix)) {
       requestBuilder.param("apprefix", MediaWiki.encode(prefix));
     }
     if (!Strings.isNullOrEmpty(namespace)) {
       requestBuilder.param("apnamespace", MediaWiki.encode(namespace));
     }
-    return requestBuilder.buildGet();
+    return requestBuilder.template();
   }
 
   /**
@@ -164,18 +168,8 @@ public class AllPageTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
-    if (log.isTraceEnabled()) {
-      log.trace("enter GetAllPagetitles.parseArticleTitles(String)");
-    }
     Collection<String> c = Lists.newArrayList();
-    Matcher m = ARTICLE_TITLES_PATTERN.matcher(s);
-    while (m.find()) {
-      String title = MediaWiki.decode(m.group(1));
-      if (log.isDebugEnabled()) {
-        log.debug("Found article title: \"" + title + "\"");
-      }
-      c.add(title);
-    }
+    parseXml(s, c);
     return c;
   }
 
@@ -189,30 +183,39 @@ public class AllPageTitles extends TitleQuery<String> {
    */
   @Override
   protected String parseHasMore(final String s) {
-    if (log.isTraceEnabled()) {
-      log.trace("enter GetAllPagetitles.parseHasMore(String)");
-    }
-    Pattern hasMorePattern = null;
+    return parseXml(s, Lists.<String> newArrayList());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseXml(String xml, Collection<String> titles) {
+    String next = parseXmlTitles(xml, "p", titles, continueKey());
+    log.debug("found {} article titles, continue with \"{}\"", titles.size(), next);
+    return next;
+  }
+
+  private String continueKey() {
     switch (bot.getVersion()) {
     case MW1_15:
     case MW1_16:
     case MW1_17:
     case MW1_18:
     case MW1_19:
-      hasMorePattern = HAS_MORE_PATTERN;
-      break;
+      return "apfrom";
 
     default:
-      hasMorePattern = HAS_MORE_PATTERN_20;
-      break;
+      return "apcontinue";
     }
+  }
 
-    Matcher m = hasMorePattern.matcher(s);
-    if (m.find()) {
-      return m.group(1);
-    } else {
-      return "";
-    }
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseJson(String json, Collection<String> titles) {
+    return parseJsonTitles(json, "allpages", titles, "apfrom", "apcontinue");
   }
 
   /**
@@ -221,7 +224,7 @@ public class AllPageTitles extends TitleQuery<String> {
   @Override
   protected HttpAction prepareCollection() {
 
-    return generateRequest(getNextPageInfo(), prefix, rf, namespaces);
+    return generateRequest(getNextPageInfo());
 
   }
 
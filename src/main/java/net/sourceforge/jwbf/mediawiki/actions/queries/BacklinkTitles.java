@@ -20,8 +20,6 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.RequestBuilder;
@@ -29,6 +27,7 @@ import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.actions.util.RedirectFilter;
@@ -89,7 +88,7 @@ public class BacklinkTitles extends TitleQuery<String> {
 
     this.articleName = articleName;
     this.bot = bot;
-    requestBuilder = createRequestBuilder(bot.getVersion());
+    requestBuilder = createRequestBuilder(bot.getVersion(), getFormat());
 
   }
 
@@ -112,20 +111,7 @@ public class BacklinkTitles extends TitleQuery<String> {
    */
   @Override
   protected String parseHasMore(final String s) {
-    log.trace(s);
-    // TODO do not use pattern matching
-    // get the blcontinue-value
-    Pattern p = Pattern.compile("<query-continue>.*?" + "<backlinks *blcontinue=\"([^\"]*)\" */>"
-        + ".*?</query-continue>", Pattern.DOTALL | Pattern.MULTILINE);
-
-    Matcher m = p.matcher(s);
-
-    if (m.find()) {
-      return m.group(1);
-    } else {
-      return "";
-    }
-
+    return parseXml(s, Lists.<String> newArrayList());
   }
 
   /**
@@ -136,21 +122,17 @@ public class BacklinkTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
-
-    // get the other backlink titles and add them all to the titleCollection
     Collection<String> titleCollection = Lists.newArrayList();
-
-    Pattern p = Pattern
-        .compile("<bl pageid=\".*?\" ns=\".*?\" title=\"([^\"]*)\" (redirect=\"\" )?/>");
-
-    Matcher m = p.matcher(s);
-
-    while (m.find()) {
-      titleCollection.add(m.group(1));
-
-    }
+    parseXml(s, titleCollection);
     return titleCollection;
+  }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseXml(String xml, Collection<String> titles) {
+    return parseXmlTitles(xml, "bl", titles, "blcontinue");
   }
 
   /**
@@ -158,17 +140,19 @@ public class BacklinkTitles extends TitleQuery<String> {
    * 
    * @param apiVersion
    *          for which the request builder is working.
+   * @param format
+   *          of the responses
    */
-  private RequestCreator createRequestBuilder(Version apiVersion) {
+  private RequestCreator createRequestBuilder(Version apiVersion, Format format) {
 
     switch (apiVersion) {
 
     case MW1_15:
     case MW1_16:
-      return new RequestCreator1x15();
+      return new RequestCreator1x15(format);
 
     default: // MW1_17 and up
-      return new RequestCreator1x17();
+      return new RequestCreator1x17(format);
 
     }
 
@@ -195,10 +179,10 @@ public class BacklinkTitles extends TitleQuery<String> {
 
   }
 
-  private static RequestBuilder newRequestBuilder() {
+  private static RequestBuilder newRequestBuilder(Format format) {
     return new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("list", "backlinks") //
         .param("bllimit", LIMIT + "") //
     ;
@@ -206,11 +190,18 @@ public class BacklinkTitles extends TitleQuery<String> {
 
   /** request builder for MW versions 1_17 onwards. */
   private static class RequestCreator1x17 implements RequestCreator {
+
+    private final Format format;
+
+    RequestCreator1x17(Format format) {
+      this.format = format;
+    }
+
     /**
      * {@inheritDoc}
      */
     public Get newInitialRequest(String articleName, RedirectFilter redirectFilter, int[] namespace) {
-      RequestBuilder requestBuilder = newRequestBuilder() //
+      RequestBuilder requestBuilder = newRequestBuilder(format) //
           .param("bltitle", MediaWiki.encode(articleName)) //
           .param("blfilterredir", MediaWiki.encode(redirectFilter.toString())) //
       ;
@@ -224,7 +215,7 @@ public class BacklinkTitles extends TitleQuery<String> {
      * {@inheritDoc}
      */
     public Get newContinueRequest(String articleName, String blcontinue) {
-      return newRequestBuilder() //
+      return newRequestBuilder(format) //
           .param("blcontinue", MediaWiki.encode(blcontinue)) //
           .param("bltitle", MediaWiki.encode(articleName)) //
           .buildGet();
@@ -234,11 +225,18 @@ public class BacklinkTitles extends TitleQuery<String> {
 
   /** request builder for MW versions 1_11 to (at least) 1_13. */
   private static class RequestCreator1x15 implements RequestCreator {
+
+    private final Format format;
+
+    RequestCreator1x15(Format format) {
+      this.format = format;
+    }
+
     /**
      * {@inheritDoc}
      */
     public Get newInitialRequest(String articleName, RedirectFilter redirectFilter, int[] namespace) {
-      RequestBuilder requestBuilder = newRequestBuilder() //
+      RequestBuilder requestBuilder = newRequestBuilder(format) //
           .param("bltitle", MediaWiki.encode(articleName)) //
           .param("blfilterredir", MediaWiki.encode(redirectFilter.toString())) //
       ;
@@ -252,13 +250,21 @@ public class BacklinkTitles extends TitleQuery<String> {
      * {@inheritDoc}
      */
     public Get newContinueRequest(String articleName, String blcontinue) {
-      return newRequestBuilder() //
+      return newRequestBuilder(format) //
           .param("blcontinue", MediaWiki.encode(blcontinue)) //
           .buildGet();
     }
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseJson(String json, Collection<String> titles) {
+    return parseJsonTitles(json, "backlinks", titles, "blcontinue");
+  }
+
   @Override
   protected HttpAction prepareCollection() {
     if (getNextPageInfo().length() > 0) {
@@ -18,17 +18,22 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.RequestTemplate;
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiJsonReader;
+import net.sourceforge.jwbf.mediawiki.actions.util.ListResponseScanner;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
+import com.google.common.base.Objects;
+
 /**
  * A abstract action class using the MediaWiki-api's "list=categorymembers ". For further information see <a href=
  * "http://www.mediawiki.org/wiki/API:Query_-_Lists#categorymembers_.2F_cm">API documentation</a>.
@@ -42,6 +47,7 @@ abstract class CategoryMembers extends MWAction {
   protected static final int LIMIT = 50;
 
   protected final MediaWikiBot bot;
+  private final Format format;
   /**
    * information necessary to get the next api page.
    */
@@ -67,6 +73,7 @@ abstract class CategoryMembers extends MWAction {
     namespaceStr = createNsString(namespace);
     this.categoryName = categoryName.replace(" ", "_");
     this.bot = bot;
+    this.format = Objects.firstNonNull(bot.getFormat(), Format.XML);
     createRequestor();
 
   }
@@ -115,59 +122,63 @@ abstract class CategoryMembers extends MWAction {
    */
   @Override
   public String processAllReturningText(final String s) {
-    parseArticleTitles(s);
-    parseHasMore(s);
+    if (format == Format.JSON) {
+      parseJson(s);
+    } else {
+      parseXml(s);
+    }
     return "";
   }
 
   /**
-   * gets the information about a follow-up page from a provided api response. If there is one, a new request is added
-   * to msgs by calling generateRequest.
+   * picks the members and the information about a follow-up page from a JSON response.
    * 
-   * @param s
+   * @param json
    *          text for parsing
    */
-  private void parseHasMore(final String s) {
-
-    // get the blcontinue-value
-
-    Pattern p = Pattern.compile("<query-continue>.*?"
-        + "<categorymembers *cmcontinue=\"([^\"]*)\" */>" + ".*?</query-continue>", Pattern.DOTALL
-        | Pattern.MULTILINE);
-
-    Matcher m = p.matcher(s);
-
-    if (m.find()) {
-      nextPageInfo = m.group(1);
-      hasMoreResults = true;
-    } else {
-      hasMoreResults = false;
+  private void parseJson(final String json) {
+    hasMoreResults = false;
+    try (ApiJsonReader reader = newJsonReader(json)) {
+      while (reader.nextObject()) {
+        String name = reader.getName();
+        int depth = reader.getDepth();
+        if (depth == 4 && name.equals("categorymembers")) {
+          Map<String, String> cm = reader.readValues();
+          addCatItem(cm.get("title"), Integer.parseInt(cm.get("pageid")),
+              Integer.parseInt(cm.get("ns")));
+        } else if (depth == 3 && name.equals("categorymembers") || depth == 2
+            && name.equals("continue")) {
+          String cmcontinue = reader.readValues().get("cmcontinue");
+          if (cmcontinue != null) {
+            nextPageInfo = cmcontinue;
+            hasMoreResults = true;
+          }
+        }
+      }
     }
-    if (log.isDebugEnabled())
-      log.debug("has more = " + hasMoreResults);
-
+    finalizeParse();
+    log.debug("has more = {}", hasMoreResults);
   }
 
   /**
-   * picks the article name from a MediaWiki api response.
+   * picks the members and the information about a follow-up page from an XML response in one pass.
    * 
-   * @param s
+   * @param xml
    *          text for parsing
    */
-  private final void parseArticleTitles(String s) {
-
-    // get the backlink titles and add them all to the titleCollection
-
-    Pattern p = Pattern.compile("<cm pageid=\"(.*?)\" ns=\"(.*?)\" title=\"(.*?)\" />");
-
-    Matcher m = p.matcher(s);
-
-    while (m.find()) {
-
-      addCatItem(m.group(3), Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
-
+  private void parseXml(final String xml) {
+    ListResponseScanner scanner = newListScanner(xml, "cm");
+    while (scanner.nextItem()) {
+      addCatItem(scanner.getAttribute("title"), Integer.parseInt(scanner.getAttribute("pageid")),
+          Integer.parseInt(scanner.getAttribute("ns")));
+    }
+    String cmcontinue = scanner.getContinue("cmcontinue");
+    hasMoreResults = cmcontinue != null;
+    if (hasMoreResults) {
+      nextPageInfo = cmcontinue;
     }
     finalizeParse();
+    log.debug("has more = {}", hasMoreResults);
   }
 
   protected abstract void finalizeParse();
@@ -178,18 +189,21 @@ abstract class CategoryMembers extends MWAction {
 
     private static final String CMTITLE = "cmtitle";
 
+    private RequestTemplate continueTemplate;
+
     RequestGenerator() {
 
     }
 
     String continiue(String cmcontinue) {
-      RequestBuilder requestBuilder = newRequestBuilder();
-
-      requestBuilder.param("cmcontinue", MediaWiki.encode(cmcontinue));
-      requestBuilder.param(CMTITLE, "Category:" + MediaWiki.encode(categoryName));
-      // TODO: do not add Category: - instead, change other methods' descs (e.g.
-      // in MediaWikiBot)
-      return requestBuilder.build();
+      if (continueTemplate == null) {
+        RequestBuilder requestBuilder = newRequestBuilder();
+        requestBuilder.param(CMTITLE, "Category:" + MediaWiki.encode(categoryName));
+        // TODO: do not add Category: - instead, change other methods' descs (e.g.
+        // in MediaWikiBot)
+        continueTemplate = requestBuilder.template();
+      }
+      return continueTemplate.build("cmcontinue", MediaWiki.encode(cmcontinue));
     }
 
     private RequestBuilder newRequestBuilder() {
@@ -200,7 +214,7 @@ abstract class CategoryMembers extends MWAction {
 
       requestBuilder //
           .action("query") //
-          .formatXml() //
+          .format(format) //
           .param("list", "categorymembers") //
           .param("cmlimit", LIMIT + "") //
       ;
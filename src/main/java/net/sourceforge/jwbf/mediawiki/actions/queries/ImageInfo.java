@@ -3,6 +3,8 @@ package net.sourceforge.jwbf.mediawiki.actions.queries;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
@@ -12,6 +14,7 @@ import javax.imageio.ImageIO;
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.JWBF;
 import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.actions.BodyReader;
 import net.sourceforge.jwbf.core.actions.Get;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.actions.util.ProcessException;
@@ -143,8 +146,17 @@ public class ImageInfo extends MWAction {
     return selfEx;
   }
 
+  /**
+   * @return the image downloaded with the client of the bot
+   */
   public BufferedImage getAsImage() throws IOException {
-    return ImageIO.read(getUrl());
+    return bot.download(getUrlAsString(), new BodyReader<BufferedImage>() {
+
+      @Override
+      public BufferedImage read(ReadableByteChannel body) throws IOException {
+        return ImageIO.read(Channels.newInputStream(body));
+      }
+    });
   }
 
   /**
@@ -20,8 +20,6 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.RequestBuilder;
@@ -115,9 +113,7 @@ public class ImageUsageTitles extends TitleQuery<String> {
    */
   @Override
   protected String parseHasMore(final String s) {
-
-    return handler.parseHasMore(s);
-
+    return parseXml(s, Lists.<String> newArrayList());
   }
 
   /**
@@ -128,9 +124,25 @@ public class ImageUsageTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
+    Collection<String> titleCollection = Lists.newArrayList();
+    parseXml(s, titleCollection);
+    return titleCollection;
+  }
 
-    return handler.parseArticleTitles(s);
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseXml(String xml, Collection<String> titles) {
+    return parseXmlTitles(xml, "iu", titles, "iucontinue");
+  }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseJson(String json, Collection<String> titles) {
+    return parseJsonTitles(json, "imageusage", titles, "iucontinue");
   }
 
   @Override
@@ -162,16 +174,12 @@ public class ImageUsageTitles extends TitleQuery<String> {
 
     public abstract Get generateContinueRequest(String imageName, String namespace,
         String ilcontinue);
-
-    public abstract String parseHasMore(final String s);
-
-    public abstract Collection<String> parseArticleTitles(String s);
   }
 
   private RequestBuilder newRequestBuilder() {
     return new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getFormat()) //
         .param("list", "imageusage") //
         .param("iulimit", LIMIT + "") //
     ;
@@ -200,37 +208,6 @@ public class ImageUsageTitles extends TitleQuery<String> {
 
     }
 
-    @Override
-    public Collection<String> parseArticleTitles(String s) {
-      Collection<String> titleCollection = Lists.newArrayList();
-
-      Pattern p = Pattern.compile("<iu pageid=\".*?\" ns=\".*?\" title=\"(.*?)\" />");
-
-      Matcher m = p.matcher(s);
-
-      while (m.find()) {
-        titleCollection.add(m.group(1));
-      }
-      return titleCollection;
-    }
-
-    @Override
-    public String parseHasMore(String s) {
-
-      Pattern p = Pattern.compile("<query-continue>.*?"
-          + "<imageusage *iucontinue=\"([^\"]*)\" */>" + ".*?</query-continue>", Pattern.DOTALL
-          | Pattern.MULTILINE);
-
-      Matcher m = p.matcher(s);
-
-      if (m.find()) {
-        return m.group(1);
-      } else {
-        return "";
-      }
-
-    }
-
   }
 
   /**
@@ -258,37 +235,6 @@ public class ImageUsageTitles extends TitleQuery<String> {
 
     }
 
-    @Override
-    public Collection<String> parseArticleTitles(String s) {
-      Collection<String> titleCollection = Lists.newArrayList();
-
-      Pattern p = Pattern.compile("<iu pageid=\".*?\" ns=\".*?\" title=\"(.*?)\" />");
-
-      Matcher m = p.matcher(s);
-
-      while (m.find()) {
-        titleCollection.add(m.group(1));
-      }
-      return titleCollection;
-    }
-
-    @Override
-    public String parseHasMore(String s) {
-
-      Pattern p = Pattern.compile("<query-continue>.*?"
-          + "<imageusage *iucontinue=\"([^\"]*)\" */>" + ".*?</query-continue>", Pattern.DOTALL
-          | Pattern.MULTILINE);
-
-      Matcher m = p.matcher(s);
-
-      if (m.find()) {
-        return m.group(1);
-      } else {
-        return "";
-      }
-
-    }
-
   }
 
 }
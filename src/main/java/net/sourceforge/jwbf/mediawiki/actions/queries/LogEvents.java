@@ -20,6 +20,7 @@ package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,12 +31,14 @@ import net.sourceforge.jwbf.core.actions.util.ActionException;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.actions.util.ProcessException;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiJsonReader;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiXmlReader;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 import net.sourceforge.jwbf.mediawiki.contentRep.LogItem;
 
-import org.jdom.Element;
-
+import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
 
 /**
@@ -62,6 +65,7 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
   public static final String MERGE = "merge";
 
   private final int limit;
+  private final Format format;
 
   private Get msg;
   private final MediaWikiBot bot;
@@ -116,13 +120,14 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
     this.bot = bot;
     this.type = type;
     this.limit = limit;
+    this.format = Objects.firstNonNull(bot.getFormat(), Format.XML);
   }
 
   private Get generateRequest(String... logtype) {
 
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(format) //
         .param("list", "logevents") //
         .param("lelimit", limit + "") //
     ;
@@ -149,8 +154,12 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
   @Override
   public String processAllReturningText(final String s) {
     logCollection.clear();
-    parseArticleTitles(s);
-    parseHasMore(s);
+    if (format == Format.JSON) {
+      parseJson(s);
+    } else {
+      parseArticleTitles(s);
+      parseHasMore(s);
+    }
     logIterator = logCollection.iterator();
     return "";
   }
@@ -163,8 +172,9 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
    */
   private void parseArticleTitles(String xml) {
 
-    Element root = getRootElement(xml);
-    findContent(root);
+    try (ApiXmlReader reader = newXmlReader(xml)) {
+      findContent(reader);
+    }
 
   }
 
@@ -194,24 +204,50 @@ public class LogEvents extends MWAction implements Iterator<LogItem>, Iterable<L
 
   }
 
-  @SuppressWarnings("unchecked")
-  private void findContent(final Element root) {
+  /**
+   * Picks the log events and the information about a follow-up page from a JSON response.
+   */
+  private void parseJson(final String json) {
+    hasMoreResults = false;
+    try (ApiJsonReader reader = newJsonReader(json)) {
+      while (reader.nextObject()) {
+        String name = reader.getName();
+        int depth = reader.getDepth();
+        if (depth == 4 && name.equals("logevents")) {
+          Map<String, String> item = reader.readValues();
+          LogItem l = new LogItem();
+          l.setTitle(item.get("title"));
+          l.setType(item.get("type"));
+          l.setUser(item.get("user"));
+          logCollection.add(l);
+        } else if (depth == 3 && name.equals("logevents") || depth == 2
+            && name.equals("continue")) {
+          Map<String, String> values = reader.readValues();
+          String next = values.get("lestart");
+          if (next == null) {
+            next = values.get("lecontinue");
+          }
+          if (next != null) {
+            nextPageInfo = next;
+            hasMoreResults = true;
+          }
+        }
+      }
+    }
+    log.debug("has more = {}", hasMoreResults);
+  }
 
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("item")) {
+  private void findContent(final ApiXmlReader reader) {
+    while (reader.nextElement()) {
+      if (reader.getName().equalsIgnoreCase("item")) {
 
         LogItem l = new LogItem();
-        l.setTitle(element.getAttributeValue("title"));
-        l.setType(element.getAttributeValue("type"));
-        l.setUser(element.getAttributeValue("user"));
+        l.setTitle(reader.getAttribute("title"));
+        l.setType(reader.getAttribute("type"));
+        l.setUser(reader.getAttribute("user"));
         logCollection.add(l);
 
-      } else {
-        findContent(element);
       }
-
     }
   }
 
@@ -19,7 +19,7 @@
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import lombok.extern.slf4j.Slf4j;
@@ -27,11 +27,12 @@ import net.sourceforge.jwbf.core.RequestBuilder;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiJsonReader;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiXmlReader;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
-import org.jdom.Element;
-
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -100,7 +101,7 @@ public class RecentchangeTitles extends TitleQuery<String> {
 
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getFormat()) //
         .param("list", "recentchanges") //
         .param("rclimit", limit + "") //
     ;
@@ -156,29 +157,43 @@ public class RecentchangeTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
-    Element root = getRootElement(s);
-    findContent(root);
+    if (getFormat() == Format.JSON) {
+      try (ApiJsonReader reader = newJsonReader(s)) {
+        findContent(reader);
+      }
+    } else {
+      try (ApiXmlReader reader = newXmlReader(s)) {
+        findContent(reader);
+      }
+    }
     return titleCollection;
 
   }
 
-  @SuppressWarnings("unchecked")
-  private void findContent(final Element root) {
-
-    Iterator<Element> el = root.getChildren().iterator();
-    while (el.hasNext()) {
-      Element element = el.next();
-      if (element.getQualifiedName().equalsIgnoreCase("rc")) {
+  private void findContent(final ApiJsonReader reader) {
+    while (reader.nextObject()) {
+      if (reader.getDepth() == 4 && reader.getName().equals("recentchanges")) {
+        Map<String, String> rc = reader.readValues();
         if (find < limit) {
-          titleCollection.add(MediaWiki.decode(element.getAttributeValue("title")));
+          titleCollection.add(rc.get("title"));
         }
 
-        nextPageInfo = element.getAttribute("timestamp").getValue();
+        nextPageInfo = rc.get("timestamp");
         find++;
-      } else {
-        findContent(element);
       }
+    }
+  }
+
+  private void findContent(final ApiXmlReader reader) {
+    while (reader.nextElement()) {
+      if (reader.getName().equalsIgnoreCase("rc")) {
+        if (find < limit) {
+          titleCollection.add(MediaWiki.decode(reader.getAttribute("title")));
+        }
 
+        nextPageInfo = reader.getAttribute("timestamp");
+        find++;
+      }
     }
   }
 
@@ -19,20 +19,19 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions.queries;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.RequestBuilder;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 
 /**
  * action class using the MediaWiki-api's "list=embeddedin" that is used to find all articles which use a template.
@@ -47,12 +46,6 @@ public class TemplateUserTitles extends TitleQuery<String> {
   /** constant value for the eilimit-parameter. **/
   private static final int LIMIT = 50;
   private final MediaWikiBot bot;
-  /**
-   * Collection that will contain the result (titles of articles using the template) after performing the action has
-   * finished.
-   */
-  private final Collection<String> titleCollection = new ArrayList<String>();
-
   private final String templateName;
   private final int[] namespaces;
 
@@ -84,7 +77,7 @@ public class TemplateUserTitles extends TitleQuery<String> {
 
     RequestBuilder requestBuilder = new ApiRequestBuilder() //
         .action("query") //
-        .formatXml() //
+        .format(getFormat()) //
         .param("list", "embeddedin") //
         .param("eilimit", LIMIT + "") //
         .param("eititle", MediaWiki.encode(templateName)) //
@@ -101,21 +94,6 @@ public class TemplateUserTitles extends TitleQuery<String> {
 
   }
 
-  /**
-   * deals with the MediaWiki api's response by parsing the provided text.
-   * 
-   * @param s
-   *          the answer to the most recently generated MediaWiki-request
-   * @return empty string
-   */
-  @Override
-  public String processAllReturningText(final String s) {
-    parseArticleTitles(s);
-    parseHasMore(s);
-    titleIterator = titleCollection.iterator();
-    return "";
-  }
-
   /**
    * gets the information about a follow-up page from a provided api response. If there is one, a new request is added
    * to msgs by calling generateRequest.
@@ -125,22 +103,7 @@ public class TemplateUserTitles extends TitleQuery<String> {
    */
   @Override
   protected String parseHasMore(final String s) {
-
-    // get the eicontinue-value
-
-    Pattern p = Pattern.compile("<query-continue>.*?" + "<embeddedin *eicontinue=\"([^\"]*)\" */>"
-        + ".*?</query-continue>", Pattern.DOTALL | Pattern.MULTILINE);
-
-    Matcher m = p.matcher(s);
-
-    if (m.find()) {
-      return m.group(1);
-
-    } else {
-      return "";
-
-    }
-
+    return parse(s, Lists.<String> newArrayList());
   }
 
   /**
@@ -151,18 +114,32 @@ public class TemplateUserTitles extends TitleQuery<String> {
    */
   @Override
   protected Collection<String> parseArticleTitles(String s) {
+    Collection<String> titleCollection = Lists.newArrayList();
+    parse(s, titleCollection);
+    return titleCollection;
+  }
 
-    // get the backlink titles and add them all to the titleCollection
-
-    Pattern p = Pattern.compile("<ei pageid=\".*?\" ns=\".*?\" title=\"(.*?)\" />");
-
-    Matcher m = p.matcher(s);
-
-    while (m.find()) {
-      titleCollection.add(m.group(1));
+  private String parse(String s, Collection<String> titles) {
+    if (getFormat() == Format.JSON) {
+      return parseJson(s, titles);
     }
+    return parseXml(s, titles);
+  }
 
-    return titleCollection;
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseXml(String xml, Collection<String> titles) {
+    return parseXmlTitles(xml, "ei", titles, "eicontinue");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected String parseJson(String json, Collection<String> titles) {
+    return parseJsonTitles(json, "embeddedin", titles, "eicontinue");
   }
 
   @Override
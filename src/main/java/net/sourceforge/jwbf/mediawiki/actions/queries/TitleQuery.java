@@ -2,12 +2,17 @@ package net.sourceforge.jwbf.mediawiki.actions.queries;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiJsonReader;
+import net.sourceforge.jwbf.mediawiki.actions.util.ListResponseScanner;
 import net.sourceforge.jwbf.mediawiki.actions.util.MWAction;
 import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
 
 /**
@@ -23,6 +28,7 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
   protected Iterator<T> titleIterator;
   private final InnerAction inner;
   private final MediaWikiBot bot;
+  private final Format format;
 
   /** Information necessary to get the next api page. */
   protected String nextPageInfo = "";
@@ -33,9 +39,18 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
 
   protected TitleQuery(MediaWikiBot bot) {
     this.bot = bot;
+    format = Objects.firstNonNull(bot.getFormat(), Format.XML);
     inner = getInnerAction();
   }
 
+  /**
+   * @return the format of requests and responses, as configured by the bot when this query was
+   *         created
+   */
+  protected final Format getFormat() {
+    return format;
+  }
+
   protected InnerAction getInnerAction() {
     return new InnerAction();
   }
@@ -106,6 +121,100 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
 
   protected abstract String parseHasMore(final String s);
 
+  /**
+   * Picks the items and the information about a follow-up page from an XML response. Subclasses
+   * should override this to read both in one pass; by default the response is read by
+   * {@link #parseArticleTitles(String)} and {@link #parseHasMore(String)}.
+   * 
+   * @param items
+   *          to add the items to
+   * @return the information necessary to get the next api page or an empty string
+   */
+  protected String parseXml(String xml, Collection<T> items) {
+    items.addAll(parseArticleTitles(xml));
+    return parseHasMore(xml);
+  }
+
+  /**
+   * Picks the titles of a list and the value to continue it with from an XML response in one pass.
+   * 
+   * @param item
+   *          name of the elements of the list, like <code>p</code> for <code>allpages</code>
+   * @param continueKeys
+   *          parameters, which continue the list, like <code>apcontinue</code>
+   * @return the value to continue with or an empty string
+   * @see ListResponseScanner
+   */
+  protected final String parseXmlTitles(String xml, String item,
+      Collection<? super String> titles, String... continueKeys) {
+    ListResponseScanner scanner = newListScanner(xml, item);
+    while (scanner.nextItem()) {
+      String title = scanner.getAttribute("title");
+      if (title != null) {
+        titles.add(title);
+      }
+    }
+    for (String key : continueKeys) {
+      String next = scanner.getContinue(key);
+      if (next != null) {
+        return next;
+      }
+    }
+    return "";
+  }
+
+  /**
+   * Picks the items and the information about a follow-up page from a JSON response in one pass.
+   * Subclasses, which request JSON with {@link #getFormat()}, should override this; by default the
+   * response is read by {@link #parseArticleTitles(String)} and {@link #parseHasMore(String)} like
+   * by {@link #parseXml(String, Collection)}, so subclasses, which always request XML, keep
+   * working if the bot prefers JSON.
+   * 
+   * @param items
+   *          to add the items to
+   * @return the information necessary to get the next api page or an empty string
+   */
+  protected String parseJson(String json, Collection<T> items) {
+    items.addAll(parseArticleTitles(json));
+    return parseHasMore(json);
+  }
+
+  /**
+   * Picks the titles of a list and the value to continue it with from a JSON response. The value
+   * is read from <code>query-continue</code> or from <code>continue</code>, which replaced it in
+   * MediaWiki 1.26.
+   * 
+   * @param list
+   *          like <code>allpages</code>
+   * @param continueKeys
+   *          parameters, which continue the list, like <code>apcontinue</code>
+   * @return the value to continue with or an empty string
+   */
+  protected final String parseJsonTitles(String json, String list,
+      Collection<? super String> titles, String... continueKeys) {
+    String next = "";
+    try (ApiJsonReader reader = newJsonReader(json)) {
+      while (reader.nextObject()) {
+        String name = reader.getName();
+        int depth = reader.getDepth();
+        if (depth == 4 && list.equals(name)) {
+          String title = reader.readValues().get("title");
+          if (title != null) {
+            titles.add(title);
+          }
+        } else if (depth == 3 && list.equals(name) || depth == 2 && "continue".equals(name)) {
+          Map<String, String> values = reader.readValues();
+          for (String key : continueKeys) {
+            if (values.get(key) != null) {
+              next = values.get(key);
+            }
+          }
+        }
+      }
+    }
+    return next;
+  }
+
   /**
    * Inner helper class for this type.
    * 
@@ -135,8 +244,11 @@ public abstract class TitleQuery<T> extends MWAction implements Iterable<T>, Ite
     public String processAllReturningText(final String s) {
       Collection<T> knownResults = Lists.newArrayList();
 
-      knownResults.addAll(parseArticleTitles(s));
-      nextPageInfo = parseHasMore(s);
+      if (format == Format.JSON) {
+        nextPageInfo = parseJson(s, knownResults);
+      } else {
+        nextPageInfo = parseXml(s, knownResults);
+      }
 
       titleIterator = knownResults.iterator();
       return "";
@@ -0,0 +1,337 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Pulls the objects of a JSON API response one after another, without building a tree. Responses
+ * of <code>formatversion=1</code> and <code>2</code> are read alike: each object is known by the
+ * name of the member it is the value of, or by the name of the array it is an element of, and by
+ * its depth. An <code>error</code> object below the root is reported as {@link ApiException} when
+ * it is reached.
+ * 
+ * <pre>
+ * try (ApiJsonReader reader = newJsonReader(json)) {
+ *   while (reader.nextObject()) {
+ *     if (&quot;allpages&quot;.equals(reader.getName()) &amp;&amp; reader.getDepth() == 4) {
+ *       String title = reader.readValues().get(&quot;title&quot;);
+ *     }
+ *   }
+ * }
+ * </pre>
+ * 
+ * @see MWAction#newJsonReader(String)
+ */
+@Slf4j
+public final class ApiJsonReader implements AutoCloseable {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int END = -1;
+  private static final int STRING = '"';
+  private static final int LITERAL = 'l';
+
+  private final Reader in;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int pos = 0;
+  private int limit = 0;
+
+  private final StringBuilder text = new StringBuilder();
+
+  private String[] names = new String[16];
+  private boolean[] objects = new boolean[16];
+  private int depth = 0;
+  private boolean entered = false;
+
+  private ApiJsonReader(Reader in) {
+    this.in = in;
+  }
+
+  static ApiJsonReader of(Reader in) {
+    return new ApiJsonReader(in);
+  }
+
+  static ApiJsonReader of(InputStream in, String charset) {
+    try {
+      return new ApiJsonReader(new InputStreamReader(in, charset));
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Moves into the next object in document order, the root object first.
+   * 
+   * @return false at the end of the document
+   * @throws ApiException
+   *           if the next object is an error of the API
+   */
+  public boolean nextObject() {
+    entered = false;
+    while (true) {
+      int token = nextToken();
+      if (token == END) {
+        return false;
+      } else if (token == '}' || token == ']') {
+        depth--;
+        continue;
+      } else if (token == ',') {
+        continue;
+      }
+      String name;
+      if (depth > 0 && objects[depth - 1]) {
+        name = readName(token);
+        token = nextToken();
+      } else if (depth > 0) {
+        name = names[depth - 1];
+      } else {
+        name = "";
+      }
+      if (token == '{') {
+        push(name, true);
+        entered = true;
+        if (depth == 2 && "error".equals(name)) {
+          Map<String, String> error = readValues();
+          log.error(error.get("code") + ": " + error.get("info"));
+          throw new ApiException(error.get("code"), error.get("info"));
+        }
+        return true;
+      } else if (token == '[') {
+        push(name, false);
+      } else if (token != STRING && token != LITERAL) {
+        throw malformed(token);
+      }
+    }
+  }
+
+  /**
+   * @return the name of the member, which has the current object as value, or the name of the
+   *         array, which contains the current object; empty for the root object
+   */
+  public String getName() {
+    return names[depth - 1];
+  }
+
+  /**
+   * @return the number of objects and arrays around and including the current object; the root
+   *         object is on level 1
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Reads the members of the object just entered by {@link #nextObject()} up to its end. Objects
+   * and arrays within are skipped; numbers and booleans are returned as they are written and
+   * <code>null</code> as null.
+   */
+  public Map<String, String> readValues() {
+    Preconditions.checkState(entered, "not at the start of an object");
+    entered = false;
+    Map<String, String> values = Maps.newHashMap();
+    while (true) {
+      int token = nextToken();
+      if (token == '}') {
+        depth--;
+        return values;
+      } else if (token == ',') {
+        continue;
+      }
+      String name = readName(token);
+      token = nextToken();
+      if (token == STRING) {
+        values.put(name, text.toString());
+      } else if (token == LITERAL) {
+        values.put(name, "null".contentEquals(text) ? null : text.toString());
+      } else if (token == '{' || token == '[') {
+        skipContainer();
+      } else {
+        throw malformed(token);
+      }
+    }
+  }
+
+  private String readName(int token) {
+    if (token != STRING) {
+      throw malformed(token);
+    }
+    String name = text.toString();
+    int colon = nextToken();
+    if (colon != ':') {
+      throw malformed(colon);
+    }
+    return name;
+  }
+
+  private void skipContainer() {
+    int level = 1;
+    while (level > 0) {
+      int token = nextToken();
+      if (token == '{' || token == '[') {
+        level++;
+      } else if (token == '}' || token == ']') {
+        level--;
+      } else if (token == END) {
+        throw malformed(token);
+      }
+    }
+  }
+
+  private void push(String name, boolean object) {
+    if (depth == names.length) {
+      names = Arrays.copyOf(names, depth * 2);
+      objects = Arrays.copyOf(objects, depth * 2);
+    }
+    names[depth] = name;
+    objects[depth] = object;
+    depth++;
+  }
+
+  /**
+   * @return a structural character, {@link #STRING} or {@link #LITERAL} with its value in
+   *         {@link #text}, or {@link #END}
+   */
+  private int nextToken() {
+    int c;
+    do {
+      c = read();
+    } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+    switch (c) {
+    case END:
+    case '{':
+    case '}':
+    case '[':
+    case ']':
+    case ':':
+    case ',':
+      return c;
+    case '"':
+      readString();
+      return STRING;
+    default:
+      readLiteral(c);
+      return LITERAL;
+    }
+  }
+
+  private void readString() {
+    text.setLength(0);
+    while (true) {
+      int start = pos;
+      while (pos < limit) {
+        char c = buffer[pos];
+        if (c == '"' || c == '\\') {
+          break;
+        }
+        pos++;
+      }
+      text.append(buffer, start, pos - start);
+      int c = read();
+      if (c == '"') {
+        return;
+      } else if (c == '\\') {
+        text.append(readEscaped());
+      } else if (c == END) {
+        throw malformed(c);
+      } else {
+        // buffer was exhausted, the read char is part of the string
+        text.append((char) c);
+      }
+    }
+  }
+
+  private char readEscaped() {
+    int c = read();
+    switch (c) {
+    case '"':
+    case '\\':
+    case '/':
+      return (char) c;
+    case 'b':
+      return '\b';
+    case 'f':
+      return '\f';
+    case 'n':
+      return '\n';
+    case 'r':
+      return '\r';
+    case 't':
+      return '\t';
+    case 'u':
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        int digit = Character.digit(read(), 16);
+        if (digit < 0) {
+          throw new IllegalArgumentException("invalid unicode escape");
+        }
+        value = value << 4 | digit;
+      }
+      return (char) value;
+    default:
+      throw malformed(c);
+    }
+  }
+
+  private void readLiteral(int first) {
+    if (first != '-' && (first < '0' || first > '9') && first != 't' && first != 'f'
+        && first != 'n') {
+      throw malformed(first);
+    }
+    text.setLength(0);
+    text.append((char) first);
+    while (true) {
+      if (pos == limit && !fill()) {
+        return;
+      }
+      char c = buffer[pos];
+      if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+        return;
+      }
+      text.append(c);
+      pos++;
+    }
+  }
+
+  private int read() {
+    if (pos == limit && !fill()) {
+      return END;
+    }
+    return buffer[pos++];
+  }
+
+  private boolean fill() {
+    try {
+      int read = in.read(buffer, 0, buffer.length);
+      pos = 0;
+      limit = Math.max(0, read);
+      return read > 0;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static IllegalArgumentException malformed(int token) {
+    if (token == END) {
+      return new IllegalArgumentException("unexpected end of JSON");
+    }
+    return new IllegalArgumentException("malformed JSON at '" + (char) token + "'");
+  }
+
+  @Override
+  public void close() {
+    try {
+      in.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,159 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+import javax.annotation.CheckForNull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pulls the elements of an API response one after another, without building a tree. An
+ * <code>error</code> element below the root is reported as {@link ApiException} when it is reached.
+ * 
+ * <pre>
+ * try (ApiXmlReader reader = newXmlReader(xml)) {
+ *   while (reader.nextElement()) {
+ *     if (&quot;rev&quot;.equals(reader.getName())) {
+ *       String user = reader.getAttribute(&quot;user&quot;);
+ *       String text = reader.getText();
+ *     }
+ *   }
+ * }
+ * </pre>
+ * 
+ * @see MWAction#newXmlReader(String)
+ */
+@Slf4j
+public final class ApiXmlReader implements AutoCloseable {
+
+  private static final XMLInputFactory FACTORY = newFactory();
+
+  private final XMLStreamReader reader;
+  private int depth = 0;
+
+  private ApiXmlReader(XMLStreamReader reader) {
+    this.reader = reader;
+  }
+
+  static ApiXmlReader of(Reader in) {
+    try {
+      return new ApiXmlReader(FACTORY.createXMLStreamReader(in));
+    } catch (XMLStreamException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  static ApiXmlReader of(InputStream in, String charset) {
+    try {
+      return new ApiXmlReader(FACTORY.createXMLStreamReader(in, charset));
+    } catch (XMLStreamException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static XMLInputFactory newFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    return factory;
+  }
+
+  /**
+   * Moves to the start of the next element in document order.
+   * 
+   * @return false at the end of the document
+   * @throws ApiException
+   *           if the next element is an error of the API
+   */
+  public boolean nextElement() {
+    try {
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          if (depth == 2 && "error".equals(reader.getLocalName())) {
+            String code = getAttribute("code");
+            String info = getAttribute("info");
+            log.error(code + ": " + info);
+            throw new ApiException(code, info);
+          }
+          return true;
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
+      }
+      return false;
+    } catch (XMLStreamException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * @return the local name of the current element
+   */
+  public String getName() {
+    return reader.getLocalName();
+  }
+
+  /**
+   * @return the level of the current element; the root element is on level 1
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * @return the value of the attribute of the current element or null
+   */
+  @CheckForNull
+  public String getAttribute(String name) {
+    return reader.getAttributeValue(null, name);
+  }
+
+  /**
+   * Reads the text of the current element, without the text of its children, and moves to its end.
+   */
+  public String getText() {
+    StringBuilder text = new StringBuilder();
+    int level = 0;
+    try {
+      while (true) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          level++;
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          if (level == 0) {
+            depth--;
+            return text.toString();
+          }
+          level--;
+        } else if (level == 0 && isText(event)) {
+          text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static boolean isText(int event) {
+    return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+        || event == XMLStreamConstants.SPACE;
+  }
+
+  @Override
+  public void close() {
+    try {
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+}
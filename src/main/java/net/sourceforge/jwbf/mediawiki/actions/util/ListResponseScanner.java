@@ -0,0 +1,234 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Reads the items of a list query and the values to continue it with from an XML response in one
+ * forward pass over the text. Attributes may come in any order; continue values are taken from
+ * <code>query-continue</code> or from <code>continue</code>, which replaced it in MediaWiki 1.26,
+ * wherever they appear in the response. An <code>error</code> element below the root is reported
+ * as {@link ApiException} when it is reached.
+ *
+ * <pre>
+ * ListResponseScanner scanner = newListScanner(xml, &quot;p&quot;);
+ * while (scanner.nextItem()) {
+ *   titles.add(scanner.getAttribute(&quot;title&quot;));
+ * }
+ * String next = scanner.getContinue(&quot;apcontinue&quot;);
+ * </pre>
+ *
+ * @see MWAction#newListScanner(String, String)
+ */
+@Slf4j
+public final class ListResponseScanner {
+
+  private final String xml;
+  private final String item;
+  private final Map<String, String> continues = Maps.newHashMap();
+
+  private int pos = 0;
+  private int depth = 0;
+  private int continueDepth = -1;
+  private int tagStart = -1;
+  private int tagEnd = -1;
+
+  ListResponseScanner(String xml, String item) {
+    this.xml = xml;
+    this.item = item;
+  }
+
+  /**
+   * Moves to the next element named like the item and collects continue values on the way.
+   *
+   * @return false at the end of the response
+   * @throws ApiException
+   *           if the response is an error of the API
+   */
+  public boolean nextItem() {
+    final int length = xml.length();
+    while (pos < length) {
+      int open = xml.indexOf('<', pos);
+      if (open < 0 || open + 1 >= length) {
+        break;
+      }
+      char first = xml.charAt(open + 1);
+      if (first == '?' || first == '!') {
+        pos = skipDeclaration(open);
+        continue;
+      }
+      if (first == '/') {
+        int close = xml.indexOf('>', open);
+        pos = close < 0 ? length : close + 1;
+        if (depth == continueDepth) {
+          continueDepth = -1;
+        }
+        depth--;
+        continue;
+      }
+      int nameEnd = nameEnd(open + 1);
+      int close = tagEnd(nameEnd);
+      boolean empty = xml.charAt(close - 1) == '/';
+      pos = close + 1;
+      tagStart = nameEnd;
+      tagEnd = empty ? close - 1 : close;
+      depth++;
+      if (depth == 2 && isName(open + 1, nameEnd, "error")) {
+        String code = getAttribute("code");
+        String info = getAttribute("info");
+        log.error(code + ": " + info);
+        throw new ApiException(code, info);
+      }
+      boolean found = isName(open + 1, nameEnd, item);
+      if (continueDepth > 0 && depth == continueDepth + 1 || depth == 2
+          && isName(open + 1, nameEnd, "continue")) {
+        readContinues();
+      } else if (depth == 2 && !empty && isName(open + 1, nameEnd, "query-continue")) {
+        continueDepth = depth;
+      }
+      if (empty) {
+        depth--;
+      }
+      if (found) {
+        return true;
+      }
+    }
+    pos = length;
+    tagStart = -1;
+    tagEnd = -1;
+    return false;
+  }
+
+  /**
+   * @return the decoded value of an attribute of the current item or null
+   */
+  @CheckForNull
+  public String getAttribute(String name) {
+    int i = tagStart;
+    while (i < tagEnd) {
+      char c = xml.charAt(i);
+      if (isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      int nameStart = i;
+      while (i < tagEnd && xml.charAt(i) != '=' && !isWhitespace(xml.charAt(i))) {
+        i++;
+      }
+      int nameEnd = i;
+      while (i < tagEnd && xml.charAt(i) != '\'' && xml.charAt(i) != '"') {
+        i++;
+      }
+      if (i >= tagEnd) {
+        break;
+      }
+      int valueEnd = xml.indexOf(xml.charAt(i), i + 1);
+      if (valueEnd < 0 || valueEnd > tagEnd) {
+        break;
+      }
+      if (isName(nameStart, nameEnd, name)) {
+        return decode(xml.substring(i + 1, valueEnd));
+      }
+      i = valueEnd + 1;
+    }
+    return null;
+  }
+
+  /**
+   * @return the value of a continue parameter seen so far, like <code>apcontinue</code>, or null
+   */
+  @CheckForNull
+  public String getContinue(String key) {
+    return continues.get(key);
+  }
+
+  private void readContinues() {
+    int i = tagStart;
+    while (i < tagEnd) {
+      int equals = xml.indexOf('=', i);
+      if (equals < 0 || equals >= tagEnd) {
+        return;
+      }
+      int quote = equals + 1;
+      while (quote < tagEnd && isWhitespace(xml.charAt(quote))) {
+        quote++;
+      }
+      if (quote >= tagEnd) {
+        return;
+      }
+      int valueEnd = xml.indexOf(xml.charAt(quote), quote + 1);
+      if (valueEnd < 0 || valueEnd > tagEnd) {
+        return;
+      }
+      String key = xml.substring(i, equals).trim();
+      continues.put(key, decode(xml.substring(quote + 1, valueEnd)));
+      i = valueEnd + 1;
+    }
+  }
+
+  private int skipDeclaration(int open) {
+    String end = ">";
+    if (xml.startsWith("<!--", open)) {
+      end = "-->";
+    } else if (xml.startsWith("<![CDATA[", open)) {
+      end = "]]>";
+    }
+    int close = xml.indexOf(end, open + 2);
+    return close < 0 ? xml.length() : close + end.length();
+  }
+
+  private int nameEnd(int start) {
+    int i = start;
+    while (i < xml.length()) {
+      char c = xml.charAt(i);
+      if (c == '>' || c == '/' || isWhitespace(c)) {
+        break;
+      }
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return the position of the <code>&gt;</code>, which closes the tag; quoted values may contain
+   *         it
+   */
+  private int tagEnd(int start) {
+    char quote = 0;
+    for (int i = start; i < xml.length(); i++) {
+      char c = xml.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("unterminated tag at " + start);
+  }
+
+  private boolean isName(int start, int end, String name) {
+    return end - start == name.length() && xml.regionMatches(start, name, 0, name.length());
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  private static String decode(String value) {
+    if (value.indexOf('&') < 0) {
+      return value;
+    }
+    return MediaWiki.decode(value);
+  }
+
+}
@@ -18,30 +18,25 @@
  */
 package net.sourceforge.jwbf.mediawiki.actions.util;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
-import java.io.UnsupportedEncodingException;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.jwbf.core.actions.ContentProcessable;
 import net.sourceforge.jwbf.core.actions.util.ActionException;
 import net.sourceforge.jwbf.core.actions.util.HttpAction;
 import net.sourceforge.jwbf.core.actions.util.ProcessException;
-import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
 
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.input.SAXBuilder;
+import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 
 /**
@@ -146,21 +141,104 @@ public abstract class MWAction implements ContentProcessable {
     return false;
   }
 
+  /**
+   * Evaluates an XPath expression on the response; expressions are compiled once per thread. To
+   * evaluate several expressions, parse the response once with {@link #parseXpathDocument(String)}
+   * and use {@link #evaluateXpath(Node, String)}.
+   * 
+   * @return the string value of the expression
+   */
   protected String evaluateXpath(String s, String xpath) {
+    return evaluateXpath(parseXpathDocument(s), xpath);
+  }
 
-    XPath parser = XPathFactory.newInstance().newXPath();
-    try {
-      XPathExpression titleParser = parser.compile(xpath);
-      ByteArrayInputStream byteStream //
-      = new ByteArrayInputStream(s.getBytes(MediaWiki.getCharset()));
-      InputSource contenido = new InputSource(byteStream);
-      return titleParser.evaluate(contenido);
-    } catch (XPathExpressionException e) {
-      throw new IllegalArgumentException(e);
-    } catch (UnsupportedEncodingException e) {
-      throw new IllegalArgumentException(e);
-    }
+  /**
+   * Same as {@link #evaluateXpath(String, String)} for an undecoded response body.
+   */
+  protected String evaluateXpath(InputStream in, String charset, String xpath) {
+    return evaluateXpath(parseXpathDocument(in, charset), xpath);
+  }
+
+  /**
+   * @return the string value of the expression for a node of a parsed response
+   */
+  protected String evaluateXpath(Node node, String xpath) {
+    return XPathEvaluator.evaluate(node, xpath);
+  }
+
+  /**
+   * Parses the response into a document, which can be evaluated with several expressions by
+   * {@link #evaluateXpath(Node, String)}.
+   */
+  @Nonnull
+  protected org.w3c.dom.Document parseXpathDocument(String s) {
+    return XPathEvaluator.parse(new InputSource(new StringReader(s)));
+  }
+
+  /**
+   * Same as {@link #parseXpathDocument(String)} for an undecoded response body.
+   */
+  @Nonnull
+  protected org.w3c.dom.Document parseXpathDocument(InputStream in, String charset) {
+    InputSource source = new InputSource(in);
+    source.setEncoding(charset);
+    return XPathEvaluator.parse(source);
+  }
 
+  /**
+   * Creates a pull parser for the response, which can be read element by element instead of
+   * building a tree with {@link #getRootElement(String)}.
+   * 
+   * @see ApiXmlReader
+   */
+  @Nonnull
+  protected ApiXmlReader newXmlReader(final String xml) {
+    return ApiXmlReader.of(new StringReader(xml));
+  }
+
+  /**
+   * Same as {@link #newXmlReader(String)} for an undecoded response body.
+   */
+  @Nonnull
+  protected ApiXmlReader newXmlReader(final InputStream in, final String charset) {
+    return ApiXmlReader.of(in, charset);
+  }
+
+  /**
+   * Creates a scanner for the items of a list query, like <code>p</code> for
+   * <code>list=allpages</code>, and its continue values.
+   * 
+   * @see ListResponseScanner
+   */
+  @Nonnull
+  protected ListResponseScanner newListScanner(final String xml, final String item) {
+    return new ListResponseScanner(xml, item);
+  }
+
+  /**
+   * Creates a pull parser for a JSON response.
+   * 
+   * @see ApiJsonReader
+   */
+  @Nonnull
+  protected ApiJsonReader newJsonReader(final String json) {
+    return ApiJsonReader.of(new StringReader(json));
+  }
+
+  /**
+   * Same as {@link #newJsonReader(String)} for an undecoded response body.
+   */
+  @Nonnull
+  protected ApiJsonReader newJsonReader(final InputStream in, final String charset) {
+    return ApiJsonReader.of(in, charset);
+  }
+
+  /**
+   * @return true, if the value of a JSON flag is set; flags are empty strings in
+   *         <code>formatversion=1</code> and booleans in <code>2</code>
+   */
+  protected static boolean isFlagSet(@CheckForNull String value) {
+    return value != null && !"false".equals(value);
   }
 
   @Nonnull
@@ -0,0 +1,100 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Compiles XPath expressions once and parses responses into DOM documents for them. Neither
+ * compiled expressions nor document builders may be shared between threads, so each thread keeps
+ * its own; the most recently used {@value #MAX_EXPRESSIONS} expressions are kept per thread.
+ *
+ * @see MWAction#evaluateXpath(String, String)
+ */
+final class XPathEvaluator {
+
+  static final int MAX_EXPRESSIONS = 64;
+
+  private static final ThreadLocal<XPathEvaluator> EVALUATORS = new ThreadLocal<XPathEvaluator>() {
+
+    @Override
+    protected XPathEvaluator initialValue() {
+      return new XPathEvaluator();
+    }
+  };
+
+  private final XPath xpath = XPathFactory.newInstance().newXPath();
+  private final DocumentBuilder builder = newBuilder();
+  private final Map<String, XPathExpression> expressions = //
+  new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+      return size() > MAX_EXPRESSIONS;
+    }
+  };
+
+  private XPathEvaluator() {
+  }
+
+  private static DocumentBuilder newBuilder() {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    try {
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      return factory.newDocumentBuilder();
+    } catch (ParserConfigurationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the document of the source, which can be evaluated with several expressions
+   */
+  static Document parse(InputSource source) {
+    try {
+      return EVALUATORS.get().builder.parse(source);
+    } catch (SAXException e) {
+      throw new IllegalArgumentException(e);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the string value of the expression for the node
+   */
+  static String evaluate(Node node, String expression) {
+    try {
+      return EVALUATORS.get().compile(expression).evaluate(node);
+    } catch (XPathExpressionException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private XPathExpression compile(String expression) throws XPathExpressionException {
+    XPathExpression compiled = expressions.get(expression);
+    if (compiled == null) {
+      compiled = xpath.compile(expression);
+      expressions.put(expression, compiled);
+    }
+    return compiled;
+  }
+
+}
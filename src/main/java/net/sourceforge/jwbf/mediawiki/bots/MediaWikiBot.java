@@ -1,12 +1,16 @@
 package net.sourceforge.jwbf.mediawiki.bots;
 
+import java.io.File;
 import java.net.URL;
+import java.nio.channels.WritableByteChannel;
 import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 
 import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.jwbf.core.actions.ActionMetrics;
+import net.sourceforge.jwbf.core.actions.BodyReader;
 import net.sourceforge.jwbf.core.actions.ContentProcessable;
 import net.sourceforge.jwbf.core.actions.HttpActionClient;
 import net.sourceforge.jwbf.core.actions.util.ActionException;
@@ -19,6 +23,7 @@ import net.sourceforge.jwbf.core.contentRep.ContentAccessable;
 import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 import net.sourceforge.jwbf.core.contentRep.Userinfo;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
 import net.sourceforge.jwbf.mediawiki.actions.editing.GetRevision;
 import net.sourceforge.jwbf.mediawiki.actions.editing.PostDelete;
@@ -30,7 +35,12 @@ import net.sourceforge.jwbf.mediawiki.actions.meta.Siteinfo;
 import net.sourceforge.jwbf.mediawiki.actions.util.VersionException;
 import net.sourceforge.jwbf.mediawiki.contentRep.LoginData;
 
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * This class helps you to interact with each <a href="http://www.mediawiki.org" target="_blank">MediaWiki</a>. This
@@ -63,14 +73,15 @@ import com.google.common.collect.ImmutableSet;
 @Slf4j
 public class MediaWikiBot implements WikiBot {
 
-  private LoginData login = null;
+  private volatile LoginData login = null;
 
-  private Version version = null;
-  private Userinfo ui = null;
+  private volatile Version version = null;
+  private volatile Userinfo ui = null;
 
-  private boolean loginChangeUserInfo = false;
-  private boolean loginChangeVersion = false;
-  private boolean useEditApi = true;
+  private volatile boolean loginChangeUserInfo = false;
+  private volatile boolean loginChangeVersion = false;
+  private volatile boolean useEditApi = true;
+  private volatile Format format = Format.XML;
 
   @Inject
   private HttpBot bot;
@@ -147,7 +158,12 @@ public class MediaWikiBot implements WikiBot {
    */
   public void login(final String username, final String passwd, final String domain) {
     LoginData login = new LoginData();
-    performAction(new PostLogin(username, passwd, domain, login));
+    try {
+      performAction(new PostLogin(username, passwd, domain, login, format));
+    } finally {
+      // cached responses may belong to the former session
+      bot().invalidateResponseCache();
+    }
 
     this.login = login;
     loginChangeUserInfo = true;
@@ -181,7 +197,7 @@ public class MediaWikiBot implements WikiBot {
    * @return a content representation of requested article, never null
    * @see GetRevision
    */
-  public synchronized Article getArticle(final String name, final int properties) {
+  public Article getArticle(final String name, final int properties) {
     return new Article(this, readData(name, properties));
   }
 
@@ -189,9 +205,9 @@ public class MediaWikiBot implements WikiBot {
    * {@inheritDoc}
    */
   @Override
-  public synchronized SimpleArticle readData(final String name, final int properties) {
+  public SimpleArticle readData(final String name, final int properties) {
 
-    GetRevision ac = new GetRevision(getVersion(), name, properties);
+    GetRevision ac = new GetRevision(getVersion(), name, properties, format);
 
     performAction(ac);
 
@@ -208,13 +224,44 @@ public class MediaWikiBot implements WikiBot {
     return readData(name, DEFAULT_READ_PROPERTIES);
   }
 
+  /**
+   * Asynchronous counterpart of {@link #readData(String, int)}. If the version of the wiki is not
+   * known yet, it is requested asynchronously as well.
+   * 
+   * @see HttpActionClient#performActionAsync(ContentProcessable)
+   */
+  public ListenableFuture<SimpleArticle> readDataAsync(final String name, final int properties) {
+    final Format readFormat = format;
+    return Futures.transform(getVersionAsync(), new AsyncFunction<Version, SimpleArticle>() {
+
+      @Override
+      public ListenableFuture<SimpleArticle> apply(Version wikiVersion) {
+        final GetRevision ac = new GetRevision(wikiVersion, name, properties, readFormat);
+        return Futures.transform(performActionAsync(ac), new Function<String, SimpleArticle>() {
+
+          @Override
+          public SimpleArticle apply(String input) {
+            return ac.getArticle();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #readData(String)}.
+   */
+  public ListenableFuture<SimpleArticle> readDataAsync(String name) {
+    return readDataAsync(name, DEFAULT_READ_PROPERTIES);
+  }
+
   /**
    * @param name
    *          of article in a mediawiki like "Main Page"
    * @return a content representation of requested article, never null
    * @see GetRevision
    */
-  public synchronized Article getArticle(final String name) {
+  public Article getArticle(final String name) {
     return getArticle(name, DEFAULT_READ_PROPERTIES);
 
   }
@@ -223,7 +270,34 @@ public class MediaWikiBot implements WikiBot {
    * {@inheritDoc}
    */
   @Override
-  public synchronized void writeContent(final SimpleArticle simpleArticle) {
+  public void writeContent(final SimpleArticle simpleArticle) {
+    checkWritable(simpleArticle);
+
+    performAction(new PostModifyContent(this, simpleArticle));
+    checkNotEmpty(simpleArticle);
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #writeContent(SimpleArticle)}.
+   * 
+   * @see HttpActionClient#performActionAsync(ContentProcessable)
+   */
+  public ListenableFuture<Void> writeContentAsync(final SimpleArticle simpleArticle) {
+    checkWritable(simpleArticle);
+
+    ListenableFuture<String> result = performActionAsync(new PostModifyContent(this,
+        simpleArticle));
+    return Futures.transform(result, new Function<String, Void>() {
+
+      @Override
+      public Void apply(String input) {
+        checkNotEmpty(simpleArticle);
+        return null;
+      }
+    });
+  }
+
+  private void checkWritable(final SimpleArticle simpleArticle) {
     if (!isLoggedIn()) {
       throw new ActionException("Please login first");
     }
@@ -235,7 +309,9 @@ public class MediaWikiBot implements WikiBot {
       }
     }
 
-    performAction(new PostModifyContent(this, simpleArticle));
+  }
+
+  private void checkNotEmpty(final SimpleArticle simpleArticle) {
     if (simpleArticle.getText().trim().length() < 1)
       throw new RuntimeException("Content is empty, still written");
   }
@@ -325,12 +401,70 @@ public class MediaWikiBot implements WikiBot {
     performAction(new PostDelete(this, title, reason));
   }
 
-  public synchronized String performAction(ContentProcessable a) {
+  /**
+   * Thread safe; independent actions can be performed in parallel with the same bot and session.
+   * 
+   * @see HttpActionClient#performAction(ContentProcessable)
+   */
+  public String performAction(ContentProcessable a) {
+    checkNotSelfExecuting(a);
+    return bot().performAction(a);
+  }
+
+  /**
+   * Asynchronous counterpart of {@link #performAction(ContentProcessable)}.
+   * 
+   * @see HttpActionClient#performActionAsync(ContentProcessable)
+   */
+  public ListenableFuture<String> performActionAsync(ContentProcessable a) {
+    checkNotSelfExecuting(a);
+    return bot().performActionAsync(a);
+  }
+
+  @SuppressWarnings("deprecation")
+  private static void checkNotSelfExecuting(ContentProcessable a) {
     if (a.isSelfExecuter()) {
       throw new ActionException("this is a selfexcecuting action, "
           + "please do not perform this action manually");
     }
-    return bot().performAction(a);
+  }
+
+  /**
+   * Streams a file like an image unchanged to the target.
+   * 
+   * @param url
+   *          absolute or relative to the wiki url
+   * @see HttpBot#download(String, WritableByteChannel)
+   */
+  public long download(String url, WritableByteChannel target) {
+    return bot().download(url, target);
+  }
+
+  /**
+   * Streams a file like an image to the given file or resumes an incomplete download into it.
+   * 
+   * @see HttpBot#download(String, File)
+   */
+  public long download(String url, File file) {
+    return bot().download(url, file);
+  }
+
+  /**
+   * Hands a file like an image to the reader while it is received.
+   * 
+   * @see HttpBot#download(String, BodyReader)
+   */
+  public <T> T download(String url, BodyReader<T> reader) {
+    return bot().download(url, reader);
+  }
+
+  /**
+   * @return metrics of all actions performed by this bot, e.g. to find out whether fetching
+   *         revisions or editing dominates the runtime
+   * @see HttpActionClient#getActionMetrics()
+   */
+  public ActionMetrics getActionMetrics() {
+    return bot().getActionMetrics();
   }
 
   private HttpBot bot() {
@@ -366,6 +500,27 @@ public class MediaWikiBot implements WikiBot {
     return version;
   }
 
+  /**
+   * Asynchronous counterpart of {@link #getVersion()}; a known version is returned immediately.
+   */
+  private ListenableFuture<Version> getVersionAsync() {
+    Version known = version;
+    if (known != null && !loginChangeVersion) {
+      return Futures.immediateFuture(known);
+    }
+    final GetVersion gs = new GetVersion();
+    return Futures.transform(performActionAsync(gs), new Function<String, Version>() {
+
+      @Override
+      public Version apply(String input) {
+        version = gs.getVersion();
+        loginChangeVersion = false;
+        log.debug("Version is: " + version.name());
+        return version;
+      }
+    });
+  }
+
   /**
    * @return a on problems with http, cookies and io
    * @see Siteinfo
@@ -400,6 +555,22 @@ public class MediaWikiBot implements WikiBot {
     this.useEditApi = useEditApi;
   }
 
+  /**
+   * @return the format of API responses, {@link Format#XML} by default
+   */
+  public Format getFormat() {
+    return format;
+  }
+
+  /**
+   * @param format
+   *          of API responses requested by actions, which support it; like reading articles,
+   *          title queries, log events, category members, tokens and login
+   */
+  public final void useFormat(Format format) {
+    this.format = Preconditions.checkNotNull(format);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -1,8 +1,11 @@
 package net.sourceforge.jwbf;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -118,6 +121,29 @@ public class JettyServer extends Server {
     };
   }
 
+  public static ContextHandler gzipTextHandler(final String text) {
+    return new ContextHandler() {
+      @Override
+      public void doHandle(String arg0, Request request, HttpServletRequest arg2,
+          HttpServletResponse response) throws IOException, ServletException {
+
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+          response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+          OutputStream out = new GZIPOutputStream(response.getOutputStream());
+          out.write(bytes);
+          out.close();
+        } else {
+          response.getOutputStream().write(bytes);
+        }
+        request.setHandled(true);
+      }
+
+    };
+  }
+
   public static String entry(String key, String value) {
     return key + "=" + value + "";
   }
@@ -0,0 +1,48 @@
+package net.sourceforge.jwbf.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.net.URLEncoder;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class PercentEncoderTest {
+
+  @Test
+  public void testEncode() throws Exception {
+    String[] values = { "", "Main_Page", "A B", "a&b=c+d%e/f?g#h~i'j", "Ä ö ß", "日本語",
+        "😀", "lone \ud83d surrogate", "\ude00", "*-._" };
+    for (String value : values) {
+      assertEquals(value, URLEncoder.encode(value, "UTF-8"), PercentEncoder.encode(value));
+    }
+  }
+
+  @Test
+  public void testEncode_random() throws Exception {
+    Random random = new Random(42);
+    for (int i = 0; i < 1000; i++) {
+      StringBuilder value = new StringBuilder();
+      for (int j = random.nextInt(20); j > 0; j--) {
+        value.append((char) random.nextInt(random.nextBoolean() ? 0x80 : 0x10000));
+      }
+      String text = value.toString();
+      assertEquals(text, URLEncoder.encode(text, "UTF-8"), PercentEncoder.encode(text));
+    }
+  }
+
+  @Test
+  public void testEncode_unreserved() {
+    String value = "Main_Page";
+    assertSame(value, PercentEncoder.encode(value));
+  }
+
+  @Test
+  public void testEncode_otherCharset() throws Exception {
+    assertEquals(URLEncoder.encode("Ä b", "ISO-8859-1"), PercentEncoder.encode("Ä b",
+        Charsets.ISO_8859_1));
+  }
+}
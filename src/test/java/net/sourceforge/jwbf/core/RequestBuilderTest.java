@@ -29,4 +29,34 @@ public class RequestBuilderTest {
         .build());
   }
 
+  @Test
+  public void testBuild_order() {
+    assertEquals("/a?a=b&ab=c&b=c&b=d", new RequestBuilder("/a") //
+        .param("b", "d") //
+        .param("ab", "c") //
+        .param("b", "c") //
+        .param("a", "b") //
+        .build());
+  }
+
+  @Test
+  public void testTemplate() {
+    RequestTemplate template = new RequestBuilder("/a") //
+        .param("d", "e") //
+        .param("b", "c") //
+        .template();
+
+    assertEquals("/a?b=c&d=e", template.build());
+    assertEquals("/a?a=1&b=c&d=e", template.build("a", "1"));
+    assertEquals("/a?b=c&c=1&d=e", template.build("c", "1"));
+    assertEquals("/a?b=c&d=e&e=1", template.build("e", "1"));
+    assertEquals("/a?b=c&d=e", template.build("b", "c"));
+    assertEquals("/a?b=c&d=e", template.build("", "c"));
+    assertEquals("/a?b=c&c=None&d=e", template.build("c", null));
+    assertEquals(new RequestBuilder("/a").param("d", "e").param("b", "c").param("c", "1").build(),
+        template.build("c", "1"));
+    assertEquals("/a?x=y", new RequestBuilder("/a").template().build("x", "y"));
+    assertEquals("/a", new RequestBuilder("/a").template().build());
+  }
+
 }
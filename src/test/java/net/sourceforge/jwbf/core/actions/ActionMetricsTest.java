@@ -0,0 +1,92 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class ActionMetricsTest {
+
+  @Test
+  public void testHistogramBuckets() {
+    for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE }) {
+      int index = LatencyHistogram.indexOf(value);
+      long upper = LatencyHistogram.upperBoundOf(index);
+      assertTrue(value + " <= " + upper, value <= upper);
+      assertTrue(value + " ~ " + upper, upper - value <= value / 8 + 1);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.upperBoundOf(index - 1) < value);
+      }
+    }
+  }
+
+  @Test
+  public void testPercentile() {
+    // GIVEN
+    LatencyHistogram testee = new LatencyHistogram();
+
+    // WHEN
+    for (int i = 1; i <= 100; i++) {
+      testee.record(i);
+    }
+
+    // THEN
+    assertEquals(50, testee.percentile(0.5), 50 / 8);
+    assertEquals(95, testee.percentile(0.95), 95 / 8);
+    assertEquals(99, testee.percentile(0.99), 99 / 8);
+    assertEquals(100, testee.percentile(1));
+    assertEquals(0, new LatencyHistogram().percentile(0.5));
+  }
+
+  @Test
+  public void testSnapshot() {
+    // GIVEN
+    ActionMetrics testee = new ActionMetrics();
+    ActionMetrics.Recorder recorder = testee.recorderOf(GetPage.class);
+
+    // WHEN
+    recorder.onAction();
+    recorder.onResponse(503);
+    recorder.onRetry();
+    recorder.onResponse(200);
+    recorder.onMessage(7000000, 4);
+    recorder.onParsed(2000000);
+
+    // THEN
+    ActionMetrics.Snapshot snapshot = testee.snapshot().get(GetPage.class.getName());
+    assertEquals(2, snapshot.getRequests());
+    assertEquals(1, snapshot.getRetries());
+    assertEquals(7, snapshot.getLatencyP99());
+    assertEquals(7, snapshot.getTotalMillis());
+    assertEquals(2, snapshot.getParseMillis());
+    assertNull(testee.snapshotOf(ContentProcessable.class));
+
+  }
+
+  @Test
+  public void testReset() {
+    // GIVEN
+    ActionMetrics testee = new ActionMetrics();
+    ActionMetrics.Recorder recorder = testee.recorderOf(GetPage.class);
+    recorder.onAction();
+    recorder.onResponse(200);
+    recorder.onMessage(7000000, 4);
+
+    // WHEN
+    testee.reset();
+    recorder.onResponse(200);
+
+    // THEN
+    ActionMetrics.Snapshot snapshot = testee.snapshotOf(GetPage.class);
+    assertEquals(0, snapshot.getActions());
+    assertEquals(0, snapshot.getMessages());
+    assertEquals(1, snapshot.getRequests());
+    assertEquals(ImmutableMap.of(200, 1L), snapshot.getStatusCodes());
+    assertEquals(0, snapshot.getLatencyP99());
+    assertEquals(0, snapshot.getResponseBytes());
+  }
+
+}
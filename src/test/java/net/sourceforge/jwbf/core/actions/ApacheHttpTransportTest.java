@@ -0,0 +1,34 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+
+public class ApacheHttpTransportTest {
+
+  @Test
+  public void testBodyEntity_getContent() throws IOException {
+    // GIVEN
+    FormBody body = new FormBody(ImmutableMap.of("action", "edit", "text", "a b"),
+        Charsets.UTF_8);
+    ApacheHttpTransport.BodyEntity testee = new ApacheHttpTransport.BodyEntity(body);
+
+    // WHEN
+    byte[] content;
+    try (InputStream in = testee.getContent()) {
+      content = ByteStreams.toByteArray(in);
+    }
+
+    // THEN
+    assertEquals("action=edit&text=a+b", new String(content, Charsets.US_ASCII));
+    assertEquals(content.length, testee.getContentLength());
+  }
+
+}
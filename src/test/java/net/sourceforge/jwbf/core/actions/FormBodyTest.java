@@ -0,0 +1,65 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+
+public class FormBodyTest {
+
+  @Test
+  public void testWriteTo() throws IOException {
+    // GIVEN
+    String text = "a b&c=d+e%f/gä€😀~*-._";
+    FormBody testee = new FormBody(ImmutableMap.of("action", "edit", "text", text),
+        Charsets.UTF_8);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // WHEN
+    testee.writeTo(out);
+
+    // THEN
+    String expected = "action=edit&text=" + URLEncoder.encode(text, "UTF-8");
+    assertEquals(expected, new String(out.toByteArray(), Charsets.US_ASCII));
+    assertEquals(out.size(), testee.getContentLength());
+    assertTrue(testee.isRepeatable());
+    assertEquals("application/x-www-form-urlencoded; charset=UTF-8", testee.getContentType());
+  }
+
+  @Test
+  public void testWriteTo_large() throws IOException {
+    // GIVEN
+    String text = Strings.repeat("ü ", 10000);
+    FormBody testee = new FormBody(ImmutableMap.of("text", text), Charsets.ISO_8859_1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // WHEN
+    testee.writeTo(out);
+
+    // THEN
+    assertEquals("text=" + URLEncoder.encode(text, "ISO-8859-1"), out.toString("US-ASCII"));
+    assertEquals(out.size(), testee.getContentLength());
+  }
+
+  @Test
+  public void testWriteTo_empty() throws IOException {
+    // GIVEN
+    FormBody testee = new FormBody(ImmutableMap.<String, String> of(), Charsets.UTF_8);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // WHEN
+    testee.writeTo(out);
+
+    // THEN
+    assertEquals(0, out.size());
+    assertEquals(0, testee.getContentLength());
+  }
+}
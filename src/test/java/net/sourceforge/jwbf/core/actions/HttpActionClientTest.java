@@ -7,15 +7,59 @@ import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.net.HttpHeaders.HOST;
 import static com.google.common.net.HttpHeaders.USER_AGENT;
 import static net.sourceforge.jwbf.JettyServer.entry;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import net.sourceforge.jwbf.JettyServer;
 import net.sourceforge.jwbf.core.RequestBuilder;
+import net.sourceforge.jwbf.core.actions.util.ActionTimeoutException;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
 
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.pool.PoolStats;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.ContextHandler;
 import org.junit.Test;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class HttpActionClientTest {
 
@@ -122,7 +166,7 @@ public class HttpActionClientTest {
           .add(entry(ACCEPT_ENCODING, "gzip,deflate")) //
           .add(entry(CONNECTION, "keep-alive")) //
           .add(entry(CONTENT_LENGTH, "???")) //
-          .add(entry(CONTENT_TYPE, "multipart/form-data; boundary=????")) //
+          .add(entry(CONTENT_TYPE, "application/x-www-form-urlencoded; charset=UTF-8")) //
           .add(entry(HOST, "localhost:????")) //
           .add(entry(USER_AGENT, "none")) //
           .build();
@@ -134,4 +178,1072 @@ public class HttpActionClientTest {
     }
   }
 
+  @Test
+  public void testPostParameters_file() throws IOException {
+    JettyServer server = new JettyServer();
+    File file = File.createTempFile("jwbf", ".txt");
+    try {
+      // GIVEN
+      server.setHandler(JettyServer.headerMapHandler());
+      server.startSilent();
+
+      Post post = RequestBuilder.of("/").buildPost();
+      post.param("text", "a").param("file", file);
+
+      HttpActionClient hac = HttpActionClient.builder() //
+          .withUrl(server.getTestUrl()) //
+          .withUserAgent("none") //
+          .build() //
+      ;
+      ResponseHandler<String> a = ContentProcessableBuilder //
+          .create(hac) //
+          .withActions(post) //
+          .build();
+
+      // WHEN
+      String result = a.get().trim();
+
+      // THEN
+      String multipart = entry(CONTENT_TYPE, "multipart/form-data; boundary=????");
+      assertTrue(result, result.contains(multipart));
+    } finally {
+      file.delete();
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPost_formBody() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          response.setCharacterEncoding("UTF-8");
+          response.getWriter().print(request.getParameter("title") + "|"
+              + request.getParameter("text"));
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      testee = HttpActionClient.of(server.getTestUrl());
+      Post post = new Post("/").param("title", "A & B").param("text", "\u00e4 = 1+1%");
+
+      // WHEN
+      ResponseHandler<String> handler = ContentProcessableBuilder //
+          .create(testee) //
+          .withActions(post) //
+          .build();
+
+      // THEN
+      assertEquals("A & B|\u00e4 = 1+1%", handler.get().trim());
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPoolStats() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      server.setHandler(JettyServer.textHandler("test"));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withMaxConnections(4) //
+          .withMaxConnectionsPerRoute(3) //
+          .withKeepAlive(10, TimeUnit.SECONDS) //
+          .withIdleConnectionEviction(5, TimeUnit.SECONDS) //
+          .build();
+
+      // WHEN
+      testee.get(new Get(url));
+      PoolStats stats = testee.getPoolStats().get();
+
+      // THEN
+      assertEquals(4, stats.getMax());
+      assertEquals(0, stats.getLeased());
+      assertEquals(0, stats.getPending());
+      assertEquals(1, stats.getAvailable());
+      testee.close();
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPoolStats_externalClient() {
+    // GIVEN
+    testee = HttpActionClient.builder() //
+        .withClient(HttpClientBuilder.create().build()) //
+        .withUrl("http://localhost/") //
+        .build();
+
+    // WHEN/THEN
+    assertFalse(testee.getPoolStats().isPresent());
+  }
+
+  @Test
+  public void testPoolConfig_externalClient() {
+    try {
+      HttpActionClient.builder() //
+          .withClient(HttpClientBuilder.create().build()) //
+          .withUrl("http://localhost/") //
+          .withMaxConnectionsPerRoute(5) //
+          .build();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("connection pool must be configured in your client", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPerformAction_parallel() throws Exception {
+    JettyServer server = new JettyServer();
+    final int parallel = 3;
+    final CountDownLatch latch = new CountDownLatch(parallel);
+    ExecutorService executor = Executors.newFixedThreadPool(parallel);
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          latch.countDown();
+          try {
+            boolean allArrived = latch.await(5, TimeUnit.SECONDS);
+            response.getWriter().print(allArrived);
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      final String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withMaxConnectionsPerRoute(parallel) //
+          .build();
+
+      // WHEN
+      List<Future<String>> results = Lists.newArrayList();
+      for (int i = 0; i < parallel; i++) {
+        results.add(executor.submit(new Callable<String>() {
+
+          @Override
+          public String call() {
+            GetPage page = new GetPage(url);
+            testee.performAction(page);
+            return page.getText();
+          }
+        }));
+      }
+
+      // THEN
+      for (Future<String> result : results) {
+        assertEquals("true\n", result.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformActionAsync_threadsPerRoute() throws Exception {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      server.setHandler(JettyServer.textHandler("test"));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withMaxConnections(20) //
+          .withMaxConnectionsPerRoute(2) //
+          .build();
+      final Set<String> threads = Sets.newConcurrentHashSet();
+
+      // WHEN
+      List<ListenableFuture<String>> results = Lists.newArrayList();
+      for (int i = 0; i < 8; i++) {
+        results.add(testee.performActionAsync(new GetPage(url) {
+
+          @Override
+          public String processReturningText(String s, HttpAction hm) {
+            threads.add(Thread.currentThread().getName());
+            return super.processReturningText(s, hm);
+          }
+        }));
+      }
+
+      // THEN
+      for (ListenableFuture<String> result : results) {
+        result.get(10, TimeUnit.SECONDS);
+      }
+      assertTrue(threads.toString(), threads.size() <= 2);
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformActionAsync() throws Exception {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      String text = "async content\n";
+      server.setHandler(JettyServer.textHandler(text));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.of(url);
+      GetPage page = new GetPage(url);
+
+      // WHEN
+      ListenableFuture<String> result = testee.performActionAsync(page);
+
+      // THEN
+      assertEquals(text, result.get(10, TimeUnit.SECONDS));
+      assertEquals(text, page.getText());
+      testee.close();
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testGet_compressed() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      String text = Strings.repeat("<p title=\"compressible\" />", 100) + "\n";
+      server.setHandler(JettyServer.gzipTextHandler(text));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.of(url);
+
+      // WHEN
+      byte[] bs = testee.get(new Get(url));
+
+      // THEN
+      assertEquals(text, new String(bs));
+      TransferStats stats = testee.getTransferStats();
+      assertEquals(1, stats.getResponses());
+      assertEquals(1, stats.getCompressedResponses());
+      assertEquals(text.length(), stats.getDecodedBytes());
+      assertTrue(stats.getWireBytes() < stats.getDecodedBytes() / 10);
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testGet_compressionDisabled() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      String text = Strings.repeat("<p title=\"compressible\" />", 100) + "\n";
+      server.setHandler(JettyServer.gzipTextHandler(text));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withCompression(false) //
+          .build();
+
+      // WHEN
+      byte[] bs = testee.get(new Get(url));
+
+      // THEN
+      assertEquals(text, new String(bs));
+      TransferStats stats = testee.getTransferStats();
+      assertEquals(0, stats.getCompressedResponses());
+      assertEquals(text.length(), stats.getWireBytes());
+      assertEquals(text.length(), stats.getDecodedBytes());
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformAction_stream() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      String text = "line\r\nother line";
+      server.setHandler(JettyServer.textHandler(text));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.of(url);
+      StreamingGetPage page = new StreamingGetPage(url);
+
+      // WHEN
+      String result = testee.performAction(page);
+
+      // THEN
+      assertEquals(text, result);
+      assertEquals("", page.getText());
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  private static class StreamingGetPage extends GetPage implements ReturningStreamProcessor {
+
+    StreamingGetPage(String u) {
+      super(u);
+    }
+
+    @Override
+    public String processReturningStream(InputStream in, HttpAction action) throws IOException {
+      return new String(ByteStreams.toByteArray(in), action.getCharset());
+    }
+  }
+
+  @Test
+  public void testPerformAction_throttled() {
+    JettyServer server = new JettyServer();
+    final AtomicInteger requests = new AtomicInteger();
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          if (requests.incrementAndGet() == 1) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "0");
+          } else {
+            response.getWriter().print(request.getQueryString());
+          }
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withMaxlag(3) //
+          .build();
+      GetPage page = new GetPage("/api.php?action=query");
+
+      // WHEN
+      testee.performAction(page);
+
+      // THEN
+      assertEquals(2, requests.get());
+      assertEquals("action=query&maxlag=3\n", page.getText());
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformAction_retry() {
+    JettyServer server = new JettyServer();
+    final AtomicInteger requests = new AtomicInteger();
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          if (requests.incrementAndGet() == 1) {
+            response.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+          } else {
+            response.getWriter().print(request.getMethod());
+          }
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withRetryPolicy(RetryPolicy.builder() //
+              .withBackoff(0, 0, TimeUnit.MILLISECONDS, 1) //
+              .build()) //
+          .build();
+      GetPage page = new GetPage(url);
+
+      // WHEN
+      testee.performAction(page);
+
+      // THEN
+      assertEquals(2, requests.get());
+      assertEquals("GET\n", page.getText());
+
+      // GIVEN
+      requests.set(0);
+      ResponseHandler<String> post = ContentProcessableBuilder //
+          .create(testee) //
+          .withActions(new Post("/")) //
+          .build();
+
+      // WHEN
+      try {
+        post.get();
+        fail();
+      } catch (IllegalStateException e) {
+        // THEN
+        assertEquals(1, requests.get());
+      }
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformAction_cached() {
+    JettyServer server = new JettyServer();
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger notModified = new AtomicInteger();
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          requests.incrementAndGet();
+          if ("\"v1\"".equals(request.getHeader("If-None-Match"))) {
+            notModified.incrementAndGet();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          } else {
+            response.setHeader("ETag", "\"v1\"");
+            response.getWriter().print("cached");
+          }
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      String url = server.getTestUrl();
+      ResponseCache cache = ResponseCache.builder().withTtl(1, TimeUnit.HOURS).build();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withResponseCache(cache) //
+          .build();
+
+      // WHEN
+      GetPage first = new GetPage(url);
+      testee.performAction(first);
+      GetPage second = new GetPage(url);
+      testee.performAction(second);
+
+      // THEN
+      assertEquals("cached\n", first.getText());
+      assertEquals("cached\n", second.getText());
+      assertEquals(1, requests.get());
+      assertEquals(1, cache.getHitCount());
+
+      // GIVEN
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withResponseCache(ResponseCache.builder().withTtl(0, TimeUnit.SECONDS).build()) //
+          .build();
+
+      // WHEN
+      testee.performAction(new GetPage(url));
+      GetPage revalidated = new GetPage(url);
+      testee.performAction(revalidated);
+
+      // THEN
+      assertEquals("cached\n", revalidated.getText());
+      assertEquals(3, requests.get());
+      assertEquals(1, notModified.get());
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformAction_coalesced() throws Exception {
+    JettyServer server = new JettyServer();
+    final AtomicInteger requests = new AtomicInteger();
+    final CountDownLatch received = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          requests.incrementAndGet();
+          received.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          response.getWriter().print("shared");
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      final String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withRequestCoalescing(true) //
+          .build();
+      final GetPage first = new GetPage(url);
+      final GetPage second = new GetPage(url);
+
+      // WHEN
+      Future<String> firstResult = executor.submit(new Callable<String>() {
+        @Override
+        public String call() {
+          return testee.performAction(first);
+        }
+      });
+      assertTrue(received.await(5, TimeUnit.SECONDS));
+      Future<String> secondResult = executor.submit(new Callable<String>() {
+        @Override
+        public String call() {
+          return testee.performAction(second);
+        }
+      });
+      TimeUnit.MILLISECONDS.sleep(200);
+      release.countDown();
+
+      // THEN
+      assertEquals("shared\n", firstResult.get(5, TimeUnit.SECONDS));
+      assertEquals("shared\n", secondResult.get(5, TimeUnit.SECONDS));
+      assertEquals("shared\n", second.getText());
+      assertEquals(1, requests.get());
+    } finally {
+      executor.shutdownNow();
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformAction_responseBudget() {
+    JettyServer server = new JettyServer();
+    File directory = Files.createTempDir();
+    try {
+      // GIVEN
+      server.setHandler(JettyServer.textHandler("a body larger than the threshold"));
+      server.startSilent();
+      String url = server.getTestUrl();
+      ResponseBudget budget = ResponseBudget.builder() //
+          .withMaxBytes(1024) //
+          .withSpillThreshold(8) //
+          .withDirectory(directory) //
+          .build();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withRequestCoalescing(true) //
+          .withResponseBudget(budget) //
+          .build();
+      GetPage spilled = new GetPage(url);
+      GetPage streamed = new GetPage(url);
+
+      // WHEN
+      testee.performAction(spilled);
+      testee.get(new Get(url));
+
+      // THEN
+      assertEquals("a body larger than the threshold\n", spilled.getText());
+      assertEquals(2, budget.getSpillCount());
+      assertEquals(0, budget.getInFlightBytes());
+      assertEquals(0, directory.list().length);
+
+      // GIVEN
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withResponseBudget(budget) //
+          .build();
+
+      // WHEN
+      testee.performAction(streamed);
+
+      // THEN
+      assertEquals("a body larger than the threshold\n", streamed.getText());
+      assertEquals(2, budget.getSpillCount());
+      assertEquals(0, budget.getInFlightBytes());
+    } finally {
+      server.stopSilent();
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void testPerformAction_responseBudgetCountsBufferedBodyOnce() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      server.setHandler(JettyServer.textHandler("0123456789"));
+      server.startSilent();
+      final ResponseBudget budget = ResponseBudget.builder() //
+          .withMaxBytes(1024) //
+          .build();
+      testee = HttpActionClient.builder() //
+          .withUrl(server.getTestUrl()) //
+          .withRequestCoalescing(true) //
+          .withResponseBudget(budget) //
+          .build();
+      final AtomicLong held = new AtomicLong(-1);
+      GetPage page = new GetPage("/") {
+        @Override
+        public String processReturningText(String s, HttpAction hm) {
+          held.set(budget.getInFlightBytes());
+          return super.processReturningText(s, hm);
+        }
+      };
+
+      // WHEN
+      testee.performAction(page);
+
+      // THEN
+      assertEquals(10, held.get());
+      assertEquals(0, budget.getInFlightBytes());
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  private static ContextHandler sleepHandler(final long millis) {
+    return new ContextHandler() {
+      @Override
+      public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+          HttpServletResponse response) throws IOException, ServletException {
+        try {
+          TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        response.getWriter().print("slow");
+        request.setHandled(true);
+      }
+    };
+  }
+
+  @Test
+  public void testPerformAction_requestTimeout() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      server.setHandler(sleepHandler(2000));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withRequestTimeout(200, TimeUnit.MILLISECONDS) //
+          .build();
+      long start = System.nanoTime();
+
+      // WHEN
+      try {
+        testee.performAction(new GetPage(url));
+        fail();
+      } catch (ActionTimeoutException e) {
+        // THEN
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("" + millis, millis < 1500);
+        assertEquals(1, testee.getTimeoutCount());
+      }
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformAction_requestTimeoutIncludesRetries() {
+    // GIVEN
+    final AtomicInteger requests = new AtomicInteger();
+    HttpTransport transport = new HttpTransport() {
+
+      @Override
+      public TransportResponse execute(TransportRequest request) throws IOException {
+        requests.incrementAndGet();
+        try {
+          TimeUnit.MILLISECONDS.sleep(250);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return new BasicTransportResponse(502);
+      }
+
+      @Override
+      public void close() {
+        // nothing to close
+      }
+    };
+    testee = HttpActionClient.builder() //
+        .withUrl("http://wiki.invalid/") //
+        .withTransport(transport) //
+        .withRequestTimeout(300, TimeUnit.MILLISECONDS) //
+        .withRetryPolicy(RetryPolicy.builder() //
+            .withMaxAttempts(5) //
+            .withBackoff(200, 200, TimeUnit.MILLISECONDS, 1) //
+            .build()) //
+        .build();
+
+    // WHEN
+    try {
+      testee.performAction(new GetPage("/"));
+      fail();
+    } catch (ActionTimeoutException e) {
+      // THEN
+      assertEquals(1, requests.get());
+      assertEquals(1, testee.getTimeoutCount());
+    }
+  }
+
+  @Test
+  public void testPerformAction_socketTimeout() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      server.setHandler(sleepHandler(2000));
+      server.startSilent();
+      String url = server.getTestUrl();
+      testee = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withSocketTimeout(200, TimeUnit.MILLISECONDS) //
+          .build();
+
+      // WHEN
+      try {
+        testee.performAction(new GetPage(url));
+        fail();
+      } catch (ActionTimeoutException e) {
+        // THEN
+        assertEquals(1, testee.getTimeoutCount());
+      }
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testPerformAction_deadline() {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      server.setHandler(sleepHandler(150));
+      server.startSilent();
+      testee = HttpActionClient.builder() //
+          .withUrl(server.getTestUrl()) //
+          .build();
+      ResponseHandler<String> messages = ContentProcessableBuilder //
+          .create(testee) //
+          .withActions(new Get("/a"), new Get("/b"), new Get("/c")) //
+          .build();
+
+      // WHEN
+      try {
+        testee.performAction(messages, 250, TimeUnit.MILLISECONDS);
+        fail();
+      } catch (ActionTimeoutException e) {
+        // THEN
+        assertEquals(1, testee.getTimeoutCount());
+        assertTrue(messages.hasMoreMessages());
+      }
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTimeouts_externalClient() {
+    HttpActionClient.builder() //
+        .withUrl("http://localhost/") //
+        .withClient(HttpClientBuilder.create().build()) //
+        .withConnectTimeout(1, TimeUnit.SECONDS) //
+        .build();
+  }
+
+  @Test
+  public void testPerformAction_transport() {
+    // GIVEN
+    final List<String> requests = Lists.newArrayList();
+    HttpTransport transport = new HttpTransport() {
+
+      @Override
+      public TransportResponse execute(TransportRequest request) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (request.getBody() != null) {
+          request.getBody().writeTo(body);
+        }
+        requests.add(request + " " + body.toString("UTF-8"));
+        return new BasicTransportResponse(200, "OK", "line\nresult".getBytes("UTF-8"));
+      }
+
+      @Override
+      public void close() {
+        fail("a given transport must not be closed");
+      }
+    };
+    testee = HttpActionClient.builder() //
+        .withUrl("http://wiki.invalid/w/") //
+        .withTransport(transport) //
+        .build();
+
+    // WHEN
+    ResponseHandler<String> handler = ContentProcessableBuilder //
+        .create(testee) //
+        .withActions(new Get("/api.php?a=b"), new Post("/api.php").param("c", "d")) //
+        .build();
+
+    // THEN
+    assertEquals("line\nresult\n", handler.get());
+    assertEquals(ImmutableList.of("GET http://wiki.invalid/w/api.php?a=b ", //
+        "POST http://wiki.invalid/w/api.php c=d"), requests);
+    assertFalse(testee.getPoolStats().isPresent());
+    testee.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTransport_externalClient() {
+    HttpActionClient.builder() //
+        .withUrl("http://localhost/") //
+        .withClient(HttpClientBuilder.create().build()) //
+        .withTransport(new ApacheHttpTransport(HttpClientBuilder.create().build())) //
+        .build();
+  }
+
+  @Test
+  public void testActionMetrics() throws Exception {
+    // GIVEN
+    final AtomicInteger requests = new AtomicInteger();
+    HttpTransport transport = new HttpTransport() {
+
+      @Override
+      public TransportResponse execute(TransportRequest request) throws IOException {
+        if (requests.incrementAndGet() == 1) {
+          return new BasicTransportResponse(502);
+        }
+        return new BasicTransportResponse(200, "OK", "text".getBytes("UTF-8"));
+      }
+
+      @Override
+      public void close() {
+        // nothing to close
+      }
+    };
+    testee = HttpActionClient.builder() //
+        .withUrl("http://wiki.invalid/") //
+        .withTransport(transport) //
+        .withRetryPolicy(RetryPolicy.builder() //
+            .withBackoff(0, 0, TimeUnit.MILLISECONDS, 1) //
+            .build()) //
+        .build();
+    ObjectName name = testee.getActionMetrics().registerMBean("test-" + System.nanoTime());
+
+    // WHEN
+    testee.performAction(new GetPage("/"));
+
+    // THEN
+    ActionMetrics.Snapshot snapshot = testee.getActionMetrics().snapshotOf(GetPage.class);
+    assertEquals(1, snapshot.getActions());
+    assertEquals(1, snapshot.getMessages());
+    assertEquals(2, snapshot.getRequests());
+    assertEquals(ImmutableMap.of(200, 1L, 502, 1L), snapshot.getStatusCodes());
+    assertEquals(1, snapshot.getRetries());
+    assertEquals(4, snapshot.getResponseBytes());
+    assertEquals(0, snapshot.getErrors());
+    assertEquals(0, snapshot.getTimeouts());
+    assertTrue(snapshot.getLatencyP50() <= snapshot.getLatencyP99());
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    TabularData actions = (TabularData) server.getAttribute(name, "Actions");
+    assertEquals(1, actions.size());
+    testee.close();
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  public void testListener() {
+    // GIVEN
+    HttpTransport transport = new HttpTransport() {
+
+      @Override
+      public TransportResponse execute(TransportRequest request) throws IOException {
+        if (request.getUri().getPath().endsWith("/fail")) {
+          return new BasicTransportResponse(500);
+        }
+        return new BasicTransportResponse(200, "OK", "text".getBytes("UTF-8"));
+      }
+
+      @Override
+      public void close() {
+        // nothing to close
+      }
+    };
+    final List<String> events = Lists.newArrayList();
+    testee = HttpActionClient.builder() //
+        .withUrl("http://wiki.invalid/") //
+        .withTransport(transport) //
+        .withListener(new ActionListener.Adapter() {
+
+          @Override
+          public void beforeSend(ActionEvent event) {
+            throw new IllegalStateException("must not affect the action");
+          }
+        }) //
+        .withListener(new ActionListener() {
+
+          @Override
+          public void beforeSend(ActionEvent event) {
+            events.add("beforeSend " + event.getMethod() + " " + event.getUri().getPath());
+          }
+
+          @Override
+          public void afterHeaders(ActionEvent event) {
+            events.add("afterHeaders " + event.getStatusCode());
+          }
+
+          @Override
+          public void afterBody(ActionEvent event) {
+            events.add("afterBody " + event.getResponseBytes());
+          }
+
+          @Override
+          public void afterParse(ActionEvent event) {
+            assertTrue(event.getHeadersNanos() <= event.getBodyNanos());
+            assertTrue(event.getBodyNanos() <= event.getParseNanos());
+            events.add("afterParse " + event.getAction().getClass().getSimpleName());
+          }
+
+          @Override
+          public void onError(ActionEvent event, RuntimeException e) {
+            events.add("onError " + e.getClass().getSimpleName());
+          }
+        }) //
+        .build();
+
+    // WHEN
+    testee.performAction(new GetPage("/ok"));
+    try {
+      testee.performAction(new GetPage("/fail"));
+      fail();
+    } catch (IllegalStateException e) {
+      // THEN
+      assertEquals(ImmutableList.of("beforeSend GET /ok", "afterHeaders 200", "afterBody 4",
+          "afterParse GetPage", "beforeSend GET /fail", "afterHeaders 500",
+          "onError IllegalStateException"), events);
+    }
+  }
+
+  @Test
+  public void testDownload() throws IOException {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      byte[] data = binaryData();
+      server.setHandler(rangeHandler(data, Lists.<String> newArrayList()));
+      server.startSilent();
+      testee = HttpActionClient.of(server.getTestUrl());
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      // WHEN
+      long written = testee.download(new Get("/image.png"), Channels.newChannel(out));
+
+      // THEN
+      assertEquals(data.length, written);
+      assertArrayEquals(data, out.toByteArray());
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testDownload_reader() throws IOException {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      byte[] data = binaryData();
+      server.setHandler(rangeHandler(data, Lists.<String> newArrayList()));
+      server.startSilent();
+      testee = HttpActionClient.of(server.getTestUrl());
+
+      // WHEN
+      byte[] head = testee.download(new Get("/image.png"), new BodyReader<byte[]>() {
+
+        @Override
+        public byte[] read(ReadableByteChannel body) throws IOException {
+          ByteBuffer buffer = ByteBuffer.allocate(100);
+          while (buffer.hasRemaining() && body.read(buffer) >= 0) {
+            // fill
+          }
+          return buffer.array();
+        }
+      });
+
+      // THEN
+      assertArrayEquals(Arrays.copyOf(data, 100), head);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertEquals(data.length, testee.download(new Get("/image.png"), Channels.newChannel(out)));
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testDownload_resume() throws IOException {
+    JettyServer server = new JettyServer();
+    try {
+      // GIVEN
+      byte[] data = binaryData();
+      List<String> ranges = Lists.newArrayList();
+      server.setHandler(rangeHandler(data, ranges));
+      server.startSilent();
+      testee = HttpActionClient.of(server.getTestUrl());
+      File file = File.createTempFile("download", ".png");
+      file.deleteOnExit();
+      Files.write(Arrays.copyOf(data, 100), file);
+
+      // WHEN
+      long written = testee.download(new Get(server.getTestUrl() + "image.png"), file);
+      long rewritten = testee.download(new Get("/image.png"), file);
+
+      // THEN
+      assertEquals(data.length - 100, written);
+      assertEquals(0, rewritten);
+      assertArrayEquals(data, Files.toByteArray(file));
+      assertEquals(ImmutableList.of("bytes=100- identity", "bytes=" + data.length + "- identity"),
+          ranges);
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  private static byte[] binaryData() {
+    byte[] data = new byte[20000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+
+  private static ContextHandler rangeHandler(final byte[] data, final List<String> ranges) {
+    return new ContextHandler() {
+      @Override
+      public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+          HttpServletResponse response) throws IOException, ServletException {
+        String range = request.getHeader("Range");
+        int offset = 0;
+        if (range != null) {
+          ranges.add(range + " " + request.getHeader("Accept-Encoding"));
+          offset = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+          if (offset >= data.length) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            request.setHandled(true);
+            return;
+          }
+          response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        }
+        response.setContentType("image/png");
+        response.getOutputStream().write(data, offset, data.length - offset);
+        request.setHandled(true);
+      }
+    };
+  }
+
 }
@@ -0,0 +1,164 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sourceforge.jwbf.JettyServer;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.CharStreams;
+
+public class ReplayingHttpClientTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static ContextHandler echoHandler() {
+    return new ContextHandler() {
+      @Override
+      public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+          HttpServletResponse response) throws IOException, ServletException {
+        response.setContentType("text/plain; charset=utf-8");
+        String body = CharStreams.toString(request.getReader());
+        response.getWriter().print(request.getMethod() + " " + request.getQueryString() + " "
+            + body.contains("value-b"));
+        request.setHandled(true);
+      }
+    };
+  }
+
+  private static String perform(HttpActionClient client, HttpAction action) {
+    ResponseHandler<String> handler = ContentProcessableBuilder //
+        .create(client) //
+        .withActions(action) //
+        .build();
+    return handler.get().trim();
+  }
+
+  private static Post post(String value) {
+    Post post = new Post("/api.php");
+    post.addParam("key", value);
+    return post;
+  }
+
+  @Test
+  public void testRecordAndReplay() throws Exception {
+    File archive = folder.newFile("exchanges.bin");
+    JettyServer server = new JettyServer();
+    String url;
+    try {
+      // GIVEN
+      server.setHandler(echoHandler());
+      server.startSilent();
+      url = server.getTestUrl();
+      HttpActionClient recording = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withRecording(archive) //
+          .build();
+
+      // WHEN
+      assertEquals("GET a=b false", perform(recording, new Get("/api.php?a=b")));
+      assertEquals("POST null false", perform(recording, post("value-a")));
+      assertEquals("POST null true", perform(recording, post("value-b")));
+      recording.close();
+    } finally {
+      server.stopSilent();
+    }
+
+    // THEN
+    HttpActionClient replaying = HttpActionClient.builder() //
+        .withUrl(url) //
+        .withClient(ReplayingHttpClient.builder(archive).build()) //
+        .build();
+    assertEquals("POST null true", perform(replaying, post("value-b")));
+    assertEquals("GET a=b false", perform(replaying, new Get("/api.php?a=b")));
+    assertEquals("POST null false", perform(replaying, post("value-a")));
+    assertEquals("GET a=b false", perform(replaying, new Get("/api.php?a=b")));
+    try {
+      perform(replaying, new Get("/api.php?a=c"));
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("no recorded exchange for GET"));
+    }
+  }
+
+  @Test
+  public void testReplay_missingExchangeIsNotRetried() throws Exception {
+    // GIVEN
+    File archive = folder.newFile("exchanges.bin");
+    HttpActionClient recording = HttpActionClient.builder() //
+        .withUrl("http://localhost/") //
+        .withRecording(archive) //
+        .build();
+    recording.close();
+    HttpActionClient replaying = HttpActionClient.builder() //
+        .withUrl("http://localhost/") //
+        .withClient(ReplayingHttpClient.builder(archive).build()) //
+        .withRetryPolicy(RetryPolicy.builder() //
+            .withMaxAttempts(5) //
+            .withBackoff(1, 1, TimeUnit.SECONDS, 1) //
+            .build()) //
+        .build();
+    long start = System.nanoTime();
+
+    // WHEN
+    try {
+      perform(replaying, new Get("/api.php?a=c"));
+      fail();
+    } catch (IllegalStateException e) {
+      // THEN
+      assertTrue(e.getMessage(), e.getMessage().startsWith("no recorded exchange for GET"));
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+  }
+
+  @Test
+  public void testReplay_latency() throws Exception {
+    // GIVEN
+    File archive = folder.newFile("exchanges.bin");
+    JettyServer server = new JettyServer();
+    String url;
+    try {
+      server.setHandler(JettyServer.textHandler("text"));
+      server.startSilent();
+      url = server.getTestUrl();
+      HttpActionClient recording = HttpActionClient.builder() //
+          .withUrl(url) //
+          .withRecording(archive) //
+          .build();
+      perform(recording, new Get("/"));
+      recording.close();
+    } finally {
+      server.stopSilent();
+    }
+    HttpActionClient replaying = HttpActionClient.builder() //
+        .withUrl(url) //
+        .withClient(ReplayingHttpClient.builder(archive) //
+            .withLatency(100, TimeUnit.MILLISECONDS) //
+            .build()) //
+        .build();
+
+    // WHEN
+    long start = System.nanoTime();
+    String result = perform(replaying, new Get("/"));
+
+    // THEN
+    assertEquals("text", result);
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+  }
+}
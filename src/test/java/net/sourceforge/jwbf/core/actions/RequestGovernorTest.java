@@ -0,0 +1,91 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.junit.Test;
+
+public class RequestGovernorTest {
+
+  private static final String HOST = "localhost:8080";
+
+  private final RequestGovernor testee = RequestGovernor.builder() //
+      .withRate(1, 10) //
+      .withAdjustment(2, 0.5) //
+      .withWait(3, 60, TimeUnit.SECONDS) //
+      .build();
+
+  @Test
+  public void testAppendMaxlag() {
+    assertEquals("/w/api.php?action=query&maxlag=5",
+        testee.appendMaxlag("/w/api.php?action=query"));
+    assertEquals("/w/api.php?maxlag=5", testee.appendMaxlag("/w/api.php"));
+    assertEquals("/w/api.php?maxlag=1", testee.appendMaxlag("/w/api.php?maxlag=1"));
+    assertEquals("/w/index.php?title=A", testee.appendMaxlag("/w/index.php?title=A"));
+  }
+
+  @Test
+  public void testAppendMaxlag_disabled() {
+    RequestGovernor governor = RequestGovernor.builder().withMaxlag(-1).build();
+    assertEquals("/api.php?a=b", governor.appendMaxlag("/api.php?a=b"));
+  }
+
+  @Test
+  public void testIsThrottled() {
+    assertFalse(RequestGovernor.isThrottled(response(HttpStatus.SC_OK)));
+    assertTrue(RequestGovernor.isThrottled(response(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+
+    BasicTransportResponse apiError = response(HttpStatus.SC_OK);
+    apiError.addHeader(RequestGovernor.API_ERROR, "maxlag");
+    assertTrue(RequestGovernor.isThrottled(apiError));
+
+    BasicTransportResponse lagged = response(HttpStatus.SC_OK);
+    lagged.addHeader(RequestGovernor.DATABASE_LAG, "7");
+    lagged.addHeader(RequestGovernor.RETRY_AFTER, "5");
+    assertTrue(RequestGovernor.isThrottled(lagged));
+  }
+
+  @Test
+  public void testOnResponse_aimd() {
+    assertEquals(10, testee.getRate(HOST), 0.001);
+
+    BasicTransportResponse throttled = response(HttpStatus.SC_SERVICE_UNAVAILABLE);
+    throttled.addHeader(RequestGovernor.RETRY_AFTER, "7");
+    assertEquals(7000, testee.onResponse(HOST, throttled));
+    assertEquals(5, testee.getRate(HOST), 0.001);
+    assertEquals(2.5, getRateAfter(throttled), 0.001);
+    assertEquals(1.25, getRateAfter(throttled), 0.001);
+    assertEquals(1, getRateAfter(throttled), 0.001);
+
+    assertEquals(-1, testee.onResponse(HOST, response(HttpStatus.SC_OK)));
+    assertEquals(3, testee.getRate(HOST), 0.001);
+    assertEquals(10, testee.getRate("other:80"), 0.001);
+  }
+
+  @Test
+  public void testWaitMillisOf() {
+    BasicTransportResponse noRetryAfter = response(HttpStatus.SC_SERVICE_UNAVAILABLE);
+    assertEquals(3000, testee.waitMillisOf(noRetryAfter));
+
+    BasicTransportResponse tooLong = response(HttpStatus.SC_SERVICE_UNAVAILABLE);
+    tooLong.addHeader(RequestGovernor.RETRY_AFTER, "3600");
+    assertEquals(60000, testee.waitMillisOf(tooLong));
+
+    BasicTransportResponse past = response(HttpStatus.SC_SERVICE_UNAVAILABLE);
+    past.addHeader(RequestGovernor.RETRY_AFTER, "Wed, 21 Oct 2015 07:28:00 GMT");
+    assertEquals(0, testee.waitMillisOf(past));
+  }
+
+  private double getRateAfter(TransportResponse response) {
+    testee.onResponse(HOST, response);
+    return testee.getRate(HOST);
+  }
+
+  private static BasicTransportResponse response(int code) {
+    return new BasicTransportResponse(code);
+  }
+}
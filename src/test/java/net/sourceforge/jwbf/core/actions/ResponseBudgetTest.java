@@ -0,0 +1,142 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+
+public class ResponseBudgetTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testTrack() throws IOException {
+    // GIVEN
+    ResponseBudget testee = ResponseBudget.builder().withMaxBytes(100).build();
+    AtomicLong message = new AtomicLong();
+
+    // WHEN
+    ByteStreams.toByteArray(testee.track(new ByteArrayInputStream(new byte[40]), message));
+
+    // THEN
+    assertEquals(40, message.get());
+    assertEquals(40, testee.getInFlightBytes());
+
+    // WHEN
+    testee.release(message);
+
+    // THEN
+    assertEquals(0, message.get());
+    assertEquals(0, testee.getInFlightBytes());
+  }
+
+  @Test
+  public void testAwaitCapacity() throws Exception {
+    // GIVEN
+    final ResponseBudget testee = ResponseBudget.builder().withMaxBytes(10).build();
+    AtomicLong message = new AtomicLong();
+    ByteStreams.toByteArray(testee.track(new ByteArrayInputStream(new byte[10]), message));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // WHEN
+      boolean expired = testee.awaitCapacity(50);
+      Future<Boolean> waiting = executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return testee.awaitCapacity(5000);
+        }
+      });
+      TimeUnit.MILLISECONDS.sleep(100);
+      assertFalse(waiting.isDone());
+      testee.release(message);
+
+      // THEN
+      assertFalse(expired);
+      assertTrue(waiting.get(5, TimeUnit.SECONDS));
+      assertEquals(2, testee.getWaitCount());
+      assertTrue(testee.awaitCapacity(0));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBuffer() throws IOException {
+    // GIVEN
+    ResponseBudget testee = ResponseBudget.builder() //
+        .withSpillThreshold(8) //
+        .withDirectory(folder.getRoot()) //
+        .build();
+
+    // WHEN
+    BufferedBody body = testee.buffer(new ByteArrayInputStream(new byte[8]));
+
+    // THEN
+    assertFalse(body.isSpilled());
+    assertEquals(8, body.bytes().length);
+    assertEquals(0, testee.getSpillCount());
+  }
+
+  @Test
+  public void testBuffer_spill() throws IOException {
+    // GIVEN
+    ResponseBudget testee = ResponseBudget.builder() //
+        .withSpillThreshold(8) //
+        .withDirectory(folder.getRoot()) //
+        .build();
+    byte[] data = new byte[20];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+
+    // WHEN
+    BufferedBody body = testee.buffer(new ByteArrayInputStream(data));
+
+    // THEN
+    assertTrue(body.isSpilled());
+    assertNull(body.bytes());
+    assertEquals(20, body.length());
+    assertEquals(1, testee.getSpillCount());
+    assertEquals(1, folder.getRoot().list().length);
+    try (InputStream in = body.open()) {
+      assertArrayEquals(data, ByteStreams.toByteArray(in));
+    }
+
+    // WHEN
+    assertTrue(body.retain());
+    body.release();
+
+    // THEN
+    assertEquals(1, folder.getRoot().list().length);
+
+    // WHEN
+    body.release();
+
+    // THEN
+    assertEquals(0, folder.getRoot().list().length);
+    assertFalse(body.retain());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuilder_invalidThreshold() {
+    ResponseBudget.builder().withSpillThreshold(Long.MAX_VALUE);
+  }
+}
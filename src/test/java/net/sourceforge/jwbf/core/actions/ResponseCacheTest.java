@@ -0,0 +1,149 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+
+public class ResponseCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static TransportResponse response(int code, String... headers) {
+    BasicTransportResponse response = new BasicTransportResponse(code);
+    for (int i = 0; i < headers.length; i += 2) {
+      response.addHeader(headers[i], headers[i + 1]);
+    }
+    return response;
+  }
+
+  @Test
+  public void testStore() {
+    // GIVEN
+    ResponseCache testee = ResponseCache.builder().build();
+    Get get = new Get("/a");
+
+    // WHEN
+    testee.store(get, response(200), new byte[] { 1 });
+
+    // THEN
+    ResponseCache.Entry entry = testee.lookup(new Get("/a"));
+    assertArrayEquals(new byte[] { 1 }, entry.getBody());
+    assertTrue(testee.isFresh(entry));
+    assertNull(testee.lookup(new Get("/a", "iso-8859-1")));
+  }
+
+  @Test
+  public void testStore_notCacheable() {
+    // GIVEN
+    ResponseCache testee = ResponseCache.builder().build();
+    Get get = new Get("/a");
+
+    // WHEN
+    testee.store(get, response(200, "Cache-Control", "private, no-store"), new byte[] { 1 });
+    testee.store(get, response(204), new byte[0]);
+
+    // THEN
+    assertNull(testee.lookup(get));
+  }
+
+  @Test
+  public void testAccepts_sessionDependent() {
+    // GIVEN
+    ResponseCache testee = ResponseCache.builder().build();
+
+    // WHEN/THEN
+    assertTrue(testee.accepts(new Get("/api.php?action=query&list=allpages&aplimit=50")));
+    assertTrue(testee.accepts(new Get("/api.php?action=query&meta=siteinfo")));
+    assertFalse(testee.accepts(new Get("/api.php?action=query&prop=info&intoken=edit")));
+    assertFalse(testee.accepts(new Get("/api.php?action=query&meta=userinfo&uiprop=rights")));
+    assertFalse(testee.accepts(new Get("/api.php?action=query&meta=tokens&type=csrf")));
+    assertFalse(testee.accepts(new Get("/api.php?action=query&meta=siteinfo%7CUSERINFO")));
+    assertFalse(testee.accepts(new Get("/api.php?action=login&lgname=Bob")));
+  }
+
+  @Test
+  public void testStore_noStoreInTurkishLocale() {
+    Locale locale = Locale.getDefault();
+    Locale.setDefault(new Locale("tr", "TR"));
+    try {
+      // GIVEN
+      ResponseCache testee = ResponseCache.builder().build();
+      Get get = new Get("/a");
+
+      // WHEN
+      testee.store(get, response(200, "Cache-Control", "NO-STORE"), new byte[] { 1 });
+
+      // THEN
+      assertNull(testee.lookup(get));
+    } finally {
+      Locale.setDefault(locale);
+    }
+  }
+
+  @Test
+  public void testRevalidation() {
+    // GIVEN
+    ResponseCache testee = ResponseCache.builder().withTtl(0, TimeUnit.SECONDS).build();
+    Get get = new Get("/a");
+    testee.store(get, response(200, "ETag", "\"x\"", "Last-Modified", "yesterday"),
+        new byte[] { 1 });
+    ResponseCache.Entry entry = testee.lookup(get);
+    TransportRequest request = new TransportRequest(TransportRequest.GET, URI.create("/a"));
+
+    // WHEN
+    testee.prepareRevalidation(request, entry);
+
+    // THEN
+    assertFalse(testee.isFresh(entry));
+    assertEquals(ImmutableMap.of("If-None-Match", "\"x\"", "If-Modified-Since", "yesterday"),
+        request.getHeaders());
+    assertNull(testee.revalidated(get, entry, response(200)));
+    assertArrayEquals(new byte[] { 1 }, testee.revalidated(get, entry, response(304)).getBody());
+    assertEquals(1, testee.getRevalidationCount());
+    assertEquals(1, testee.getMissCount());
+  }
+
+  @Test
+  public void testDisk() {
+    // GIVEN
+    File directory = folder.getRoot();
+    Get get = new Get("/a");
+    ResponseCache.builder().withDirectory(directory).build() //
+        .store(get, response(200), new byte[] { 1, 2 });
+
+    // WHEN
+    ResponseCache testee = ResponseCache.builder().withDirectory(directory).build();
+
+    // THEN
+    assertArrayEquals(new byte[] { 1, 2 }, testee.lookup(get).getBody());
+    testee.invalidateAll();
+    assertNull(testee.lookup(get));
+  }
+
+  @Test
+  public void testMaxBytes() {
+    // GIVEN
+    ResponseCache testee = ResponseCache.builder().withMaxBytes(10).build();
+
+    // WHEN
+    testee.store(new Get("/a"), response(200), new byte[8]);
+    testee.store(new Get("/b"), response(200), new byte[8]);
+
+    // THEN
+    assertNull(testee.lookup(new Get("/a")));
+  }
+}
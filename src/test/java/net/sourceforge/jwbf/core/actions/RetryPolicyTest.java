@@ -0,0 +1,80 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+  @Test
+  public void testIsIdempotent() {
+    assertTrue(RetryPolicy.isIdempotent(new Get("/a")));
+    assertFalse(RetryPolicy.isIdempotent(new Post("/a")));
+    assertTrue(RetryPolicy.isIdempotent(new Post("/a").retrySafe(true)));
+  }
+
+  @Test
+  public void testShouldRetry_maxAttempts() {
+    RetryPolicy testee = RetryPolicy.builder().withMaxAttempts(3).build();
+    Get get = new Get("/a");
+
+    assertTrue(testee.shouldRetry(get, 1));
+    assertTrue(testee.shouldRetry(get, 2));
+    assertFalse(testee.shouldRetry(get, 3));
+    assertFalse(testee.shouldRetry(new Post("/a"), 1));
+  }
+
+  @Test
+  public void testShouldRetry_budget() {
+    RetryPolicy testee = RetryPolicy.builder().withBudget(2, 0.5).build();
+    Get get = new Get("/a");
+
+    assertTrue(testee.shouldRetry(get, 1));
+    assertTrue(testee.shouldRetry(get, 1));
+    assertFalse(testee.shouldRetry(get, 1));
+    assertEquals(0, testee.getRetryBudget(), 0.001);
+
+    testee.onSuccess();
+    testee.onSuccess();
+    assertEquals(1, testee.getRetryBudget(), 0.001);
+    assertTrue(testee.shouldRetry(get, 1));
+  }
+
+  @Test
+  public void testBackoffMillis() {
+    RetryPolicy testee = RetryPolicy.builder() //
+        .withBackoff(100, 1000, TimeUnit.MILLISECONDS, 3) //
+        .withJitter(0) //
+        .build();
+
+    assertEquals(100, testee.backoffMillis(1));
+    assertEquals(300, testee.backoffMillis(2));
+    assertEquals(900, testee.backoffMillis(3));
+    assertEquals(1000, testee.backoffMillis(4));
+  }
+
+  @Test
+  public void testBackoffMillis_jitter() {
+    RetryPolicy testee = RetryPolicy.builder() //
+        .withBackoff(1000, 1000, TimeUnit.MILLISECONDS, 2) //
+        .withJitter(0.5) //
+        .build();
+
+    for (int i = 0; i < 100; i++) {
+      long backoff = testee.backoffMillis(1);
+      assertTrue(backoff > 500 && backoff <= 1000);
+    }
+  }
+
+  @Test
+  public void testIsRetryableStatus() {
+    assertTrue(RetryPolicy.isRetryableStatus(502));
+    assertTrue(RetryPolicy.isRetryableStatus(504));
+    assertFalse(RetryPolicy.isRetryableStatus(500));
+    assertFalse(RetryPolicy.isRetryableStatus(404));
+  }
+}
@@ -0,0 +1,63 @@
+package net.sourceforge.jwbf.core.actions;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+public class TextDecoderTest {
+
+  @Test
+  public void testDecode() throws IOException {
+    assertEquals("", decode("", "UTF-8"));
+    assertEquals("a\n", decode("a", "UTF-8"));
+    assertEquals("a\r\nb\rc\n", decode("a\r\nb\rc\n", "UTF-8"));
+    assertEquals("\u00e4\u00f6\u00fc\n", decode("\u00e4\u00f6\u00fc", "ISO-8859-1"));
+  }
+
+  @Test
+  public void testDecode_large() throws IOException {
+    // GIVEN
+    String text = Strings.repeat("<rev>\u00e4\u20ac\ud83d\ude00 text</rev>\n", 5000);
+    byte[] bytes = text.getBytes(Charsets.UTF_8);
+
+    // WHEN / THEN
+    assertEquals(text, TextDecoder.decode(new ByteArrayInputStream(bytes), "utf-8"));
+    assertEquals(text, TextDecoder.decode(new OneByteInputStream(bytes), "utf-8"));
+  }
+
+  @Test
+  public void testDecode_malformed() throws IOException {
+    byte[] bytes = { 'a', (byte) 0xC3 };
+    assertEquals("a\ufffd\n", TextDecoder.decode(new ByteArrayInputStream(bytes), "UTF-8"));
+  }
+
+  private static String decode(String text, String charset) throws IOException {
+    return TextDecoder.decode(new ByteArrayInputStream(text.getBytes(charset)), charset);
+  }
+
+  private static class OneByteInputStream extends FilterInputStream {
+
+    OneByteInputStream(byte[] bytes) {
+      super(new ByteArrayInputStream(bytes));
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return super.read(b, off, Math.min(1, len));
+    }
+
+    @Override
+    public int available() {
+      return 0;
+    }
+  }
+
+}
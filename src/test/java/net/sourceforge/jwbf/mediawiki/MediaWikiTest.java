@@ -1,6 +1,7 @@
 package net.sourceforge.jwbf.mediawiki;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -23,4 +24,26 @@ public class MediaWikiTest {
     // assertEquals(rawEncUft8, rawEncUtf16);
   }
 
+  @Test
+  public void testDecode() {
+    assertEquals("A & B \"C\" \u00e4\u00df \u2019 <x>", MediaWiki.decode( //
+        "A &amp; B &quot;C&quot; &auml;&szlig; &rsquo; &lt;x&gt;"));
+    assertEquals("\u03d1 \u2013", MediaWiki.decode("&thetasym; &ndash;"));
+  }
+
+  @Test
+  public void testDecode_numeric() {
+    assertEquals("' ' \u20ac \ud83d\ude00 \ud83d\ude00", MediaWiki.decode( //
+        "&#039; &#x27; &#8364; &#128512; &#x1F600;"));
+  }
+
+  @Test
+  public void testDecode_unchanged() {
+    String plain = "Plain title";
+    assertSame(plain, MediaWiki.decode(plain));
+    String unknown = "a & b &unknown; &#; &#x; &#xZZ; &#0; &#xD800; &#x110000; &amp &;";
+    assertSame(unknown, MediaWiki.decode(unknown));
+    assertEquals("&quot;", MediaWiki.decode("&amp;quot;"));
+  }
+
 }
@@ -0,0 +1,214 @@
+package net.sourceforge.jwbf.mediawiki.actions.editing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sourceforge.jwbf.JettyServer;
+import net.sourceforge.jwbf.core.actions.HttpActionClient;
+import net.sourceforge.jwbf.core.actions.ResponseBudget;
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.util.ApiException;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+public class GetRevisionTest {
+
+  private static final String RESPONSE = "<?xml version=\"1.0\"?><api><query><pages>" //
+      + "<page pageid=\"1\" ns=\"0\" title=\"Test\"><revisions>" //
+      + "<rev revid=\"42\" user=\"Editor\" timestamp=\"2014-01-02T03:04:05Z\" "
+      + "comment=\"a &amp; b\" minor=\"\" xml:space=\"preserve\">"
+      + "line 1\nline 2 &lt;b&gt;\u00e4</rev>" //
+      + "</revisions></page></pages></query></api>";
+
+  private static final String RESPONSE_JSON_1 = "{\"query\":{\"pages\":{\"1\":{" //
+      + "\"pageid\":1,\"ns\":0,\"title\":\"Test\",\"revisions\":[{\"revid\":42," //
+      + "\"user\":\"Editor\",\"timestamp\":\"2014-01-02T03:04:05Z\",\"comment\":\"a & b\"," //
+      + "\"minor\":\"\",\"*\":\"line 1\\nline 2 <b>\\u00e4\"}]}}}}";
+
+  private static final String RESPONSE_JSON_2 = "{\"batchcomplete\":true,\"query\":{\"pages\":[{" //
+      + "\"pageid\":1,\"ns\":0,\"title\":\"Test\",\"revisions\":[{\"revid\":42," //
+      + "\"user\":\"Editor\",\"timestamp\":\"2014-01-02T03:04:05Z\",\"comment\":\"a & b\"," //
+      + "\"minor\":true,\"contentformat\":\"text/x-wiki\"," //
+      + "\"content\":\"line 1\\nline 2 <b>\\u00e4\"}]}]}}";
+
+  private static GetRevision newTestee() {
+    return newTestee(Format.XML);
+  }
+
+  private static GetRevision newTestee(Format format) {
+    return new GetRevision(Version.DEVELOPMENT, "Test", GetRevision.CONTENT
+        | GetRevision.TIMESTAMP | GetRevision.USER | GetRevision.COMMENT | GetRevision.IDS
+        | GetRevision.FLAGS, format);
+  }
+
+  @Test
+  public void testProcessReturningText() {
+    // GIVEN
+    GetRevision testee = newTestee();
+    HttpAction msg = testee.getNextMessage();
+
+    // WHEN
+    testee.processReturningText(RESPONSE, msg);
+
+    // THEN
+    assertRevision(testee);
+  }
+
+  @Test
+  public void testProcessReturningStream() throws IOException {
+    // GIVEN
+    GetRevision testee = newTestee();
+    HttpAction msg = testee.getNextMessage();
+
+    // WHEN
+    testee.processReturningStream(new ByteArrayInputStream(RESPONSE.getBytes(Charsets.UTF_8)),
+        msg);
+
+    // THEN
+    assertRevision(testee);
+  }
+
+  @Test
+  public void testProcessReturningText_json() {
+    // GIVEN
+    GetRevision testee = newTestee(Format.JSON);
+
+    // WHEN
+    testee.processReturningText(RESPONSE_JSON_1, testee.getNextMessage());
+
+    // THEN
+    assertRevision(testee);
+    assertTrue(testee.getNextMessage().getRequest().contains("format=json"));
+  }
+
+  @Test
+  public void testProcessReturningStream_json() throws IOException {
+    // GIVEN
+    GetRevision testee = newTestee(Format.JSON);
+    HttpAction msg = testee.getNextMessage();
+
+    // WHEN
+    testee.processReturningStream(
+        new ByteArrayInputStream(RESPONSE_JSON_2.getBytes(Charsets.UTF_8)), msg);
+
+    // THEN
+    assertRevision(testee);
+  }
+
+  @Test
+  public void testPerformAction_responseBudget() throws Exception {
+    JettyServer server = new JettyServer();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    final CountDownLatch sent = new CountDownLatch(1);
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          response.setContentType("text/xml; charset=utf-8");
+          int split = RESPONSE.indexOf("</revisions>");
+          response.getWriter().print(RESPONSE.substring(0, split));
+          response.flushBuffer();
+          if (sent.getCount() > 0) {
+            sent.countDown();
+            sleep(500);
+          }
+          response.getWriter().print(RESPONSE.substring(split));
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      ResponseBudget budget = ResponseBudget.builder() //
+          .withMaxBytes(64) //
+          .build();
+      final HttpActionClient client = HttpActionClient.builder() //
+          .withUrl(server.getTestUrl()) //
+          .withResponseBudget(budget) //
+          .build();
+      List<GetRevision> revisions = Lists.newArrayList();
+      List<Future<String>> results = Lists.newArrayList();
+      for (int i = 0; i < 4; i++) {
+        revisions.add(newTestee());
+      }
+
+      // WHEN
+      results.add(executor.submit(perform(client, revisions.get(0))));
+      assertTrue(sent.await(5, TimeUnit.SECONDS));
+      sleep(100);
+      long held = budget.getInFlightBytes();
+      for (GetRevision revision : revisions.subList(1, revisions.size())) {
+        results.add(executor.submit(perform(client, revision)));
+      }
+      for (Future<String> result : results) {
+        result.get(5, TimeUnit.SECONDS);
+      }
+
+      // THEN
+      assertTrue("" + held, held > 64);
+      assertTrue(budget.getWaitCount() > 0);
+      assertEquals(0, budget.getInFlightBytes());
+      for (GetRevision revision : revisions) {
+        assertRevision(revision);
+      }
+    } finally {
+      executor.shutdownNow();
+      server.stopSilent();
+    }
+  }
+
+  private static Callable<String> perform(final HttpActionClient client,
+      final GetRevision revision) {
+    return new Callable<String>() {
+      @Override
+      public String call() {
+        return client.performAction(revision);
+      }
+    };
+  }
+
+  private static void sleep(long millis) {
+    try {
+      TimeUnit.MILLISECONDS.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void assertRevision(GetRevision testee) {
+    assertEquals("line 1\nline 2 <b>\u00e4", testee.getArticle().getText());
+    assertEquals("42", testee.getArticle().getRevisionId());
+    assertEquals("Editor", testee.getArticle().getEditor());
+    assertEquals("a & b", testee.getArticle().getEditSummary());
+    assertTrue(testee.getArticle().isMinorEdit());
+  }
+
+  @Test(expected = ApiException.class)
+  public void testProcessReturningText_error() {
+    GetRevision testee = newTestee();
+    testee.processReturningText("<?xml version=\"1.0\"?><api>"
+        + "<error code=\"missingtitle\" info=\"The page you specified doesn't exist\" /></api>",
+        testee.getNextMessage());
+  }
+}
@@ -0,0 +1,86 @@
+package net.sourceforge.jwbf.mediawiki.actions.queries;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+
+import net.sourceforge.jwbf.core.actions.util.HttpAction;
+import net.sourceforge.jwbf.mediawiki.ApiRequestBuilder;
+import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Format;
+import net.sourceforge.jwbf.mediawiki.bots.MediaWikiBot;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class TitleQueryTest {
+
+  /**
+   * Requests XML independent of the format of the bot and knows no JSON.
+   */
+  private static class XmlTitles extends TitleQuery<String> {
+
+    XmlTitles(MediaWikiBot bot) {
+      super(bot);
+    }
+
+    @Override
+    protected HttpAction prepareCollection() {
+      return new ApiRequestBuilder() //
+          .action("query") //
+          .formatXml() //
+          .param("list", "allpages") //
+          .buildGet();
+    }
+
+    @Override
+    protected Collection<String> parseArticleTitles(String s) {
+      Collection<String> titles = Lists.newArrayList();
+      parseXmlTitles(s, "p", titles);
+      return titles;
+    }
+
+    @Override
+    protected String parseHasMore(String s) {
+      return "";
+    }
+  }
+
+  @Test
+  public void testProcessAllReturningText_xmlOnlyWithJsonBot() {
+    // GIVEN
+    MediaWikiBot bot = mock(MediaWikiBot.class);
+    when(bot.getFormat()).thenReturn(Format.JSON);
+    XmlTitles testee = new XmlTitles(bot);
+
+    // WHEN
+    testee.getInnerAction().processAllReturningText("<?xml version=\"1.0\"?><api><query>"
+        + "<allpages><p title=\"A\" /><p title=\"B\" /></allpages></query></api>");
+
+    // THEN
+    assertEquals(ImmutableList.of("A", "B"), ImmutableList.copyOf(testee.titleIterator));
+  }
+
+  @Test
+  public void testTemplateUserTitles_json() {
+    // GIVEN
+    MediaWikiBot bot = mock(MediaWikiBot.class);
+    when(bot.getFormat()).thenReturn(Format.JSON);
+    TemplateUserTitles testee = new TemplateUserTitles(bot, "Template:Test");
+    String json = "{\"query-continue\":{\"embeddedin\":{\"eicontinue\":\"10|C\"}},"
+        + "\"query\":{\"embeddedin\":[{\"ns\":0,\"title\":\"A\"},{\"ns\":0,\"title\":\"B\"}]}}";
+
+    // WHEN
+    testee.getInnerAction().processAllReturningText(json);
+
+    // THEN
+    assertEquals(ImmutableList.of("A", "B"), ImmutableList.copyOf(testee.titleIterator));
+    assertEquals("10|C", testee.getNextPageInfo());
+    assertEquals(ImmutableList.of("A", "B"), testee.parseArticleTitles(json));
+    assertEquals("10|C", testee.parseHasMore(json));
+  }
+
+}
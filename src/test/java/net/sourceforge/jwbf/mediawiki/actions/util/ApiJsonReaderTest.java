@@ -0,0 +1,110 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+public class ApiJsonReaderTest {
+
+  private static ApiJsonReader readerOf(String json) {
+    return ApiJsonReader.of(new StringReader(json));
+  }
+
+  @Test
+  public void testNextObject() {
+    // GIVEN
+    String json = "{\"batchcomplete\":true,\"continue\":{\"apcontinue\":\"B\",\"continue\":\"-||\"},"
+        + "\"query\":{\"allpages\":[{\"pageid\":1,\"ns\":0,\"title\":\"A\"},"
+        + "{\"pageid\":2,\"ns\":0,\"title\":\"A\\\"\\u00e4\\n\"}]}}";
+    List<String> found = Lists.newArrayList();
+
+    // WHEN
+    try (ApiJsonReader testee = readerOf(json)) {
+      while (testee.nextObject()) {
+        found.add(testee.getDepth() + " " + testee.getName());
+        if (testee.getName().equals("allpages")) {
+          found.add(testee.readValues().get("title"));
+        }
+      }
+    }
+
+    // THEN
+    assertEquals(Lists.newArrayList("1 ", "2 continue", "2 query", "4 allpages", "A",
+        "4 allpages", "A\"\u00e4\n"), found);
+  }
+
+  @Test
+  public void testReadValues() {
+    // GIVEN
+    String json = " { \"s\" : \"v\" , \"n\" : -1.5e3 , \"t\" : true , \"z\" : null ,"
+        + " \"o\" : { \"a\" : [ 1 , { \"b\" : \"}]\" } ] } , \"e\" : \"\" } ";
+
+    // WHEN
+    Map<String, String> values;
+    try (ApiJsonReader testee = readerOf(json)) {
+      assertTrue(testee.nextObject());
+      values = testee.readValues();
+      assertFalse(testee.nextObject());
+    }
+
+    // THEN
+    assertEquals("v", values.get("s"));
+    assertEquals("-1.5e3", values.get("n"));
+    assertEquals("true", values.get("t"));
+    assertTrue(values.containsKey("z"));
+    assertNull(values.get("z"));
+    assertFalse(values.containsKey("o"));
+    assertEquals("", values.get("e"));
+  }
+
+  @Test
+  public void testReadValues_longString() {
+    // GIVEN
+    String text = Strings.repeat("0123456789\\\"", 2000);
+
+    // WHEN
+    try (ApiJsonReader testee = readerOf("{\"text\":\"" + text + "\"}")) {
+      assertTrue(testee.nextObject());
+
+      // THEN
+      assertEquals(text.replace("\\", ""), testee.readValues().get("text"));
+    }
+  }
+
+  @Test
+  public void testNextObject_error() {
+    // GIVEN
+    String json = "{\"servedby\":\"mw1\",\"error\":{\"code\":\"badtoken\","
+        + "\"info\":\"Invalid token\",\"*\":\"See api.php\"}}";
+
+    try (ApiJsonReader testee = readerOf(json)) {
+      assertTrue(testee.nextObject());
+
+      // WHEN
+      testee.nextObject();
+      fail();
+    } catch (ApiException e) {
+      // THEN
+      assertEquals("API ERROR CODE: badtoken VALUE: Invalid token", e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNextObject_malformed() {
+    try (ApiJsonReader testee = readerOf("{\"a\" 1}")) {
+      testee.nextObject();
+      testee.nextObject();
+    }
+  }
+}
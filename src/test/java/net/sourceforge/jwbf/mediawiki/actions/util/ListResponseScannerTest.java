@@ -0,0 +1,98 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ListResponseScannerTest {
+
+  private static List<String> titlesOf(ListResponseScanner testee) {
+    List<String> titles = Lists.newArrayList();
+    while (testee.nextItem()) {
+      titles.add(testee.getAttribute("title"));
+    }
+    return titles;
+  }
+
+  @Test
+  public void testNextItem_queryContinue() {
+    // GIVEN
+    String xml = "<?xml version=\"1.0\"?><api><query><allpages>" //
+        + "<p pageid=\"1\" ns=\"0\" title=\"A &amp; B\" />" //
+        + "<p title='C &quot;D&quot;' ns=\"0\" pageid=\"2\"/>" //
+        + "<p\n pageid=\"3\" ns=\"0\" title=\"E/>F\" />" //
+        + "</allpages></query><!-- <p title=\"comment\" /> -->" //
+        + "<query-continue><allpages apcontinue=\"G\" /></query-continue></api>";
+    ListResponseScanner testee = new ListResponseScanner(xml, "p");
+
+    // WHEN
+    List<String> titles = titlesOf(testee);
+
+    // THEN
+    assertEquals(Lists.newArrayList("A & B", "C \"D\"", "E/>F"), titles);
+    assertEquals("G", testee.getContinue("apcontinue"));
+    assertNull(testee.getContinue("apfrom"));
+  }
+
+  @Test
+  public void testNextItem_continue() {
+    // GIVEN
+    String xml = "<?xml version=\"1.0\"?><api batchcomplete=\"\">" //
+        + "<continue cmcontinue=\"page|4b|12\" continue=\"-||\" />" //
+        + "<query><categorymembers><cm pageid=\"12\" ns=\"14\" title=\"Category:X\" />" //
+        + "</categorymembers></query></api>";
+    ListResponseScanner testee = new ListResponseScanner(xml, "cm");
+
+    // WHEN
+    assertTrue(testee.nextItem());
+
+    // THEN
+    assertEquals("12", testee.getAttribute("pageid"));
+    assertEquals("14", testee.getAttribute("ns"));
+    assertNull(testee.getAttribute("missing"));
+    assertFalse(testee.nextItem());
+    assertEquals("page|4b|12", testee.getContinue("cmcontinue"));
+  }
+
+  @Test
+  public void testNextItem_noContinue() {
+    // GIVEN
+    String xml = "<api><query><embeddedin /></query>" //
+        + "<warnings><embeddedin xml:space=\"preserve\">eicontinue=\"X\"</embeddedin></warnings>"
+        + "</api>";
+    ListResponseScanner testee = new ListResponseScanner(xml, "ei");
+
+    // WHEN
+    List<String> titles = titlesOf(testee);
+
+    // THEN
+    assertTrue(titles.isEmpty());
+    assertNull(testee.getContinue("eicontinue"));
+  }
+
+  @Test
+  public void testNextItem_error() {
+    // GIVEN
+    String xml = "<?xml version=\"1.0\"?><api servedby=\"mw1\">"
+        + "<error code=\"bltitle\" info=\"The bltitle parameter must be set\" /></api>";
+    ListResponseScanner testee = new ListResponseScanner(xml, "bl");
+
+    try {
+      // WHEN
+      testee.nextItem();
+      fail();
+    } catch (ApiException e) {
+      // THEN
+      assertEquals("API ERROR CODE: bltitle VALUE: The bltitle parameter must be set",
+          e.getMessage());
+    }
+  }
+}
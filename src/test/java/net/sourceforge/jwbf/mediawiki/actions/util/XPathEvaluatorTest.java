@@ -0,0 +1,71 @@
+package net.sourceforge.jwbf.mediawiki.actions.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import com.google.common.base.Charsets;
+
+public class XPathEvaluatorTest {
+
+  private static final String RANDOM = "<?xml version=\"1.0\"?><api><query><random>"
+      + "<page id=\"42\" ns=\"0\" title=\"Caf\u00e9 &amp; Bar\" /></random></query></api>";
+
+  private static Document parse(String xml) {
+    return XPathEvaluator.parse(new InputSource(new StringReader(xml)));
+  }
+
+  @Test
+  public void testEvaluate() {
+    // GIVEN
+    Document document = parse(RANDOM);
+
+    // WHEN
+    String title = XPathEvaluator.evaluate(document, "/api/query/random/page/@title");
+    String id = XPathEvaluator.evaluate(document, "/api/query/random/page/@id");
+    String missing = XPathEvaluator.evaluate(document, "/api/query/random/page/@missing");
+
+    // THEN
+    assertEquals("Caf\u00e9 & Bar", title);
+    assertEquals("42", id);
+    assertEquals("", missing);
+    assertEquals(title, XPathEvaluator.evaluate(document, "/api/query/random/page/@title"));
+  }
+
+  @Test
+  public void testEvaluate_stream() {
+    // GIVEN
+    InputSource source = new InputSource(new ByteArrayInputStream(RANDOM
+        .getBytes(Charsets.ISO_8859_1)));
+    source.setEncoding("ISO-8859-1");
+
+    // WHEN
+    String title = XPathEvaluator.evaluate(XPathEvaluator.parse(source), "//page/@title");
+
+    // THEN
+    assertEquals("Caf\u00e9 & Bar", title);
+  }
+
+  @Test
+  public void testEvaluate_manyExpressions() {
+    Document document = parse(RANDOM);
+    for (int i = 0; i <= XPathEvaluator.MAX_EXPRESSIONS * 2; i++) {
+      assertEquals("" + i, XPathEvaluator.evaluate(document, "string(" + i + ")"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEvaluate_invalidExpression() {
+    XPathEvaluator.evaluate(parse(RANDOM), "/api/[");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_malformed() {
+    parse("<api><query></api>");
+  }
+}
@@ -1,20 +1,52 @@
 package net.sourceforge.jwbf.mediawiki.bots;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.sourceforge.jwbf.JettyServer;
+import net.sourceforge.jwbf.core.actions.ContentProcessable;
+import net.sourceforge.jwbf.core.actions.GetPage;
 import net.sourceforge.jwbf.core.actions.HttpActionClient;
+import net.sourceforge.jwbf.core.actions.ResponseCache;
+import net.sourceforge.jwbf.core.bots.HttpBot;
+import net.sourceforge.jwbf.core.contentRep.SimpleArticle;
 import net.sourceforge.jwbf.mediawiki.actions.MediaWiki.Version;
+import net.sourceforge.jwbf.mediawiki.actions.editing.GetRevision;
 import net.sourceforge.jwbf.mediawiki.actions.meta.GetVersion;
 
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.ContextHandler;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
 public class MediaWikiBotTest {
 
   private MediaWikiBot bot;
 
+  private static String fetch(HttpActionClient client, String url) {
+    GetPage page = new GetPage(url);
+    client.performAction(page);
+    return page.getText();
+  }
+
   @Test
   public void testInitWithMockClient() {
     HttpActionClient client = mock(HttpActionClient.class);
@@ -34,5 +66,101 @@ public class MediaWikiBotTest {
     assertNotNull(bot);
 
   }
+
+  @Test
+  public void testReadDataAsync_unknownVersion() {
+    // GIVEN
+    HttpActionClient client = mock(HttpActionClient.class);
+    SettableFuture<String> versionResponse = SettableFuture.create();
+    when(client.performActionAsync(Mockito.isA(GetVersion.class))).thenReturn(versionResponse);
+    when(client.performActionAsync(Mockito.isA(GetRevision.class))).thenReturn(
+        SettableFuture.<String> create());
+    bot = new MediaWikiBot(client);
+
+    // WHEN
+    ListenableFuture<SimpleArticle> result = bot.readDataAsync("Test");
+
+    // THEN
+    assertFalse(result.isDone());
+    verify(client, never()).performAction(Mockito.any(ContentProcessable.class));
+    verify(client, never()).performActionAsync(Mockito.isA(GetRevision.class));
+
+    // WHEN
+    versionResponse.set("");
+
+    // THEN
+    verify(client).performActionAsync(Mockito.isA(GetRevision.class));
+    assertEquals(Version.UNKNOWN, bot.getVersion());
+    verify(client, never()).performAction(Mockito.any(ContentProcessable.class));
+  }
+
+  @Test
+  public void testLogin_invalidatesResponseCache() throws Exception {
+    JettyServer server = new JettyServer();
+    final AtomicInteger session = new AtomicInteger();
+    try {
+      // GIVEN
+      server.setHandler(new ContextHandler() {
+        @Override
+        public void doHandle(String target, Request request, HttpServletRequest servletRequest,
+            HttpServletResponse response) throws IOException, ServletException {
+          String query = Strings.nullToEmpty(request.getQueryString());
+          if (query.contains("action=login")) {
+            session.incrementAndGet();
+            response.getWriter().print("<?xml version=\"1.0\"?><api><login result=\"Success\""
+                + " lguserid=\"1\" lgusername=\"Bob\" /></api>");
+          } else if (query.contains("meta=siteinfo")) {
+            response.getWriter().print("<?xml version=\"1.0\"?><api><query><general"
+                + " sitename=\"Test\" generator=\"MediaWiki 1.23.0\" /></query></api>");
+          } else if (query.contains("intoken")) {
+            response.getWriter().print("token-" + session.get());
+          } else {
+            response.getWriter().print("page-" + session.get());
+          }
+          request.setHandled(true);
+        }
+      });
+      server.startSilent();
+      HttpActionClient client = HttpActionClient.builder() //
+          .withUrl(server.getTestUrl()) //
+          .withResponseCache(ResponseCache.builder().build()) //
+          .build();
+      bot = new MediaWikiBot(client);
+      String tokenRequest = server.getTestUrl() + "api.php?action=query&prop=info&intoken=edit&titles=Test";
+      String pageRequest = server.getTestUrl() + "api.php?action=query&list=allpages";
+      assertEquals("token-0\n", fetch(client, tokenRequest));
+      assertEquals("page-0\n", fetch(client, pageRequest));
+
+      // WHEN
+      bot.login("Bob", "secret");
+
+      // THEN
+      assertEquals("token-1\n", fetch(client, tokenRequest));
+      assertEquals("page-1\n", fetch(client, pageRequest));
+      assertEquals("page-1\n", fetch(client, pageRequest));
+    } finally {
+      server.stopSilent();
+    }
+  }
+
+  @Test
+  public void testLogin_invalidatesResponseCacheOfInjectedBot() {
+    // GIVEN
+    final HttpActionClient client = mock(HttpActionClient.class);
+    when(client.performAction(Mockito.any(GetVersion.class))).thenReturn("");
+    bot = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(HttpBot.class).toInstance(new HttpBot(client));
+      }
+    }).getInstance(MediaWikiBot.class);
+
+    // WHEN
+    bot.login("Bob", "secret");
+
+    // THEN
+    verify(client).invalidateResponseCache();
+  }
+
   // TODO test all other methods with a mock client
 }